@@ -0,0 +1,48 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.benchmarks;
+
+/**
+ * A micro-benchmark executed by the {@link BenchmarkRunner}: {@link Benchmark#run(int)} executes the measured operation a given number of
+ * times. To prevent the JIT-compiler from eliminating the work, each execution has to contribute to the returned value (it is consumed
+ * by the runner).
+ * @author Thomas Obenaus
+ * @source Benchmark.java
+ * @date Jan 12, 2014
+ */
+public abstract class Benchmark
+{
+	private String	name;
+
+	public Benchmark( String name )
+	{
+		this.name = name;
+	}
+
+	/**
+	 * Called once before the benchmark is executed (not measured).
+	 * @throws Exception
+	 */
+	public void setUp( ) throws Exception
+	{}
+
+	/**
+	 * Executes the measured operation numOps times.
+	 * @param numOps
+	 * @return - a value depending on the result of each execution
+	 * @throws Exception
+	 */
+	public abstract long run( int numOps ) throws Exception;
+
+	public String getName( )
+	{
+		return name;
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Executes {@link Benchmark}s and measures the average time per operation: Each benchmark is warmed up (to get the code compiled by the
+ * JIT-compiler) and measured in several iterations of a fixed duration. The number of operations per iteration is calibrated before the
+ * warmup.
+ * @author Thomas Obenaus
+ * @source BenchmarkRunner.java
+ * @date Jan 12, 2014
+ */
+public class BenchmarkRunner
+{
+	public static final int		DEFAULT_WARMUP_ITERATIONS		= 5;
+	public static final int		DEFAULT_MEASUREMENT_ITERATIONS	= 10;
+	public static final int		DEFAULT_ITERATION_TIME			= 200;
+
+	/**
+	 * Min. time (in ns) of a run used to calibrate the number of operations per iteration.
+	 */
+	private static final long	CALIBRATION_TIME				= 10000000L;
+
+	private int					warmupIterations;
+	private int					measurementIterations;
+
+	/**
+	 * Duration (in ms) of an iteration.
+	 */
+	private int					iterationTime;
+
+	private List<Result>		results;
+
+	/**
+	 * Consumes the values returned by the benchmarks.
+	 */
+	private volatile long		sink;
+
+	public BenchmarkRunner( )
+	{
+		this( DEFAULT_WARMUP_ITERATIONS, DEFAULT_MEASUREMENT_ITERATIONS, DEFAULT_ITERATION_TIME );
+	}
+
+	/**
+	 * Ctor
+	 * @param warmupIterations
+	 * @param measurementIterations - has to be > 1
+	 * @param iterationTime - duration (in ms) of an iteration
+	 */
+	public BenchmarkRunner( int warmupIterations, int measurementIterations, int iterationTime )
+	{
+		if ( measurementIterations < 2 )
+			throw new IllegalArgumentException( "At least two measurement-iterations are needed (was " + measurementIterations + ")." );
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationTime = iterationTime;
+		this.results = new ArrayList<>( );
+		this.sink = 0;
+	}
+
+	/**
+	 * Executes the given benchmark and adds its result to the list of results.
+	 * @param benchmark
+	 * @return
+	 * @throws Exception - thrown by the benchmark
+	 */
+	public Result run( Benchmark benchmark ) throws Exception
+	{
+		benchmark.setUp( );
+
+		int numOps = this.calibrate( benchmark );
+		for ( int i = 0; i < this.warmupIterations; i++ )
+			this.measure( benchmark, numOps );
+
+		double[] nsPerOp = new double[this.measurementIterations];
+		for ( int i = 0; i < this.measurementIterations; i++ )
+			nsPerOp[i] = this.measure( benchmark, numOps ) / ( double ) numOps;
+
+		Result result = new Result( benchmark.getName( ), numOps, nsPerOp );
+		this.results.add( result );
+		return result;
+	}
+
+	/**
+	 * Returns the number of operations executed within (about) one iteration.
+	 * @param benchmark
+	 * @return
+	 * @throws Exception
+	 */
+	private int calibrate( Benchmark benchmark ) throws Exception
+	{
+		int numOps = 1;
+		long elapsed = this.measure( benchmark, numOps );
+		while ( ( elapsed < CALIBRATION_TIME ) && ( numOps < Integer.MAX_VALUE / 2 ) )
+		{
+			numOps *= 2;
+			elapsed = this.measure( benchmark, numOps );
+		}
+		long ops = ( long ) ( numOps * ( this.iterationTime * 1e6 / elapsed ) );
+		return ( int ) Math.max( 1, Math.min( Integer.MAX_VALUE, ops ) );
+	}
+
+	/**
+	 * Returns the time (in ns) needed to execute the given number of operations.
+	 * @param benchmark
+	 * @param numOps
+	 * @return
+	 * @throws Exception
+	 */
+	private long measure( Benchmark benchmark, int numOps ) throws Exception
+	{
+		long start = System.nanoTime( );
+		long value = benchmark.run( numOps );
+		long elapsed = System.nanoTime( ) - start;
+		this.sink += value;
+		return elapsed;
+	}
+
+	public List<Result> getResults( )
+	{
+		return results;
+	}
+
+	/**
+	 * Returns the results formatted as table.
+	 * @return
+	 */
+	public String format( )
+	{
+		int nameLength = "Benchmark".length( );
+		for ( Result result : this.results )
+			nameLength = Math.max( nameLength, result.getName( ).length( ) );
+
+		String rowFormat = "%-" + nameLength + "s %4s %16s %16s %16s  %s%n";
+		StringBuilder builder = new StringBuilder( );
+		builder.append( String.format( rowFormat, "Benchmark", "Cnt", "Score", "Error", "Min", "Units" ) );
+		for ( Result result : this.results )
+		{
+			builder.append( String.format( rowFormat, result.getName( ), result.getNumIterations( ), String.format( "%.3f", result.getMean( ) ), String.format( "+- %.3f", result.getStdDev( ) ), String.format( "%.3f", result.getMin( ) ), "ns/op" ) );
+		}
+		return builder.toString( );
+	}
+
+	/**
+	 * Result of a {@link Benchmark}: The time per operation (in ns) for each measurement-iteration.
+	 */
+	public static class Result
+	{
+		private String		name;
+		private int			numOps;
+		private double[]	nsPerOp;
+
+		public Result( String name, int numOps, double[] nsPerOp )
+		{
+			this.name = name;
+			this.numOps = numOps;
+			this.nsPerOp = nsPerOp;
+		}
+
+		public String getName( )
+		{
+			return name;
+		}
+
+		/**
+		 * Returns the number of operations per iteration.
+		 * @return
+		 */
+		public int getNumOps( )
+		{
+			return numOps;
+		}
+
+		public int getNumIterations( )
+		{
+			return this.nsPerOp.length;
+		}
+
+		/**
+		 * Returns the mean time per operation (in ns).
+		 * @return
+		 */
+		public double getMean( )
+		{
+			double sum = 0;
+			for ( double value : this.nsPerOp )
+				sum += value;
+			return sum / this.nsPerOp.length;
+		}
+
+		/**
+		 * Returns the (sample) standard deviation of the time per operation (in ns) over the iterations.
+		 * @return
+		 */
+		public double getStdDev( )
+		{
+			double mean = this.getMean( );
+			double sum = 0;
+			for ( double value : this.nsPerOp )
+				sum += ( value - mean ) * ( value - mean );
+			return Math.sqrt( sum / ( this.nsPerOp.length - 1 ) );
+		}
+
+		/**
+		 * Returns the min. time per operation (in ns) over the iterations.
+		 * @return
+		 */
+		public double getMin( )
+		{
+			double min = Double.MAX_VALUE;
+			for ( double value : this.nsPerOp )
+				min = Math.min( min, value );
+			return min;
+		}
+
+		@Override
+		public String toString( )
+		{
+			return String.format( "%s: %.3f +- %.3f ns/op", this.name, this.getMean( ), this.getStdDev( ) );
+		}
+	}
+}
@@ -0,0 +1,589 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import thobe.mapview.kernel.mapprovider.MapType;
+import thobe.mapview.kernel.mapprovider.MapURLBuilder;
+import thobe.mapview.kernel.mapprovider.Marker;
+import thobe.mapview.kernel.mapprovider.OSMStaticMapLite;
+import thobe.mapview.kernel.mapprovider.XYZTileURLBuilder;
+import thobe.mapview.kernel.MarkerClusterIndex;
+import thobe.mapview.kernel.MarkerLayer;
+import thobe.mapview.kernel.tileloader.CompatibleImageConverter;
+import thobe.mapview.kernel.tilesystem.GeoCoord;
+import thobe.mapview.kernel.tilesystem.MercatorProjection;
+import thobe.mapview.kernel.tilesystem.Tile;
+import thobe.mapview.kernel.tilesystem.TileMap;
+import thobe.mapview.kernel.tilesystem.TileNumber;
+
+/**
+ * Benchmarks of the hot paths of the map: The projection-functions (called on each mouse-event), the recomputation of the tile-grid (see
+ * MapImage.updateTileGrid()), building of urls, parsing of tile-ids and decoding of tile-images.
+ *
+ * <pre>
+ * MapViewBenchmarks [&lt;result-file&gt;] [&lt;filter&gt;]
+ * </pre>
+ *
+ * The results are printed and written to the result-file (if given), only the benchmarks whose names contain the filter are executed. The
+ * results checked in are found in benchmarks/results.txt.
+ * @author Thomas Obenaus
+ * @source MapViewBenchmarks.java
+ * @date Jan 12, 2014
+ */
+public class MapViewBenchmarks
+{
+	private static final int	ZOOM			= 15;
+
+	/**
+	 * Number of (random) inputs per benchmark, has to be a power of 2.
+	 */
+	private static final int	NUM_INPUTS		= 1024;
+
+	/**
+	 * Half of the size of the map-image (see MapImage).
+	 */
+	private static final int	HALF_IMG_SIZE	= 512;
+
+	/**
+	 * Size of the tile-grid (columns x rows) covering a view-port of 1280x768 pixels.
+	 */
+	private static final int	GRID_COLUMNS	= 7;
+	private static final int	GRID_ROWS		= 5;
+
+	/**
+	 * Number of coordinates projected per operation by the batch-projections.
+	 */
+	private static final int	BATCH_SIZE		= 200000;
+
+	/**
+	 * Number of {@link Marker}s of the {@link MarkerLayer}.
+	 */
+	private static final int	NUM_MARKERS		= 1000000;
+
+	/**
+	 * Number of clustered {@link Marker}s.
+	 */
+	private static final int	NUM_CLUSTERED	= 500000;
+
+	public static void main( String[] args ) throws Exception
+	{
+		File resultFile = ( args.length > 0 ) ? new File( args[0] ) : null;
+		String filter = ( args.length > 1 ) ? args[1] : "";
+
+		BenchmarkRunner runner = new BenchmarkRunner( );
+		for ( Benchmark benchmark : createBenchmarks( ) )
+		{
+			if ( !benchmark.getName( ).contains( filter ) )
+				continue;
+			System.out.println( runner.run( benchmark ) );
+		}
+
+		StringBuilder report = new StringBuilder( );
+		report.append( "# MapViewBenchmarks " + new SimpleDateFormat( "yyyy-MM-dd" ).format( new Date( ) ) + System.lineSeparator( ) );
+		report.append( "# " + System.getProperty( "java.vm.name" ) + " " + System.getProperty( "java.version" ) + ", " + System.getProperty( "os.name" ) + " " + System.getProperty( "os.arch" ) + ", " + Runtime.getRuntime( ).availableProcessors( ) + " cpu(s)" + System.lineSeparator( ) );
+		report.append( "# " + BenchmarkRunner.DEFAULT_WARMUP_ITERATIONS + " warmup- and " + BenchmarkRunner.DEFAULT_MEASUREMENT_ITERATIONS + " measurement-iterations of " + BenchmarkRunner.DEFAULT_ITERATION_TIME + " ms, error is the standard deviation" + System.lineSeparator( ) );
+		report.append( runner.format( ) );
+		System.out.println( );
+		System.out.print( report );
+
+		if ( resultFile != null )
+			Files.write( resultFile.toPath( ), report.toString( ).getBytes( StandardCharsets.UTF_8 ) );
+	}
+
+	private static List<Benchmark> createBenchmarks( ) throws IOException
+	{
+		final Random random = new Random( 4711 );
+		final GeoCoord[] geoCoords = new GeoCoord[NUM_INPUTS];
+		final TileNumber[] tileNumbers = new TileNumber[NUM_INPUTS];
+		final Point2D[] pixelCoords = new Point2D[NUM_INPUTS];
+		final String[] tileIds = new String[NUM_INPUTS];
+		for ( int i = 0; i < NUM_INPUTS; i++ )
+		{
+			geoCoords[i] = new GeoCoord( random.nextDouble( ) * 160 - 80, random.nextDouble( ) * 360 - 180 );
+			tileNumbers[i] = MercatorProjection.geoCoordToTileNumber( geoCoords[i], ZOOM );
+			pixelCoords[i] = new Point2D.Double( random.nextInt( 2 * HALF_IMG_SIZE ), random.nextInt( 2 * HALF_IMG_SIZE ) );
+			tileIds[i] = Tile.colRowToTileId( random.nextInt( 20 ) - 10, random.nextInt( 20 ) - 10 );
+		}
+		final GeoCoord imageCenter = new GeoCoord( 51.0504, 13.7373 );
+
+		List<Benchmark> benchmarks = new ArrayList<>( );
+
+		// projection
+		benchmarks.add( new Benchmark( "projection.geoCoordToTileNumber" )
+		{
+			@Override
+			public long run( int numOps )
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+					result += MercatorProjection.geoCoordToTileNumber( geoCoords[i & ( NUM_INPUTS - 1 )], ZOOM ).getXInt( );
+				return result;
+			}
+		} );
+		benchmarks.add( new Benchmark( "projection.tileNumberToGeoCoord" )
+		{
+			@Override
+			public long run( int numOps )
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+					result += Double.doubleToRawLongBits( MercatorProjection.tileNumberToGeoCoord( tileNumbers[i & ( NUM_INPUTS - 1 )], ZOOM ).getLatitude( ) );
+				return result;
+			}
+		} );
+		benchmarks.add( new Benchmark( "projection.pixelCoordOnImageToGeoCoord" )
+		{
+			@Override
+			public long run( int numOps )
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+					result += Double.doubleToRawLongBits( MercatorProjection.pixelCoordOnImageToGeoCoord( pixelCoords[i & ( NUM_INPUTS - 1 )], imageCenter, HALF_IMG_SIZE, ZOOM ).getLatitude( ) );
+				return result;
+			}
+		} );
+		benchmarks.add( new Benchmark( "projection.geoCoordToPixelCoordOnImage" )
+		{
+			@Override
+			public long run( int numOps )
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+					result += Double.doubleToRawLongBits( MercatorProjection.geoCoordToPixelCoordOnImage( geoCoords[i & ( NUM_INPUTS - 1 )], imageCenter, HALF_IMG_SIZE, ZOOM ).getX( ) );
+				return result;
+			}
+		} );
+		benchmarks.add( new Benchmark( "projection.geoCoordToPixelOnWorldMap" )
+		{
+			@Override
+			public long run( int numOps )
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+					result += Double.doubleToRawLongBits( MercatorProjection.geoCoordToPixelOnWorldMap( geoCoords[i & ( NUM_INPUTS - 1 )], ZOOM ).getY( ) );
+				return result;
+			}
+		} );
+		benchmarks.add( new BatchProjectionBenchmark( "projection.batch200k.projectToWorldPixels", true, false ) );
+		benchmarks.add( new BatchProjectionBenchmark( "projection.batch200k.projectToWorldPixelsParallel", true, true ) );
+		benchmarks.add( new BatchProjectionBenchmark( "projection.batch200k.unprojectFromWorldPixels", false, false ) );
+		benchmarks.add( new BatchProjectionBenchmark( "projection.batch200k.unprojectFromWorldPixelsParallel", false, true ) );
+		benchmarks.add( new Benchmark( "tileNumber.new" )
+		{
+			@Override
+			public long run( int numOps )
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+				{
+					TileNumber tileNumber = tileNumbers[i & ( NUM_INPUTS - 1 )];
+					result += new TileNumber( tileNumber.getX( ), tileNumber.getY( ), ZOOM ).getXInt( );
+				}
+				return result;
+			}
+		} );
+
+		// tile-grid
+		benchmarks.add( new TileGridBenchmark( "tileGrid.recompute", tileNumbers ) );
+		benchmarks.add( new TileGridBenchmark( "tileGrid.unchanged", new TileNumber[]
+		{ tileNumbers[0] } ) );
+
+		// markers
+		benchmarks.add( new MarkerLayerBenchmark( "markerLayer.query1M.zoom12", false ) );
+		benchmarks.add( new MarkerLayerBenchmark( "markerLayer.move1M", true ) );
+		benchmarks.add( new MarkerClusterBenchmark( "markerClusters.build500k", true ) );
+		benchmarks.add( new MarkerClusterBenchmark( "markerClusters.query500k.zoom5", false ) );
+
+		// urls
+		final MapURLBuilder osmBuilder = new OSMStaticMapLite( );
+		benchmarks.add( new Benchmark( "url.osmStaticMapLite" )
+		{
+			@Override
+			public long run( int numOps ) throws Exception
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+					result += osmBuilder.buildURL( geoCoords[i & ( NUM_INPUTS - 1 )], ZOOM, Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX, MapType.ROADMAP ).getFile( ).length( );
+				return result;
+			}
+		} );
+		final MapURLBuilder xyzBuilder = new XYZTileURLBuilder( );
+		benchmarks.add( new Benchmark( "url.xyzTile" )
+		{
+			@Override
+			public long run( int numOps ) throws Exception
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+				{
+					TileNumber tileNumber = tileNumbers[i & ( NUM_INPUTS - 1 )];
+					result += xyzBuilder.buildTileURL( ZOOM, tileNumber.getXInt( ), tileNumber.getYInt( ), MapType.ROADMAP ).getFile( ).length( );
+				}
+				return result;
+			}
+		} );
+
+		// tile-ids
+		benchmarks.add( new Benchmark( "tileId.parse" )
+		{
+			@Override
+			public long run( int numOps )
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+					result += Tile.tileIdToLong( tileIds[i & ( NUM_INPUTS - 1 )] );
+				return result;
+			}
+		} );
+		benchmarks.add( new Benchmark( "tileId.toString" )
+		{
+			@Override
+			public long run( int numOps )
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+					result += Tile.tileIdToString( Tile.toTileId( i & 15, i & 7 ) ).length( );
+				return result;
+			}
+		} );
+
+		// decoding
+		final CompatibleImageConverter converter = new CompatibleImageConverter( );
+		final byte[] indexedPNG = createTilePNG( BufferedImage.TYPE_BYTE_INDEXED );
+		final byte[] rgbPNG = createTilePNG( BufferedImage.TYPE_INT_RGB );
+		benchmarks.add( new Benchmark( "decode.png.indexed" )
+		{
+			@Override
+			public long run( int numOps ) throws IOException
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+					result += ImageIO.read( new ByteArrayInputStream( indexedPNG ) ).getRGB( i & 255, 0 );
+				return result;
+			}
+		} );
+		benchmarks.add( new Benchmark( "decode.png.indexed+convert" )
+		{
+			@Override
+			public long run( int numOps ) throws IOException
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+					result += converter.convert( ImageIO.read( new ByteArrayInputStream( indexedPNG ) ) ).getRGB( i & 255, 0 );
+				return result;
+			}
+		} );
+		benchmarks.add( new Benchmark( "decode.png.rgb" )
+		{
+			@Override
+			public long run( int numOps ) throws IOException
+			{
+				long result = 0;
+				for ( int i = 0; i < numOps; i++ )
+					result += ImageIO.read( new ByteArrayInputStream( rgbPNG ) ).getRGB( i & 255, 0 );
+				return result;
+			}
+		} );
+
+		return benchmarks;
+	}
+
+	/**
+	 * Creates the PNG of a tile with the given image-type (see examples.TileRenderingFrameTime).
+	 * @param imageType
+	 * @return
+	 * @throws IOException
+	 */
+	private static byte[] createTilePNG( int imageType ) throws IOException
+	{
+		BufferedImage img = new BufferedImage( Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX, imageType );
+		Graphics2D gr = img.createGraphics( );
+		gr.setColor( new Color( 242, 239, 233 ) );
+		gr.fillRect( 0, 0, Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX );
+		for ( int i = 0; i < Tile.TILE_SIZE_PX; i += 16 )
+		{
+			gr.setColor( new Color( 170 + ( i % 64 ), 190, 210 ) );
+			gr.drawLine( 0, i, Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX - i );
+			gr.drawLine( i, 0, Tile.TILE_SIZE_PX - i, Tile.TILE_SIZE_PX );
+		}
+		gr.dispose( );
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		ImageIO.write( img, "png", out );
+		return out.toByteArray( );
+	}
+
+	/**
+	 * (Un)projects {@link MapViewBenchmarks#BATCH_SIZE} coordinates per operation using the batch-projections of the
+	 * {@link MercatorProjection}.
+	 */
+	private static class BatchProjectionBenchmark extends Benchmark
+	{
+		private boolean				project;
+		private boolean				parallel;
+		private double[]			in0;
+		private double[]			in1;
+		private double[]			out0;
+		private double[]			out1;
+
+		public BatchProjectionBenchmark( String name, boolean project, boolean parallel )
+		{
+			super( name );
+			this.project = project;
+			this.parallel = parallel;
+		}
+
+		@Override
+		public void setUp( )
+		{
+			Random random = new Random( 4711 );
+			this.in0 = new double[BATCH_SIZE];
+			this.in1 = new double[BATCH_SIZE];
+			this.out0 = new double[BATCH_SIZE];
+			this.out1 = new double[BATCH_SIZE];
+			double mapSize = MercatorProjection.getMapSize( ZOOM );
+			for ( int i = 0; i < BATCH_SIZE; i++ )
+			{
+				this.in0[i] = this.project ? random.nextDouble( ) * 160 - 80 : random.nextDouble( ) * mapSize;
+				this.in1[i] = this.project ? random.nextDouble( ) * 360 - 180 : random.nextDouble( ) * mapSize;
+			}
+		}
+
+		@Override
+		public long run( int numOps )
+		{
+			long result = 0;
+			for ( int i = 0; i < numOps; i++ )
+			{
+				if ( this.project && this.parallel )
+					MercatorProjection.projectToWorldPixelsParallel( this.in0, this.in1, ZOOM, this.out0, this.out1 );
+				else if ( this.project )
+					MercatorProjection.projectToWorldPixels( this.in0, this.in1, ZOOM, this.out0, this.out1 );
+				else if ( this.parallel )
+					MercatorProjection.unprojectFromWorldPixelsParallel( this.in0, this.in1, ZOOM, this.out0, this.out1 );
+				else MercatorProjection.unprojectFromWorldPixels( this.in0, this.in1, ZOOM, this.out0, this.out1 );
+				result += Double.doubleToRawLongBits( this.out1[i % BATCH_SIZE] );
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * A {@link MarkerLayer} of {@link MapViewBenchmarks#NUM_MARKERS} {@link Marker}s spread over central europe: Each operation either
+	 * collects the {@link Marker}s within a view-port of 1280x768 pixels at zoom-level 12 (moved from operation to operation) or moves one
+	 * {@link Marker}.
+	 */
+	private static class MarkerLayerBenchmark extends Benchmark
+	{
+		private boolean					move;
+		private MarkerLayer				markerLayer;
+		private List<Marker>			markers;
+		private GeoCoord[]				positions;
+		private MarkerLayer.Selection	selection;
+
+		public MarkerLayerBenchmark( String name, boolean move )
+		{
+			super( name );
+			this.move = move;
+		}
+
+		@Override
+		public void setUp( )
+		{
+			Random random = new Random( 4711 );
+			this.markers = new ArrayList<>( NUM_MARKERS );
+			for ( int i = 0; i < NUM_MARKERS; i++ )
+				this.markers.add( new Marker( randomPosition( random ) ) );
+			this.positions = new GeoCoord[NUM_INPUTS];
+			for ( int i = 0; i < NUM_INPUTS; i++ )
+				this.positions[i] = randomPosition( random );
+			this.markerLayer = new MarkerLayer( );
+			this.markerLayer.addAll( this.markers );
+			this.selection = new MarkerLayer.Selection( );
+		}
+
+		private static GeoCoord randomPosition( Random random )
+		{
+			return new GeoCoord( 45 + random.nextDouble( ) * 10, 5 + random.nextDouble( ) * 15 );
+		}
+
+		@Override
+		public long run( int numOps )
+		{
+			long result = 0;
+			double mapSize = MercatorProjection.getMapSize( 12 );
+			double width = 1280 / mapSize;
+			double height = 768 / mapSize;
+			for ( int i = 0; i < numOps; i++ )
+			{
+				GeoCoord position = this.positions[i & ( NUM_INPUTS - 1 )];
+				if ( this.move )
+				{
+					this.markerLayer.move( this.markers.get( ( i * 7919 ) % NUM_MARKERS ), position );
+					result++;
+				}
+				else
+				{
+					Point2D center = MercatorProjection.geoCoordToPixelOnWorldMap( position, 0 );
+					double x = center.getX( ) / Tile.TILE_SIZE_PX - width / 2;
+					double y = center.getY( ) / Tile.TILE_SIZE_PX - height / 2;
+					result += this.markerLayer.getMarkers( x, y, x + width, y + height, this.selection );
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * {@link MapViewBenchmarks#NUM_CLUSTERED} {@link Marker}s spread over central europe: Each operation either builds the
+	 * {@link MarkerClusterIndex} or collects the clusters within a view-port of 1280x768 pixels at zoom-level 5 (moved from operation to
+	 * operation), which is what a change of the zoom-level costs.
+	 */
+	private static class MarkerClusterBenchmark extends Benchmark
+	{
+		private boolean						build;
+		private MarkerLayer					markerLayer;
+		private MarkerClusterIndex			clusterIndex;
+		private GeoCoord[]					positions;
+		private MarkerClusterIndex.Clusters	clusters;
+
+		public MarkerClusterBenchmark( String name, boolean build )
+		{
+			super( name );
+			this.build = build;
+		}
+
+		@Override
+		public void setUp( )
+		{
+			Random random = new Random( 4711 );
+			List<Marker> markers = new ArrayList<>( NUM_CLUSTERED );
+			for ( int i = 0; i < NUM_CLUSTERED; i++ )
+				markers.add( new Marker( MarkerLayerBenchmark.randomPosition( random ) ) );
+			this.positions = new GeoCoord[NUM_INPUTS];
+			for ( int i = 0; i < NUM_INPUTS; i++ )
+				this.positions[i] = MarkerLayerBenchmark.randomPosition( random );
+			this.markerLayer = new MarkerLayer( );
+			this.markerLayer.addAll( markers );
+			this.clusterIndex = this.markerLayer.createClusterIndex( );
+			this.clusters = new MarkerClusterIndex.Clusters( );
+		}
+
+		@Override
+		public long run( int numOps )
+		{
+			long result = 0;
+			double mapSize = MercatorProjection.getMapSize( 5 );
+			double width = 1280 / mapSize;
+			double height = 768 / mapSize;
+			for ( int i = 0; i < numOps; i++ )
+			{
+				if ( this.build )
+				{
+					this.clusterIndex = this.markerLayer.createClusterIndex( );
+					result += this.clusterIndex.getNumClusters( 5 );
+				}
+				else
+				{
+					Point2D center = MercatorProjection.geoCoordToPixelOnWorldMap( this.positions[i & ( NUM_INPUTS - 1 )], 0 );
+					double x = center.getX( ) / Tile.TILE_SIZE_PX - width / 2;
+					double y = center.getY( ) / Tile.TILE_SIZE_PX - height / 2;
+					result += this.clusterIndex.getClusters( 5, x, y, x + width, y + height, this.clusters );
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Recomputes the {@link TileNumber}s of a grid of {@link Tile}s like MapImage.updateTileGrid() does: Each operation moves the center
+	 * of the map to the next of the given {@link TileNumber}s (the {@link TileNumber} of each {@link Tile} changes if the center does).
+	 */
+	private static class TileGridBenchmark extends Benchmark
+	{
+		private TileNumber[]	centers;
+		private TileMap			grid;
+
+		public TileGridBenchmark( String name, TileNumber[] centers )
+		{
+			super( name );
+			this.centers = centers;
+		}
+
+		@Override
+		public void setUp( )
+		{
+			this.grid = new TileMap( GRID_COLUMNS * GRID_ROWS );
+			for ( int row = 0; row < GRID_ROWS; row++ )
+			{
+				for ( int column = 0; column < GRID_COLUMNS; column++ )
+					this.grid.put( new Tile( column, row, column * Tile.TILE_SIZE_PX, row * Tile.TILE_SIZE_PX ) );
+			}
+		}
+
+		@Override
+		public long run( int numOps )
+		{
+			long result = 0;
+			for ( int i = 0; i < numOps; i++ )
+				result += this.update( this.centers[i % this.centers.length] );
+			return result;
+		}
+
+		/**
+		 * Applies the {@link TileNumber}s for the given center of the map, returns the number of {@link Tile}s whose {@link TileNumber}
+		 * has changed.
+		 * @param tileNumberOfMapCenter
+		 * @return
+		 */
+		private int update( TileNumber tileNumberOfMapCenter )
+		{
+			int columnOfMapCenter = GRID_COLUMNS / 2;
+			int rowOfMapCenter = GRID_ROWS / 2;
+			int numChanged = 0;
+			for ( int row = 0; row < GRID_ROWS; row++ )
+			{
+				for ( int column = 0; column < GRID_COLUMNS; column++ )
+				{
+					Tile tile = this.grid.get( column, row );
+					double xTile = tileNumberOfMapCenter.getX( ) + ( column - columnOfMapCenter );
+					double yTile = tileNumberOfMapCenter.getY( ) + ( row - rowOfMapCenter );
+
+					TileNumber tileNumber = tile.getTileNumber( );
+					if ( ( tileNumber.getX( ) != xTile ) || ( tileNumber.getY( ) != yTile ) || ( tileNumber.getZoom( ) != ZOOM ) )
+					{
+						tile.setTileNumber( new TileNumber( xTile, yTile, ZOOM ) );
+						tile.setValid( false );
+						numChanged++;
+					}
+				}
+			}
+			return numChanged;
+		}
+	}
+}
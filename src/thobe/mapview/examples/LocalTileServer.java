@@ -0,0 +1,250 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.examples;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import thobe.mapview.kernel.mapprovider.MapProvider;
+import thobe.mapview.kernel.mapprovider.MapType;
+import thobe.mapview.kernel.mapprovider.MapURLBuilder;
+import thobe.mapview.kernel.mapprovider.Marker;
+import thobe.mapview.kernel.mapprovider.XYZTileURLBuilder;
+import thobe.mapview.kernel.tilesystem.GeoCoord;
+import thobe.mapview.kernel.tilesystem.Tile;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for a map-provider. The server answers every request with the same generated PNG (size {@link Tile#TILE_SIZE_PX}) after
+ * an (optional) delay. Used to measure the {@link thobe.mapview.kernel.tileloader.TileLoader} without network. Delayed responses don't block
+ * a server-thread, so slow servers with many concurrent clients can be simulated.
+ * @author Thomas Obenaus
+ * @source LocalTileServer.java
+ * @date Dec 30, 2013
+ */
+public class LocalTileServer
+{
+	private HttpServer					server;
+	private ExecutorService				executor;
+	private ScheduledExecutorService	scheduler;
+	private byte[]						tileData;
+	private long						delayMs;
+	private AtomicLong					numRequests;
+
+	/**
+	 * Remote addresses of all connections that have been used by the clients.
+	 */
+	private Set<String>					connections;
+
+	/**
+	 * Ctor
+	 * @param delayMs - delay (in ms) before each response is sent
+	 * @throws IOException
+	 */
+	public LocalTileServer( long delayMs ) throws IOException
+	{
+		this.delayMs = delayMs;
+		this.numRequests = new AtomicLong( 0 );
+		this.connections = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>( ) );
+		this.tileData = createTileData( );
+
+		this.server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0 ), 256 );
+		this.server.createContext( "/", new HttpHandler( )
+		{
+			@Override
+			public void handle( HttpExchange exchange ) throws IOException
+			{
+				handleRequest( exchange );
+			}
+		} );
+		this.executor = Executors.newFixedThreadPool( 2 );
+		this.scheduler = Executors.newScheduledThreadPool( 2 );
+		this.server.setExecutor( this.executor );
+	}
+
+	public void start( )
+	{
+		this.server.start( );
+	}
+
+	public void stop( )
+	{
+		this.server.stop( 0 );
+		this.executor.shutdownNow( );
+		this.scheduler.shutdownNow( );
+	}
+
+	public int getPort( )
+	{
+		return this.server.getAddress( ).getPort( );
+	}
+
+	/**
+	 * Returns the base of all urls served by this server (e.g. http://127.0.0.1:4711).
+	 * @return
+	 */
+	public String getBaseURL( )
+	{
+		return "http://127.0.0.1:" + getPort( );
+	}
+
+	public long getNumRequests( )
+	{
+		return numRequests.get( );
+	}
+
+	/**
+	 * Resets the number of requests and connections.
+	 */
+	public void resetStatistics( )
+	{
+		this.numRequests.set( 0 );
+		this.connections.clear( );
+	}
+
+	/**
+	 * Returns the number of distinct connections that were used by the clients (since the last reset).
+	 * @return
+	 */
+	public int getNumConnections( )
+	{
+		return connections.size( );
+	}
+
+	public void setDelayMs( long delayMs )
+	{
+		this.delayMs = delayMs;
+	}
+
+	/**
+	 * Returns a {@link MapURLBuilder} that requests static map-images from this server.
+	 * @return
+	 */
+	public MapURLBuilder createURLBuilder( )
+	{
+		return new MapURLBuilder( )
+		{
+			@Override
+			public URL buildURL( GeoCoord center, int zoomLevel, int width, int height, MapType mapType ) throws MalformedURLException
+			{
+				URLQuery query = new URLQuery( );
+				query.addParameter( "zoom", zoomLevel );
+				query.addParameter( "center", center.toString( ) );
+				query.addParameter( "maptype", mapType.toString( ) );
+				query.addParameter( "size", width + "x" + height );
+				return new URL( getBaseURL( ) + "/staticmap" + query );
+			}
+
+			@Override
+			public URL buildURL( GeoCoord center, int zoomLevel, int width, int height, MapType mapType, List<Marker> markers ) throws MalformedURLException
+			{
+				return this.buildURL( center, zoomLevel, width, height, mapType );
+			}
+
+			@Override
+			public MapProvider getProvider( )
+			{
+				return MapProvider.OSMStaticMapLite;
+			}
+		};
+	}
+
+	/**
+	 * Returns a {@link MapURLBuilder} that requests tiles (/{z}/{x}/{y}.png) from this server.
+	 * @return
+	 */
+	public MapURLBuilder createXYZURLBuilder( )
+	{
+		return new XYZTileURLBuilder( getBaseURL( ) + "/{z}/{x}/{y}.png" );
+	}
+
+	private void handleRequest( final HttpExchange exchange ) throws IOException
+	{
+		this.numRequests.incrementAndGet( );
+		this.connections.add( exchange.getRemoteAddress( ).toString( ) );
+
+		// delay the response without blocking a thread, the number of server-threads stays small even for many concurrent requests
+		if ( this.delayMs > 0 )
+		{
+			this.scheduler.schedule( new Runnable( )
+			{
+				@Override
+				public void run( )
+				{
+					try
+					{
+						sendTile( exchange );
+					}
+					catch ( IOException e )
+					{
+						// client has gone (e.g. cancelled request)
+						exchange.close( );
+					}
+				}
+			}, this.delayMs, TimeUnit.MILLISECONDS );
+		}
+		else this.sendTile( exchange );
+	}
+
+	private void sendTile( HttpExchange exchange ) throws IOException
+	{
+		exchange.getResponseHeaders( ).add( "Content-Type", "image/png" );
+		exchange.sendResponseHeaders( 200, this.tileData.length );
+		try (OutputStream out = exchange.getResponseBody( ))
+		{
+			out.write( this.tileData );
+		}
+	}
+
+	/**
+	 * Creates the PNG that is delivered for each request (a tile with some lines to get a realistic size).
+	 * @return
+	 * @throws IOException
+	 */
+	private static byte[] createTileData( ) throws IOException
+	{
+		BufferedImage img = new BufferedImage( Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX, BufferedImage.TYPE_INT_RGB );
+		Graphics2D gr = img.createGraphics( );
+		gr.setColor( new Color( 242, 239, 233 ) );
+		gr.fillRect( 0, 0, Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX );
+		for ( int i = 0; i < Tile.TILE_SIZE_PX; i += 16 )
+		{
+			gr.setColor( new Color( 170 + ( i % 64 ), 190, 210 ) );
+			gr.drawLine( 0, i, Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX - i );
+			gr.drawLine( i, 0, Tile.TILE_SIZE_PX - i, Tile.TILE_SIZE_PX );
+		}
+		gr.dispose( );
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		ImageIO.write( img, "png", out );
+		return out.toByteArray( );
+	}
+}
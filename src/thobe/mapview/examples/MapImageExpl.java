@@ -12,6 +12,9 @@ package thobe.mapview.examples;
 import java.awt.BorderLayout;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
 import java.io.IOException;
 import java.util.logging.Level;
 
@@ -19,6 +22,7 @@ import javax.swing.JFrame;
 
 import thobe.mapview.kernel.MapImage;
 import thobe.mapview.kernel.MapViewInfo;
+import thobe.mapview.kernel.tilecache.DiskTileStore;
 import thobe.tools.log.Log;
 
 /**
@@ -29,7 +33,9 @@ import thobe.tools.log.Log;
 @SuppressWarnings ( "serial")
 public class MapImageExpl extends JFrame
 {
-	private MapImage	mapImage;
+	private static final long	TILE_STORE_SIZE	= 256 * 1024 * 1024;
+	private MapImage			mapImage;
+	private DiskTileStore		tileStore;
 
 	public MapImageExpl( )
 	{
@@ -39,6 +45,17 @@ public class MapImageExpl extends JFrame
 		this.buildGUI( );
 		this.setDefaultCloseOperation( JFrame.EXIT_ON_CLOSE );
 
+		this.addWindowListener( new WindowAdapter( )
+		{
+			@Override
+			public void windowClosing( WindowEvent e )
+			{
+				mapImage.dispose( );
+				if ( tileStore != null )
+					tileStore.close( );
+			}
+		} );
+
 		this.addComponentListener( new ComponentAdapter( )
 		{
 
@@ -58,6 +75,18 @@ public class MapImageExpl extends JFrame
 		this.setLayout( new BorderLayout( 0, 0 ) );
 		this.mapImage = new MapImage( getWidth( ) - 300, getHeight( ) - 300, Log.LOG( ) );
 		this.add( this.mapImage, BorderLayout.CENTER );
+
+		// keep the loaded tiles on disk to avoid downloading them again on the next start
+		try
+		{
+			File tileStoreDir = new File( System.getProperty( "user.home" ), ".mapview" + File.separator + "tiles" );
+			this.tileStore = new DiskTileStore( Log.LOG( ), tileStoreDir, TILE_STORE_SIZE );
+			this.mapImage.setTileStore( this.tileStore );
+		}
+		catch ( IOException e )
+		{
+			Log.LOG( ).warning( "Unable to open the tile-store: " + e.getLocalizedMessage( ) );
+		}
 	}
 
 	public static void main( String[] args )
@@ -41,6 +41,7 @@ import thobe.mapview.kernel.mapprovider.GoogleMapURLBuilder;
 import thobe.mapview.kernel.mapprovider.MapProvider;
 import thobe.mapview.kernel.mapprovider.MapURLBuilder;
 import thobe.mapview.kernel.mapprovider.OSMStaticMapLite;
+import thobe.mapview.kernel.mapprovider.XYZTileURLBuilder;
 import thobe.mapview.kernel.tilesystem.GeoCoord;
 
 /**
@@ -178,6 +179,9 @@ public class TileLoader extends JFrame
 			case OSMStaticMapLite:
 				urlBuilder = new OSMStaticMapLite( );
 				break;
+			case XYZ:
+				urlBuilder = new XYZTileURLBuilder( );
+				break;
 			case BING:
 			default:
 				throw new IllegalArgumentException( "The given mapprovider [" + mapProvider + "] is currently not supported" );
@@ -0,0 +1,108 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.examples;
+
+import java.awt.Image;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import thobe.mapview.kernel.mapprovider.MapURLBuilder;
+import thobe.mapview.kernel.tileloader.TileLoader;
+import thobe.mapview.kernel.tileloader.TileLoaderListener;
+import thobe.mapview.kernel.tileloader.TileRequest;
+import thobe.mapview.kernel.tilesystem.Tile;
+import thobe.mapview.kernel.tilesystem.TileNumber;
+
+/**
+ * Measures the CPU-time consumed by the {@link TileLoader}-thread while loading a block of 200 tiles from a {@link LocalTileServer}.
+ * @author Thomas Obenaus
+ * @source TileLoaderCpuUsage.java
+ * @date Dec 30, 2013
+ */
+public class TileLoaderCpuUsage
+{
+	private static final int	NUM_TILES		= 200;
+	private static final int	NUM_WORKERS		= 10;
+	private static final long	SERVER_DELAY_MS	= 50;
+
+	public static void main( String[] args ) throws IOException, InterruptedException
+	{
+		Logger log = Logger.getLogger( TileLoaderCpuUsage.class.getName( ) );
+		log.setLevel( Level.WARNING );
+
+		LocalTileServer server = new LocalTileServer( SERVER_DELAY_MS );
+		server.start( );
+		MapURLBuilder urlBuilder = server.createURLBuilder( );
+
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean( );
+
+		// one warm-up run (class-loading, JIT), one measured run
+		for ( int run = 0; run < 2; run++ )
+		{
+			// no image-cache, each tile has to be loaded
+			TileLoader tileLoader = new TileLoader( log, NUM_WORKERS, null );
+			final CountDownLatch done = new CountDownLatch( NUM_TILES );
+			tileLoader.addListener( new TileLoaderListener( )
+			{
+				@Override
+				public void onTileLoadRequestStarted( long tileId, TileNumber tileNumber )
+				{}
+
+				@Override
+				public void onTileLoadRequestFailed( long tileId, TileNumber tileNumber, FailReason reason, String cause )
+				{
+					done.countDown( );
+				}
+
+				@Override
+				public void onTileLoadRequestComplete( long tileId, TileNumber tileNumber, Image image )
+				{
+					done.countDown( );
+				}
+			} );
+			tileLoader.start( );
+
+			List<TileRequest> requests = new ArrayList<>( );
+			for ( int i = 0; i < NUM_TILES; i++ )
+			{
+				int column = i % 20;
+				int row = i / 20;
+				requests.add( new TileRequest( log, urlBuilder, Tile.toTileId( column, row ), new TileNumber( 2000.5 + column, 1300.5 + row + run * 100, 12 ) ) );
+			}
+
+			long cpuStart = threadBean.getThreadCpuTime( tileLoader.getId( ) );
+			long wallStart = System.nanoTime( );
+			tileLoader.addTileRequestBlock( requests );
+			done.await( 5, TimeUnit.MINUTES );
+			long wall = System.nanoTime( ) - wallStart;
+			long cpu = threadBean.getThreadCpuTime( tileLoader.getId( ) ) - cpuStart;
+
+			tileLoader.shutdown( );
+			tileLoader.join( );
+
+			if ( run > 0 )
+			{
+				System.out.println( String.format( "%d tiles loaded in %.1f ms (server delay %d ms, %d workers)", NUM_TILES, wall / 1e6, SERVER_DELAY_MS, NUM_WORKERS ) );
+				System.out.println( String.format( "TileLoader-thread CPU-time: %.1f ms (%.1f%% of one core)", cpu / 1e6, ( 100d * cpu ) / wall ) );
+				System.out.println( String.format( "Time to first visible tile: %.1f ms", tileLoader.getTimeToFirstVisibleTile( ) ) );
+			}
+		}
+
+		server.stop( );
+		System.exit( 0 );
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.examples;
+
+import java.awt.Image;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import thobe.mapview.kernel.mapprovider.MapURLBuilder;
+import thobe.mapview.kernel.tileloader.HttpClientTileFetcher;
+import thobe.mapview.kernel.tileloader.TileFetcher;
+import thobe.mapview.kernel.tileloader.TileLoader;
+import thobe.mapview.kernel.tileloader.TileLoader.ExecutionMode;
+import thobe.mapview.kernel.tileloader.TileLoaderListener;
+import thobe.mapview.kernel.tileloader.TileRequest;
+import thobe.mapview.kernel.tileloader.URLConnectionTileFetcher;
+import thobe.mapview.kernel.tilesystem.Tile;
+import thobe.mapview.kernel.tilesystem.TileNumber;
+
+/**
+ * Compares the throughput (tiles/s) and the memory-usage of different {@link TileLoader}-configurations (execution-mode, number of
+ * workers, {@link TileFetcher}-backend) while loading tiles from a slow {@link LocalTileServer}.
+ * @author Thomas Obenaus
+ * @source TileLoaderThroughput.java
+ * @date Jan 3, 2014
+ */
+public class TileLoaderThroughput
+{
+	private static final int	NUM_TILES				= 400;
+	private static final long	SERVER_DELAY_MS			= 100;
+	private static final int	MAX_REQUESTS_PER_HOST	= 64;
+
+	public static void main( String[] args ) throws IOException, InterruptedException
+	{
+		Logger log = Logger.getLogger( TileLoaderThroughput.class.getName( ) );
+		log.setLevel( Level.SEVERE );
+
+		LocalTileServer server = new LocalTileServer( SERVER_DELAY_MS );
+		server.start( );
+		MapURLBuilder urlBuilder = server.createURLBuilder( );
+
+		System.out.println( String.format( "Loading %d tiles, server delay %d ms, java %s", NUM_TILES, SERVER_DELAY_MS, System.getProperty( "java.version" ) ) );
+
+		List<Configuration> configurations = new ArrayList<>( );
+		configurations.add( new Configuration( ExecutionMode.FIXED_POOL, 4, new URLConnectionTileFetcher( ), -1 ) );
+		configurations.add( new Configuration( ExecutionMode.FIXED_POOL, MAX_REQUESTS_PER_HOST, new URLConnectionTileFetcher( ), -1 ) );
+		configurations.add( new Configuration( ExecutionMode.FIXED_POOL, 4, new HttpClientTileFetcher( ), -1 ) );
+		configurations.add( new Configuration( ExecutionMode.VIRTUAL_THREADS, 1000, new URLConnectionTileFetcher( ), MAX_REQUESTS_PER_HOST ) );
+
+		int run = 0;
+		for ( Configuration configuration : configurations )
+		{
+			// one warm-up run (class-loading, JIT, connections), one measured run
+			for ( int i = 0; i < 2; i++ )
+			{
+				server.resetStatistics( );
+				Result result = loadTiles( log, urlBuilder, configuration, run++ );
+
+				if ( i > 0 )
+				{
+					System.out.println( String.format( "%-70s %7.1f tiles/s, peak heap %6.1f MB, peak platform threads +%d (%d failed, %d connections)", configuration, result.getTilesPerSecond( ), result.peakHeapBytes / ( 1024d * 1024d ), result.peakPlatformThreads, result.numFailed, server.getNumConnections( ) ) );
+					System.out.println( "    " + result.stages );
+				}
+			}
+		}
+
+		server.stop( );
+		System.exit( 0 );
+	}
+
+	/**
+	 * Loads {@link TileLoaderThroughput#NUM_TILES} (not cached) tiles using a new {@link TileLoader}.
+	 * @param log
+	 * @param urlBuilder
+	 * @param configuration
+	 * @param run - number of the run (each run loads different tiles)
+	 * @return
+	 * @throws InterruptedException
+	 */
+	private static Result loadTiles( Logger log, MapURLBuilder urlBuilder, Configuration configuration, int run ) throws InterruptedException
+	{
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean( );
+		System.gc( );
+
+		// wait until the workers of the previous run have terminated
+		int baseThreads = threadBean.getThreadCount( );
+		for ( int i = 0; i < 40; i++ )
+		{
+			Thread.sleep( 50 );
+			int threads = threadBean.getThreadCount( );
+			if ( threads >= baseThreads )
+				break;
+			baseThreads = threads;
+		}
+		threadBean.resetPeakThreadCount( );
+
+		// sample the used heap while loading
+		final AtomicLong peakHeap = new AtomicLong( 0 );
+		final long baseHeap = usedHeap( );
+		Thread sampler = new Thread( new Runnable( )
+		{
+			@Override
+			public void run( )
+			{
+				while ( !Thread.currentThread( ).isInterrupted( ) )
+				{
+					peakHeap.set( Math.max( peakHeap.get( ), usedHeap( ) - baseHeap ) );
+					try
+					{
+						Thread.sleep( 5 );
+					}
+					catch ( InterruptedException e )
+					{
+						return;
+					}
+				}
+			}
+		} );
+		sampler.start( );
+
+		TileLoader tileLoader = new TileLoader( log, configuration.numWorkers, null, configuration.executionMode );
+		tileLoader.setTileFetcher( configuration.fetcher );
+		tileLoader.setMaxRequestsPerHost( configuration.maxRequestsPerHost );
+		configuration.effectiveMode = tileLoader.getExecutionMode( );
+
+		final CountDownLatch done = new CountDownLatch( NUM_TILES );
+		final AtomicInteger numFailed = new AtomicInteger( 0 );
+		tileLoader.addListener( new TileLoaderListener( )
+		{
+			@Override
+			public void onTileLoadRequestStarted( long tileId, TileNumber tileNumber )
+			{}
+
+			@Override
+			public void onTileLoadRequestFailed( long tileId, TileNumber tileNumber, FailReason reason, String cause )
+			{
+				numFailed.incrementAndGet( );
+				done.countDown( );
+			}
+
+			@Override
+			public void onTileLoadRequestComplete( long tileId, TileNumber tileNumber, Image image )
+			{
+				done.countDown( );
+			}
+		} );
+		tileLoader.start( );
+
+		List<TileRequest> requests = new ArrayList<>( );
+		for ( int i = 0; i < NUM_TILES; i++ )
+		{
+			int column = i % 20;
+			int row = i / 20;
+			requests.add( new TileRequest( log, urlBuilder, Tile.toTileId( column, row ), new TileNumber( 2000.5 + column, 1000.5 + row + run * 100, 12 ) ) );
+		}
+
+		long start = System.nanoTime( );
+		tileLoader.addTileRequestBlock( requests );
+		done.await( 5, TimeUnit.MINUTES );
+		long wall = System.nanoTime( ) - start;
+
+		int peakThreads = threadBean.getPeakThreadCount( ) - baseThreads;
+		String stages = tileLoader.getFetchStatistics( ) + ", " + tileLoader.getDecodeQueueStatistics( ) + ", " + tileLoader.getDecodeStatistics( );
+		sampler.interrupt( );
+		sampler.join( );
+		tileLoader.shutdown( );
+		tileLoader.join( );
+		return new Result( wall, numFailed.get( ), peakHeap.get( ), peakThreads, stages );
+	}
+
+	private static long usedHeap( )
+	{
+		Runtime runtime = Runtime.getRuntime( );
+		return runtime.totalMemory( ) - runtime.freeMemory( );
+	}
+
+	private static class Configuration
+	{
+		private ExecutionMode	executionMode;
+		private ExecutionMode	effectiveMode;
+		private int				numWorkers;
+		private TileFetcher		fetcher;
+		private int				maxRequestsPerHost;
+
+		public Configuration( ExecutionMode executionMode, int numWorkers, TileFetcher fetcher, int maxRequestsPerHost )
+		{
+			this.executionMode = executionMode;
+			this.effectiveMode = executionMode;
+			this.numWorkers = numWorkers;
+			this.fetcher = fetcher;
+			this.maxRequestsPerHost = maxRequestsPerHost;
+		}
+
+		@Override
+		public String toString( )
+		{
+			String mode = this.executionMode.toString( );
+			if ( this.effectiveMode != this.executionMode )
+				mode += " (n/a->" + this.effectiveMode + ")";
+			return mode + ", " + this.numWorkers + " workers, " + this.fetcher.getClass( ).getSimpleName( ) + ( this.maxRequestsPerHost > 0 ? ", " + this.maxRequestsPerHost + "/host" : "" );
+		}
+	}
+
+	private static class Result
+	{
+		private long	wallNs;
+		private int		numFailed;
+		private long	peakHeapBytes;
+		private int		peakPlatformThreads;
+		private String	stages;
+
+		public Result( long wallNs, int numFailed, long peakHeapBytes, int peakPlatformThreads, String stages )
+		{
+			this.stages = stages;
+			this.wallNs = wallNs;
+			this.numFailed = numFailed;
+			this.peakHeapBytes = peakHeapBytes;
+			this.peakPlatformThreads = peakPlatformThreads;
+		}
+
+		public double getTilesPerSecond( )
+		{
+			return ( NUM_TILES * 1e9 ) / this.wallNs;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.examples;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ExecutionException;
+
+import thobe.mapview.kernel.mapprovider.MapType;
+import thobe.mapview.kernel.mapprovider.XYZTileURLBuilder;
+import thobe.mapview.kernel.tilecache.TilePackage;
+import thobe.mapview.kernel.tilecache.TilePackageWriter;
+import thobe.mapview.kernel.tileloader.TileFetcher;
+import thobe.mapview.kernel.tileloader.URLConnectionTileFetcher;
+import thobe.mapview.kernel.tilesystem.GeoCoord;
+import thobe.mapview.kernel.tilesystem.MercatorProjection;
+import thobe.mapview.kernel.tilesystem.TileNumber;
+
+/**
+ * Tool building a {@link TilePackage} for offline use: Loads all tiles covering a bounding-box for a range of zoom-levels from a
+ * tile-server (or a local tile-directory) and packs them into a single file.
+ *
+ * <pre>
+ * TilePackageBuilder &lt;package-file&gt; &lt;url-template|directory&gt; &lt;lat1&gt; &lt;lon1&gt; &lt;lat2&gt; &lt;lon2&gt; &lt;min-zoom&gt; &lt;max-zoom&gt;
+ * </pre>
+ *
+ * The url-template contains the placeholders {z}, {x} and {y} (see {@link XYZTileURLBuilder}). Please respect the usage-policy of the
+ * tile-server when loading large areas.
+ * @author Thomas Obenaus
+ * @source TilePackageBuilder.java
+ * @date Jan 11, 2014
+ */
+public class TilePackageBuilder
+{
+	public static void main( String[] args ) throws IOException, InterruptedException
+	{
+		if ( args.length != 8 )
+		{
+			System.err.println( "Usage: TilePackageBuilder <package-file> <url-template|directory> <lat1> <lon1> <lat2> <lon2> <min-zoom> <max-zoom>" );
+			System.exit( 1 );
+		}
+
+		File packageFile = new File( args[0] );
+		File directory = new File( args[1] );
+		XYZTileURLBuilder urlBuilder = directory.isDirectory( ) ? XYZTileURLBuilder.forDirectory( directory ) : new XYZTileURLBuilder( args[1] );
+		double lat1 = Double.parseDouble( args[2] );
+		double lon1 = Double.parseDouble( args[3] );
+		double lat2 = Double.parseDouble( args[4] );
+		double lon2 = Double.parseDouble( args[5] );
+		int minZoom = Integer.parseInt( args[6] );
+		int maxZoom = Integer.parseInt( args[7] );
+
+		GeoCoord topLeft = new GeoCoord( Math.max( lat1, lat2 ), Math.min( lon1, lon2 ) );
+		GeoCoord bottomRight = new GeoCoord( Math.min( lat1, lat2 ), Math.max( lon1, lon2 ) );
+
+		TileFetcher fetcher = new URLConnectionTileFetcher( );
+		TilePackageWriter writer = new TilePackageWriter( packageFile );
+		int numFailed = 0;
+		long start = System.currentTimeMillis( );
+		for ( int zoom = minZoom; zoom <= maxZoom; zoom++ )
+		{
+			// the tiles containing the corners of the bounding-box (clipped to the map)
+			long maxIndex = ( 1L << zoom ) - 1;
+			TileNumber tileNumber0 = MercatorProjection.geoCoordToTileNumber( topLeft, zoom );
+			TileNumber tileNumber1 = MercatorProjection.geoCoordToTileNumber( bottomRight, zoom );
+			long x0 = clip( tileNumber0.getXInt( ), maxIndex );
+			long y0 = clip( tileNumber0.getYInt( ), maxIndex );
+			long x1 = clip( tileNumber1.getXInt( ), maxIndex );
+			long y1 = clip( tileNumber1.getYInt( ), maxIndex );
+			System.out.println( "Zoom-level " + zoom + ": " + ( ( x1 - x0 + 1 ) * ( y1 - y0 + 1 ) ) + " tiles [" + x0 + "," + y0 + "]-[" + x1 + "," + y1 + "]" );
+
+			for ( long x = x0; x <= x1; x++ )
+			{
+				for ( long y = y0; y <= y1; y++ )
+				{
+					URL url = urlBuilder.buildTileURL( zoom, x, y, MapType.ROADMAP );
+					try
+					{
+						writer.add( zoom, x, y, fetcher.fetch( url ).get( ) );
+					}
+					catch ( ExecutionException e )
+					{
+						System.err.println( "Unable to load " + url + ": " + e.getCause( ) );
+						numFailed++;
+					}
+				}
+			}
+		}
+		writer.close( );
+
+		TilePackage tilePackage = new TilePackage( packageFile );
+		System.out.println( "Created " + tilePackage + " (" + packageFile.length( ) + " bytes, " + numFailed + " tiles failed) in " + ( System.currentTimeMillis( ) - start ) + " ms" );
+		tilePackage.close( );
+	}
+
+	private static long clip( long index, long maxIndex )
+	{
+		return Math.max( 0, Math.min( maxIndex, index ) );
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.examples;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import thobe.mapview.kernel.tileloader.CompatibleImageConverter;
+import thobe.mapview.kernel.tilesystem.Tile;
+
+/**
+ * Measures the time needed to draw a frame of 64 tiles (8x8), comparing the images as returned by ImageIO with images converted by the
+ * {@link CompatibleImageConverter}. The frames are drawn into a {@link VolatileImage} (or into a {@link BufferedImage} in a headless
+ * environment).
+ * @author Thomas Obenaus
+ * @source TileRenderingFrameTime.java
+ * @date Jan 6, 2014
+ */
+public class TileRenderingFrameTime
+{
+	private static final int	GRID_SIZE		= 8;
+	private static final int	FRAME_SIZE		= GRID_SIZE * Tile.TILE_SIZE_PX;
+	private static final int	WARMUP_FRAMES	= 30;
+	private static final int	FRAMES			= 150;
+
+	public static void main( String[] args ) throws IOException
+	{
+		GraphicsConfiguration gc = CompatibleImageConverter.getDefaultConfiguration( );
+		CompatibleImageConverter converter = new CompatibleImageConverter( gc );
+
+		VolatileImage volatileTarget = ( gc != null ) ? gc.createCompatibleVolatileImage( FRAME_SIZE, FRAME_SIZE ) : null;
+		BufferedImage bufferedTarget = ( gc != null ) ? null : new BufferedImage( FRAME_SIZE, FRAME_SIZE, BufferedImage.TYPE_INT_RGB );
+		System.out.println( String.format( "Drawing %d tiles per frame into a %s (%dx%d)", GRID_SIZE * GRID_SIZE, ( volatileTarget != null ) ? "VolatileImage" : "BufferedImage (headless)", FRAME_SIZE, FRAME_SIZE ) );
+
+		String[] formats = new String[]
+		{ "indexed", "rgb" };
+		for ( String format : formats )
+		{
+			byte[] png = createTilePNG( format.equals( "indexed" ) ? BufferedImage.TYPE_BYTE_INDEXED : BufferedImage.TYPE_INT_RGB );
+
+			// each tile gets its own image (as delivered by the TileLoader)
+			BufferedImage[] decoded = new BufferedImage[GRID_SIZE * GRID_SIZE];
+			BufferedImage[] converted = new BufferedImage[GRID_SIZE * GRID_SIZE];
+			for ( int i = 0; i < decoded.length; i++ )
+			{
+				decoded[i] = ImageIO.read( new ByteArrayInputStream( png ) );
+				converted[i] = converter.convert( ImageIO.read( new ByteArrayInputStream( png ) ) );
+			}
+
+			double[] scales = new double[]
+			{ 1.0, 0.75 };
+			for ( double scale : scales )
+			{
+				double rawMs = measure( volatileTarget, bufferedTarget, decoded, scale );
+				double convertedMs = measure( volatileTarget, bufferedTarget, converted, scale );
+				System.out.println( String.format( "%-8s (type %2d) scale %.2f: as decoded %7.2f ms/frame, converted (type %2d) %7.2f ms/frame", format, decoded[0].getType( ), scale, rawMs, converted[0].getType( ), convertedMs ) );
+			}
+		}
+	}
+
+	/**
+	 * Returns the mean time (in ms) needed to draw one frame showing the given tiles.
+	 * @param volatileTarget
+	 * @param bufferedTarget
+	 * @param tiles
+	 * @param scale - scale of the camera
+	 * @return
+	 */
+	private static double measure( VolatileImage volatileTarget, BufferedImage bufferedTarget, Image[] tiles, double scale )
+	{
+		long total = 0;
+		for ( int frame = 0; frame < WARMUP_FRAMES + FRAMES; frame++ )
+		{
+			long start = System.nanoTime( );
+			Graphics2D gr = ( volatileTarget != null ) ? volatileTarget.createGraphics( ) : bufferedTarget.createGraphics( );
+			gr.clearRect( 0, 0, FRAME_SIZE, FRAME_SIZE );
+
+			// camera like MapImage.paint(), slightly moving from frame to frame
+			AffineTransform camera = new AffineTransform( );
+			camera.translate( frame % 7, frame % 5 );
+			camera.scale( scale, scale );
+			gr.transform( camera );
+			for ( int i = 0; i < tiles.length; i++ )
+				gr.drawImage( tiles[i], ( i % GRID_SIZE ) * Tile.TILE_SIZE_PX, ( i / GRID_SIZE ) * Tile.TILE_SIZE_PX, null );
+			gr.dispose( );
+
+			// wait until the frame is really drawn
+			if ( volatileTarget != null )
+				volatileTarget.getSnapshot( ).getRGB( 0, 0 );
+
+			if ( frame >= WARMUP_FRAMES )
+				total += System.nanoTime( ) - start;
+		}
+		return ( total / 1e6 ) / FRAMES;
+	}
+
+	/**
+	 * Creates the PNG of a tile with the given image-type (e.g. {@link BufferedImage#TYPE_BYTE_INDEXED} as used by many tile-servers).
+	 * @param imageType
+	 * @return
+	 * @throws IOException
+	 */
+	private static byte[] createTilePNG( int imageType ) throws IOException
+	{
+		BufferedImage img = new BufferedImage( Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX, imageType );
+		Graphics2D gr = img.createGraphics( );
+		gr.setColor( new Color( 242, 239, 233 ) );
+		gr.fillRect( 0, 0, Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX );
+		for ( int i = 0; i < Tile.TILE_SIZE_PX; i += 16 )
+		{
+			gr.setColor( new Color( 170 + ( i % 64 ), 190, 210 ) );
+			gr.drawLine( 0, i, Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX - i );
+			gr.drawLine( i, 0, Tile.TILE_SIZE_PX - i, Tile.TILE_SIZE_PX );
+		}
+		gr.dispose( );
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		ImageIO.write( img, "png", out );
+		return out.toByteArray( );
+	}
+}
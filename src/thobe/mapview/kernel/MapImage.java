@@ -9,16 +9,16 @@
  */
 package thobe.mapview.kernel;
 
-import static java.lang.Math.max;
-import static java.lang.Math.min;
-
 import java.awt.BasicStroke;
 import java.awt.Canvas;
 import java.awt.Color;
+import java.awt.EventQueue;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
 import java.awt.event.MouseAdapter;
@@ -32,23 +32,33 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.Point2D.Double;
 import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.SynchronousQueue;
 import java.util.logging.Logger;
 
 import thobe.mapview.kernel.mapprovider.GoogleMapURLBuilder;
 import thobe.mapview.kernel.mapprovider.MapProvider;
 import thobe.mapview.kernel.mapprovider.MapURLBuilder;
+import thobe.mapview.kernel.mapprovider.Marker;
 import thobe.mapview.kernel.mapprovider.OSMStaticMapLite;
+import thobe.mapview.kernel.mapprovider.XYZTileURLBuilder;
+import thobe.mapview.kernel.tilecache.DiskTileStore;
+import thobe.mapview.kernel.tilecache.TileImageCache;
+import thobe.mapview.kernel.tilecache.TilePackage;
+import thobe.mapview.kernel.tileloader.PrefetchStatistics;
+import thobe.mapview.kernel.tileloader.TileFetcher;
 import thobe.mapview.kernel.tileloader.TileLoader;
 import thobe.mapview.kernel.tileloader.TileLoaderListener;
 import thobe.mapview.kernel.tileloader.TileRequest;
 import thobe.mapview.kernel.tilesystem.GeoCoord;
 import thobe.mapview.kernel.tilesystem.MercatorProjection;
 import thobe.mapview.kernel.tilesystem.Tile;
+import thobe.mapview.kernel.tilesystem.TileMap;
 import thobe.mapview.kernel.tilesystem.TileNumber;
 
 /**
@@ -73,7 +83,12 @@ public class MapImage extends Canvas implements TileLoaderListener
 	public static final int				RENDER_QUALITY_LOW					= 0;
 	public static final int				RENDER_QUALITY_HIGH					= 1;
 	private BufferStrategy				strategy							= null;
-	private int							renderQuality						= RENDER_QUALITY_HIGH;
+	private volatile int				renderQuality						= RENDER_QUALITY_HIGH;
+
+	/**
+	 * Max. number of dirty regions redrawn one by one, the whole map is redrawn if there are more.
+	 */
+	private static final int			MAX_DIRTY_REGIONS					= 16;
 
 	/**
 	 * Distance (in pixel) to the inner view-port extension (measured from the view-port).
@@ -90,11 +105,70 @@ public class MapImage extends Canvas implements TileLoaderListener
 	 */
 	private static final int			DEBUG_BORDER_SIZE					= 80;
 
+	/**
+	 * Max. number of images prefetched per request-block (ahead of the moving camera and for the adjacent zoom-level each).
+	 */
+	private static final int			MAX_PREFETCH_TILES					= 32;
+
+	/**
+	 * Radius (in pixel) of a {@link Marker} of the {@link MarkerLayer}.
+	 */
+	private static final int			MARKER_RADIUS						= 4;
+
+	/**
+	 * The labels of the {@link Marker}s are drawn only if at most this number of {@link Marker}s is visible.
+	 */
+	private static final int			MAX_LABELED_MARKERS					= 256;
+	private static final Font			MARKER_FONT							= new Font( "Arial", Font.BOLD, 11 );
+
+	/**
+	 * Min./max. radius (in pixel) of the glyph of a cluster of {@link Marker}s, the radius grows with the logarithm of the number of
+	 * {@link Marker}s.
+	 */
+	private static final int			CLUSTER_MIN_RADIUS					= 8;
+	private static final int			CLUSTER_MAX_RADIUS					= 28;
+	private static final Color			CLUSTER_COLOR_SMALL					= new Color( 110, 204, 57, 200 );
+	private static final Color			CLUSTER_COLOR_MEDIUM				= new Color( 240, 194, 12, 200 );
+	private static final Color			CLUSTER_COLOR_LARGE					= new Color( 241, 128, 23, 200 );
+
 	/**
 	 * Map of {@link Tile}s <id of the {@link Tile},{@link Tile}>. The {@link Tile}s image-coordinates (x,y)
 	 * are screen coordinates.
 	 */
-	private Map<String, Tile>			viewPortTiles;
+	private TileMap						viewPortTiles;
+
+	/**
+	 * Immutable snapshot of the {@link Tile}s to be drawn. Replaced (copy-on-write) whenever the tile-grid or the image of a {@link Tile}
+	 * changes, read by the paint-method without locking.
+	 */
+	private volatile TileRenderRecord[]	renderSnapshot;
+
+	/**
+	 * Images of replaced {@link Tile}s (e.g. of the previous zoom-level), drawn in place of {@link Tile}s whose image is not loaded yet.
+	 */
+	private TileFallback				tileFallback;
+
+	/**
+	 * Composited image of the whole tile-grid (in the coordinate-system of the {@link Tile}s, not transformed by the camera). It is
+	 * rebuilt only if the tile-grid changes, the regions of newly loaded {@link Tile}s are redrawn. Each frame is a single drawImage of this
+	 * layer using the camera, so panning/zooming the camera does not redraw the {@link Tile}s.
+	 */
+	private Image						mapLayer;
+
+	/**
+	 * Position of the upper-left corner of the {@link MapImage#mapLayer} (coordinate-system of the {@link Tile}s).
+	 */
+	private Rectangle					mapLayerBounds;
+
+	/**
+	 * Bounds (see {@link Tile#getBounds()}) of the {@link Tile}s whose image has changed since the last frame.
+	 */
+	private List<Rectangle2D>			dirtyRegions;
+
+	/**
+	 * True if the whole layer has to be rebuilt with the next frame (e.g. the tile-grid has changed).
+	 */
+	private volatile boolean			mapLayerInvalid;
 
 	/**
 	 * The provider used to get the {@link Tile}s/ images.
@@ -127,14 +201,34 @@ public class MapImage extends Canvas implements TileLoaderListener
 	private TileLoader					tileLoader;
 
 	/**
-	 * A flag used for synchronization between the main- and the repainting-thread.
+	 * Predicts the movement of the camera (dragging) and the direction of zooming (mouse-wheel) to prefetch the images needed soon.
+	 */
+	private Prefetcher					prefetcher;
+
+	/**
+	 * Merges all requests for repainting (camera-changes, loaded tiles) into at most one frame per tick.
 	 */
-	private SynchronousQueue<Boolean>	repaintFlag;
+	private RenderScheduler				renderScheduler;
 
 	/**
-	 * The repaint-thread.
+	 * The {@link Marker}s drawn on top of the map.
 	 */
-	private Repainter					repaintThread;
+	private MarkerLayer					markerLayer;
+
+	/**
+	 * The {@link Marker}s within the canvas (reused for each frame, accessed by the render-thread only).
+	 */
+	private MarkerLayer.Selection		visibleMarkers;
+
+	/**
+	 * Clusters the {@link Marker}s for the zoom-levels up to {@link MarkerClusterIndex#MAX_ZOOM}.
+	 */
+	private MarkerClusterer				markerClusterer;
+
+	/**
+	 * The clusters within the canvas (reused for each frame, accessed by the render-thread only).
+	 */
+	private MarkerClusterIndex.Clusters	visibleClusters;
 
 	/**
 	 * For storing the initial state of the camera.
@@ -197,27 +291,75 @@ public class MapImage extends Canvas implements TileLoaderListener
 	 * @param logger
 	 */
 	public MapImage( int viewPortWidth, int viewPortHeight, GeoCoord mapCenter, int zoomLevel, MapProvider mapProvider, Logger logger )
+	{
+		this( viewPortWidth, viewPortHeight, mapCenter, zoomLevel, createURLBuilder( mapProvider ), logger );
+	}
+
+	/**
+	 * Ctor
+	 * @param viewPortWidth
+	 * @param viewPortHeight
+	 * @param mapCenter
+	 * @param zoomLevel
+	 * @param urlBuilder - creates the urls of the images (e.g. a {@link XYZTileURLBuilder} for a specific tile-server)
+	 * @param logger
+	 */
+	public MapImage( int viewPortWidth, int viewPortHeight, GeoCoord mapCenter, int zoomLevel, MapURLBuilder urlBuilder, Logger logger )
 	{
 		DBG = DebugManager.isMapImageDebug( );
 		DRAW_VIEWPORTS = DebugManager.isMapImageDrawViewPorts( );
 		this.cameraState = CameraState.NORMAL;
 		this.camera = new AffineTransform( );
 		this.mapCenterTile = null;
-		this.repaintFlag = new SynchronousQueue<>( );
-		this.repaintThread = new Repainter( );
-		this.repaintThread.start( );
+		this.renderScheduler = new RenderScheduler( logger, "MapImage-Renderer", new Runnable( )
+		{
+			@Override
+			public void run( )
+			{
+				renderFrame( );
+			}
+		}, RenderScheduler.DEFAULT_FRAME_RATE );
+		this.renderScheduler.start( );
 
 		this.log = logger;
 		this.tileLoader = new TileLoader( this.log, 10 );
 		this.tileLoader.addListener( this );
 		this.tileLoader.start( );
 
+		this.urlBuilder = urlBuilder;
+		this.mapProvider = urlBuilder.getProvider( );
 		this.tileNumberOfMapCenter = MercatorProjection.geoCoordToTileNumber( mapCenter, zoomLevel );
+		this.alignCamera( this.camera, this.tileNumberOfMapCenter );
 		this.zoomLevel = zoomLevel;
-		this.mapProvider = mapProvider;
-		this.viewPortTiles = new HashMap<>( );
+		this.viewPortTiles = new TileMap( );
+		this.renderSnapshot = new TileRenderRecord[0];
+		this.tileFallback = new TileFallback( );
+		this.mapLayer = null;
+		this.mapLayerBounds = new Rectangle( );
+		this.dirtyRegions = new ArrayList<>( );
+		this.mapLayerInvalid = true;
 		this.tileGridBounds = new Rectangle2D.Double( 0, 0, 0, 0 );
-		this.updateURLBuilder( );
+		this.prefetcher = new Prefetcher( );
+		this.visibleMarkers = new MarkerLayer.Selection( );
+		this.markerLayer = new MarkerLayer( );
+		this.markerLayer.addListener( new MarkerLayerListener( )
+		{
+			@Override
+			public void onMarkersChanged( MarkerLayer markerLayer )
+			{
+				renderScheduler.requestFrame( );
+			}
+		} );
+		this.visibleClusters = new MarkerClusterIndex.Clusters( );
+		this.markerClusterer = new MarkerClusterer( logger, this.markerLayer, new Runnable( )
+		{
+			@Override
+			public void run( )
+			{
+				renderScheduler.requestFrame( );
+			}
+		} );
+		this.markerClusterer.start( );
 
 		this.setViewPort( viewPortWidth, viewPortHeight );
 
@@ -248,12 +390,13 @@ public class MapImage extends Canvas implements TileLoaderListener
 					tra.setToIdentity( );
 					tra.translate( e.getX( ), e.getY( ) );
 					camera.preConcatenate( tra );
+					prefetcher.wheelMoved( System.nanoTime( ), e.getWheelRotation( ), e.getPoint( ) );
 
 					// Update the tiles and repaint all.
 					updateZoomLevel( e.getPoint( ) );
 					updateTileGrid( );
 					createTileRequests( );
-					repaint( );
+					renderScheduler.requestFrame( );
 				}// if ( e.getScrollType( ) == MouseWheelEvent.WHEEL_UNIT_SCROLL ).
 			}
 		} );
@@ -306,6 +449,7 @@ public class MapImage extends Canvas implements TileLoaderListener
 					if ( ( cameraState == CameraState.PAN ) || ( cameraState == CameraState.ZOOM ) )
 					{
 						cameraState = CameraState.NORMAL;
+						prefetcher.stopped( );
 					}
 				}// if ( e.getButton( ) == MouseEvent.BUTTON2 || e.getButton( ) == MouseEvent.BUTTON3 ).
 
@@ -314,7 +458,7 @@ public class MapImage extends Canvas implements TileLoaderListener
 				{
 					setRenderQuality( RENDER_QUALITY_HIGH );
 				}// if ( cameraState == CameraState.NORMAL ).
-				repaint( );
+				renderScheduler.requestFrame( );
 			}
 		} );
 
@@ -331,11 +475,12 @@ public class MapImage extends Canvas implements TileLoaderListener
 
 					camera = new AffineTransform( saved_cam );
 					camera.translate( newX, newY );
+					prefetcher.dragged( System.nanoTime( ), camera.getTranslateX( ), camera.getTranslateY( ) );
 
 					// update view/ tiles
 					updateTileGrid( );
 					createTileRequests( );
-					repaint( );
+					renderScheduler.requestFrame( );
 				}// if ( cameraState == CameraState.PAN ).
 
 				// In zoom mode, zoom in if mouse moved up and zoom out if mouse moved down with pivot
@@ -372,7 +517,7 @@ public class MapImage extends Canvas implements TileLoaderListener
 					updateZoomLevel( e.getPoint( ) );
 					updateTileGrid( );
 					createTileRequests( );
-					repaint( );
+					renderScheduler.requestFrame( );
 				}
 			}
 
@@ -439,15 +584,14 @@ public class MapImage extends Canvas implements TileLoaderListener
 		// (--> the user points onto a view port coordinate) but internally the tiles are related to screen-coordinates.
 		Point2D screenPos = this.viewPortPosToScreenPos( position );
 
-		// find the top-left tile of the tile-grid
-		Tile topleft = this.getTopLeftTile( );
-		if ( topleft == null )
+		// the top-left corner of the tile-grid
+		if ( this.viewPortTiles.isEmpty( ) )
 			return null;
 
-		int x0 = topleft.getX( );
-		int y0 = topleft.getY( );
-		int column0 = topleft.getColumn( );
-		int row0 = topleft.getRow( );
+		int x0 = this.viewPortTiles.getMinX( );
+		int y0 = this.viewPortTiles.getMinY( );
+		int column0 = this.viewPortTiles.getMinColumn( );
+		int row0 = this.viewPortTiles.getMinRow( );
 
 		// compute the difference/distance between the position and the upper-left corner of the top-left tile.
 		double dx = screenPos.getX( ) - x0;
@@ -458,7 +602,7 @@ public class MapImage extends Canvas implements TileLoaderListener
 		int dRow = ( int ) ( dy / Tile.TILE_SIZE_PX );
 
 		// obtain the tile under the cursor using the computed column/ row
-		Tile tileUnderCursor = this.viewPortTiles.get( Tile.colRowToTileId( column0 + dCol, row0 + dRow ) );
+		Tile tileUnderCursor = this.viewPortTiles.get( column0 + dCol, row0 + dRow );
 		if ( DBG )
 			log.finest( "P0(" + x0 + "," + y0 + ") - " + "P(" + screenPos.getX( ) + "," + screenPos.getY( ) + ") --> dXY(" + dx + "," + dy + ") --> dCR(" + dCol + "," + dRow + ") --> T" + ( ( tileUnderCursor != null ) ? tileUnderCursor : "null" ) );
 
@@ -484,21 +628,154 @@ public class MapImage extends Canvas implements TileLoaderListener
 		return geoCoord;
 	}
 
-	private void updateURLBuilder( )
+	/**
+	 * Stops the threads of the map (rendering, clustering of the markers and loading of the tiles), the map can't be used afterwards. A
+	 * {@link DiskTileStore} set via {@link MapImage#setTileStore(DiskTileStore)} is not closed.
+	 */
+	public void dispose( )
+	{
+		this.tileLoader.removeListener( this );
+		this.tileLoader.shutdown( );
+		this.markerClusterer.shutdown( );
+		this.renderScheduler.shutdown( );
+	}
+
+	/**
+	 * Returns the in-memory cache of decoded tile-images (e.g. to obtain the hit/miss/eviction counters).
+	 * @return
+	 */
+	public TileImageCache getTileImageCache( )
+	{
+		return this.tileLoader.getImageCache( );
+	}
+
+	/**
+	 * Sets the persistent store for the raw bytes of the tile-images. Tiles available in the store will not be downloaded again.
+	 * @param tileStore - the store (null disables the persistent store)
+	 */
+	public void setTileStore( DiskTileStore tileStore )
+	{
+		this.tileLoader.setTileStore( tileStore );
+	}
+
+	/**
+	 * Sets the offline package of pre-rendered tiles (see {@link TileLoader#setTilePackage(TilePackage)}).
+	 * @param tilePackage - the package (null disables the package)
+	 */
+	public void setTilePackage( TilePackage tilePackage )
+	{
+		this.tileLoader.setTilePackage( tilePackage );
+	}
+
+	/**
+	 * Enables/disables the offline-mode, tile-images that are not available locally are not downloaded (see
+	 * {@link TileLoader#setOffline(boolean)}).
+	 * @param offline
+	 */
+	public void setOffline( boolean offline )
 	{
-		switch ( this.mapProvider )
+		this.tileLoader.setOffline( offline );
+	}
+
+	/**
+	 * Returns the scheduler rendering the frames, e.g. to change the frame-rate (see {@link RenderScheduler#setFrameRate(int)}) or to
+	 * obtain the number of merged and dropped frames.
+	 * @return
+	 */
+	public RenderScheduler getRenderScheduler( )
+	{
+		return renderScheduler;
+	}
+
+	/**
+	 * Returns the layer of {@link Marker}s drawn on top of the map (the map is redrawn whenever the layer is modified).
+	 * @return
+	 */
+	public MarkerLayer getMarkerLayer( )
+	{
+		return markerLayer;
+	}
+
+	/**
+	 * Sets the max. number of images prefetched per second (see {@link TileLoader#setPrefetchBudget(int)}).
+	 * @param prefetchBudget - the budget (0 disables prefetching)
+	 */
+	public void setPrefetchBudget( int prefetchBudget )
+	{
+		this.tileLoader.setPrefetchBudget( prefetchBudget );
+	}
+
+	/**
+	 * Sets the time (in ms) the movement of the map is predicted ahead to prefetch the images of the tiles the map is moved to.
+	 * @param lookAhead
+	 */
+	public void setPrefetchLookAhead( int lookAhead )
+	{
+		this.prefetcher.setLookAhead( lookAhead );
+	}
+
+	/**
+	 * Returns the statistics of the prefetching (e.g. the fraction of the displayed tiles whose image was already prefetched).
+	 * @return
+	 */
+	public PrefetchStatistics getPrefetchStatistics( )
+	{
+		return this.tileLoader.getPrefetchStatistics( );
+	}
+
+	/**
+	 * Sets the backend used to download the tile-images (see {@link TileLoader#setTileFetcher(TileFetcher)}).
+	 * @param tileFetcher
+	 */
+	public void setTileFetcher( TileFetcher tileFetcher )
+	{
+		this.tileLoader.setTileFetcher( tileFetcher );
+	}
+
+	private static MapURLBuilder createURLBuilder( MapProvider mapProvider )
+	{
+		switch ( mapProvider )
 		{
 		case GOOGLE:
-			this.urlBuilder = new GoogleMapURLBuilder( );
-			break;
+			return new GoogleMapURLBuilder( );
+		case XYZ:
+			return new XYZTileURLBuilder( );
 		case BING:
 		case OSMStaticMapLite:
 		default:
-			this.urlBuilder = new OSMStaticMapLite( );
-			break;
+			return new OSMStaticMapLite( );
 		}
 	}
 
+	/**
+	 * Returns the {@link TileNumber} of the tile containing the given map-center. If the images are addressed by tiles (see
+	 * {@link MapURLBuilder#isTileAddressed()}) the tile-grid has to be aligned to the tiles of the server, so the center of the server-tile
+	 * containing the map-center is used (the offset is compensated by {@link MapImage#alignCamera(AffineTransform, TileNumber)}).
+	 * @param tileNumberOfMapCenter
+	 * @return
+	 */
+	private TileNumber getTileNumberOfCenterTile( TileNumber tileNumberOfMapCenter )
+	{
+		if ( !this.urlBuilder.isTileAddressed( ) )
+			return tileNumberOfMapCenter;
+		return new TileNumber( tileNumberOfMapCenter.getXIndex( ) + 0.5, tileNumberOfMapCenter.getYIndex( ) + 0.5, tileNumberOfMapCenter.getZoom( ) );
+	}
+
+	/**
+	 * Moves the given camera by the offset between the given map-center and the center of the tile containing it (see
+	 * {@link MapImage#getTileNumberOfCenterTile(TileNumber)}). This way the exact map-center stays at its position although the
+	 * tile-grid is aligned to the tiles of the server.
+	 * @param cam
+	 * @param tileNumberOfMapCenter
+	 */
+	private void alignCamera( AffineTransform cam, TileNumber tileNumberOfMapCenter )
+	{
+		TileNumber tileNumberOfCenterTile = this.getTileNumberOfCenterTile( tileNumberOfMapCenter );
+		double dx = ( tileNumberOfCenterTile.getX( ) - tileNumberOfMapCenter.getX( ) ) * Tile.TILE_SIZE_PX * cam.getScaleX( );
+		double dy = ( tileNumberOfCenterTile.getY( ) - tileNumberOfMapCenter.getY( ) ) * Tile.TILE_SIZE_PX * cam.getScaleY( );
+		cam.preConcatenate( AffineTransform.getTranslateInstance( dx, dy ) );
+	}
+
 	public void setViewPort( int width, int height )
 	{
 		this.viewPort = new Rectangle2D.Double( this.getBorderSize( ), this.getBorderSize( ), width, height );
@@ -527,29 +804,6 @@ public class MapImage extends Canvas implements TileLoaderListener
 		this.createTileRequests( );
 	}
 
-	/**
-	 * Returns the top-left {@link Tile} of the tile-grid.
-	 * @return
-	 */
-	private Tile getTopLeftTile( )
-	{
-		int minColumn = Integer.MAX_VALUE;
-		int minRow = Integer.MAX_VALUE;
-		Tile tile = null;
-		for ( Map.Entry<String, Tile> entry : this.viewPortTiles.entrySet( ) )
-		{
-			Tile tmpTile = entry.getValue( );
-			if ( ( tmpTile.getColumn( ) <= minColumn ) && ( tmpTile.getRow( ) <= minRow ) )
-			{
-				minColumn = tmpTile.getColumn( );
-				minRow = tmpTile.getRow( );
-				tile = tmpTile;
-			}// if ( ( tmpTile.getColumn( ) <= minColumn ) && ( tmpTile.getRow( ) <= minRow ) ).
-		}// for ( Map.Entry<String, Tile> entry : this.viewPortTiles.entrySet( ) ).
-
-		return tile;
-	}
-
 	/**
 	 * Transforms the given {@link Rectangle2D} from the current camera coordinate-system into the coordinate-system of the given
 	 * {@link AffineTransform}.
@@ -707,14 +961,15 @@ public class MapImage extends Canvas implements TileLoaderListener
 		// Invalidate all view-port tiles in case we have a new zoom-level.
 		if ( bZoomLevelModified )
 		{
-			for ( Map.Entry<String, Tile> entry : this.viewPortTiles.entrySet( ) )
+			for ( Tile tile : this.viewPortTiles )
 			{
-				entry.getValue( ).setValid( false );
+				tile.setValid( false );
 			}
 
 			// compute the new map-center according to the GeoCoord under current mouse-position.
 			this.tileNumberOfMapCenter = MercatorProjection.geoCoordToTileNumber( gcUnderCursor, zoomLevel );
 			this.mapCenterTile = tileUnderCursor;
+			this.alignCamera( this.camera, this.tileNumberOfMapCenter );
 
 			dbgInfo += " -->scaleFactor=" + this.camera.getScaleX( ) + ", zoomLevel=" + this.zoomLevel + ", tileNumberOfMapCenter=" + this.tileNumberOfMapCenter + ", gcOfMapCenter=" + this.tileNumberOfMapCenter.getCenter( ).getFormatted( ) + ", mapCenterTile=" + this.mapCenterTile;
 
@@ -729,132 +984,155 @@ public class MapImage extends Canvas implements TileLoaderListener
 	 */
 	private void updateTileGrid( )
 	{
-		// update the bounds of visible tiles
-		this.updateTileGridBounds( );
-
-		// compute how many rows/columns are needed to cover the inner extended view-port
-		// find missing rows on the top and columns on the left
-		int missingColumnsLeft = computeMissingGridElements( GridElement.COLUMN, GridPosition.TOP_LEFT );
-		int missingRowsTop = computeMissingGridElements( GridElement.ROW, GridPosition.TOP_LEFT );
-
-		// compute how many rows/columns are needed to cover the inner extended view-port
-		// find missing rows on the bottom and columns on the right
-		int missingColumnsRight = computeMissingGridElements( GridElement.COLUMN, GridPosition.BOTTOM_RIGHT );
-		int missingRowsBottom = computeMissingGridElements( GridElement.ROW, GridPosition.BOTTOM_RIGHT );
-
-		// compute the top-left column/row [col0,row0]
-		int column0 = 0;
-		int row0 = 0;
-		Tile topLeft = this.getTopLeftTile( );
-		if ( topLeft != null )
+		// the loader-thread reads the tiles concurrently (see publishRenderSnapshot())
+		synchronized ( this.viewPortTiles )
 		{
-			column0 = topLeft.getColumn( ) - missingColumnsLeft;
-			row0 = topLeft.getRow( ) - missingRowsTop;
-		}// if ( topLeft != null ).
+			// update the bounds of visible tiles
+			this.updateTileGridBounds( );
+
+			// compute how many rows/columns are needed to cover the inner extended view-port
+			// find missing rows on the top and columns on the left
+			int missingColumnsLeft = computeMissingGridElements( GridElement.COLUMN, GridPosition.TOP_LEFT );
+			int missingRowsTop = computeMissingGridElements( GridElement.ROW, GridPosition.TOP_LEFT );
+
+			// compute how many rows/columns are needed to cover the inner extended view-port
+			// find missing rows on the bottom and columns on the right
+			int missingColumnsRight = computeMissingGridElements( GridElement.COLUMN, GridPosition.BOTTOM_RIGHT );
+			int missingRowsBottom = computeMissingGridElements( GridElement.ROW, GridPosition.BOTTOM_RIGHT );
+
+			// compute the top-left column/row [col0,row0]
+			int column0 = 0;
+			int row0 = 0;
+			if ( !this.viewPortTiles.isEmpty( ) )
+			{
+				column0 = this.viewPortTiles.getMinColumn( ) - missingColumnsLeft;
+				row0 = this.viewPortTiles.getMinRow( ) - missingRowsTop;
+			}// if ( !this.viewPortTiles.isEmpty( ) ).
 
-		// compute the top-left corner P(x0,y0)
-		int x0 = ( int ) ( column0 * Tile.TILE_SIZE_PX + this.outerExtViewPort.getX( ) );
-		int y0 = ( int ) ( row0 * Tile.TILE_SIZE_PX + this.outerExtViewPort.getY( ) );
+			// compute the top-left corner P(x0,y0)
+			int x0 = ( int ) ( column0 * Tile.TILE_SIZE_PX + this.outerExtViewPort.getX( ) );
+			int y0 = ( int ) ( row0 * Tile.TILE_SIZE_PX + this.outerExtViewPort.getY( ) );
 
-		// compute how many columns/rows are visible
-		int numberOfVisibleColumns = missingColumnsLeft + this.getNumTileColumns( ) + missingColumnsRight;
-		int numberOfVisibleRows = missingRowsTop + this.getNumTileRows( ) + missingRowsBottom;
+			// compute how many columns/rows are visible
+			int numberOfVisibleColumns = missingColumnsLeft + this.getNumTileColumns( ) + missingColumnsRight;
+			int numberOfVisibleRows = missingRowsTop + this.getNumTileRows( ) + missingRowsBottom;
 
-		// compute the index of the last column/ row
-		int idxOfLastColumn = ( numberOfVisibleColumns - 1 ) + column0;
-		int idxOfLastRow = ( numberOfVisibleRows - 1 ) + row0;
+			// compute the index of the last column/ row
+			int idxOfLastColumn = ( numberOfVisibleColumns - 1 ) + column0;
+			int idxOfLastRow = ( numberOfVisibleRows - 1 ) + row0;
 
-		Point2D centerOfViewPort = new Point2D.Double( this.viewPort.getCenterX( ), this.viewPort.getCenterY( ) );
+			Point2D centerOfViewPort = new Point2D.Double( this.viewPort.getCenterX( ), this.viewPort.getCenterY( ) );
 
-		// compute column and row of the Tile containing the center of the map.
-		// Compute the column/row regarding the number of columns/rows.
-		int columnOfMapCenter = ( this.getNumTileColumns( ) / 2 ) + column0; //1->0, 2->1,3->2, ....
-		int rowOfMapCenter = ( this.getNumTileRows( ) / 2 ) + row0; //1->0, 2->1,3->2, ....
+			// compute column and row of the Tile containing the center of the map.
+			// Compute the column/row regarding the number of columns/rows.
+			int columnOfMapCenter = ( this.getNumTileColumns( ) / 2 ) + column0; //1->0, 2->1,3->2, ....
+			int rowOfMapCenter = ( this.getNumTileRows( ) / 2 ) + row0; //1->0, 2->1,3->2, ....
 
-		if ( this.mapCenterTile != null )
-		{
-			columnOfMapCenter = this.mapCenterTile.getColumn( );
-			rowOfMapCenter = this.mapCenterTile.getRow( );
-		}
+			if ( this.mapCenterTile != null )
+			{
+				columnOfMapCenter = this.mapCenterTile.getColumn( );
+				rowOfMapCenter = this.mapCenterTile.getRow( );
+			}
 
-		if ( DBG )
-		{
-			log.info( "numberOfVisibleColumns=" + numberOfVisibleColumns + ", numberOfVisibleRows=" + numberOfVisibleRows + ", idxOfFirstColumn=" + column0 + ", idxOfFirstRow=" + row0 + ", idxOfLastColumn=" + idxOfLastColumn + ", idxOfLastRow=" + idxOfLastRow );
-			log.info( "tileGridBounds=" + rectToString( this.tileGridBounds ) + ", centerOfViewPort=" + centerOfViewPort );
-			log.info( "columnOfMapCenter=" + columnOfMapCenter + ", rowOfMapCenter=" + rowOfMapCenter );
-		}
+			if ( DBG )
+			{
+				log.info( "numberOfVisibleColumns=" + numberOfVisibleColumns + ", numberOfVisibleRows=" + numberOfVisibleRows + ", idxOfFirstColumn=" + column0 + ", idxOfFirstRow=" + row0 + ", idxOfLastColumn=" + idxOfLastColumn + ", idxOfLastRow=" + idxOfLastRow );
+				log.info( "tileGridBounds=" + rectToString( this.tileGridBounds ) + ", centerOfViewPort=" + centerOfViewPort );
+				log.info( "columnOfMapCenter=" + columnOfMapCenter + ", rowOfMapCenter=" + rowOfMapCenter );
+			}
 
-		// 1. Create Tiles that are missing (where not created yet but are visible on the map).
-		// 2. Update geo-coordinates and zoom-level of existing Tiles. 
-		int y = y0;
-		for ( int row = row0; row <= idxOfLastRow; row++ )
-		{
-			int x = x0;
-			for ( int column = column0; column <= idxOfLastColumn; column++ )
+			// 1. Create Tiles that are missing (where not created yet but are visible on the map).
+			// 2. Update geo-coordinates and zoom-level of existing Tiles. 
+			// The composited layer has to be rebuilt only if a Tile was added/removed or got a new TileNumber.
+			TileNumber tileNumberOfCenterTile = this.getTileNumberOfCenterTile( this.tileNumberOfMapCenter );
+			boolean gridChanged = false;
+			List<Tile> replacedTiles = new ArrayList<>( );
+			int y = y0;
+			for ( int row = row0; row <= idxOfLastRow; row++ )
 			{
-				String tileId = Tile.colRowToTileId( column, row );
-				Tile tile = this.viewPortTiles.get( tileId );
+				int x = x0;
+				for ( int column = column0; column <= idxOfLastColumn; column++ )
+				{
+					Tile tile = this.viewPortTiles.get( column, row );
 
-				// Determine the distance (number of columns/rows) of this Tile to the Tile containing the map-center.
-				int columnOffset = column - columnOfMapCenter;
-				int rowOffset = row - rowOfMapCenter;
+					// Determine the distance (number of columns/rows) of this Tile to the Tile containing the map-center.
+					int columnOffset = column - columnOfMapCenter;
+					int rowOffset = row - rowOfMapCenter;
 
-				TileNumber tileNumberOfCurrentTile = new TileNumber( tileNumberOfMapCenter.getX( ) + columnOffset, tileNumberOfMapCenter.getY( ) + rowOffset, this.zoomLevel );
+					double xTile = tileNumberOfCenterTile.getX( ) + columnOffset;
+					double yTile = tileNumberOfCenterTile.getY( ) + rowOffset;
 
-				// tile does not exist yet --> create it
-				if ( tile == null )
-				{
-					tile = new Tile( tileId, x, y );
-					this.viewPortTiles.put( tileId, tile );
-					if ( DBG )
-						log.fine( "Tile [" + tile.getTileId( ) + "] created and added." );
-				}// if ( tile == null ).
-
-				// Apply computed TileNumber 
-				tile.setTileNumber( tileNumberOfCurrentTile );
-				tile.setValid( false );
+					// tile does not exist yet --> create it
+					if ( tile == null )
+					{
+						tile = new Tile( column, row, x, y );
+						this.viewPortTiles.put( tile );
+						gridChanged = true;
+						if ( DBG )
+							log.fine( "Tile [" + tile.getTileId( ) + "] created and added." );
+					}// if ( tile == null ).
+
+					// Apply computed TileNumber, the image has to be (re-)loaded only if the TileNumber has changed
+					TileNumber tileNumber = tile.getTileNumber( );
+					if ( ( tileNumber.getX( ) != xTile ) || ( tileNumber.getY( ) != yTile ) || ( tileNumber.getZoom( ) != this.zoomLevel ) )
+					{
+						// keep the old image as fallback until the new one is loaded
+						if ( tile.hasImage( ) )
+							replacedTiles.add( ( Tile ) tile.clone( ) );
+						tile.setTileNumber( new TileNumber( xTile, yTile, this.zoomLevel ) );
+						tile.setImage( null );
+						tile.setValid( false );
+						gridChanged = true;
+					}
 
-				// tile containing the map-center found
-				if ( ( column == columnOfMapCenter ) && ( row == rowOfMapCenter ) )
-				{
-					this.mapCenterTile = tile;
-					if ( DBG )
-						log.info( "Tile [" + tile.getTileId( ) + "] contains the center of the Map (geoCoord=" + this.mapCenterTile.getCenter( ).getFormatted( ) + ")" );
-				}// if ( ( col == columnOfMapCenter ) && ( row == rowOfMapCenter ) ).
-
-				// next column (update x-coordinate)
-				x += Tile.TILE_SIZE_PX;
-			}// for ( int col = column0; col < numberOfVisibleColumns; col++ ).
-
-			// next row (update y-coordinate)
-			y += Tile.TILE_SIZE_PX;
-		}// for ( int row = row0; row < numberOfVisibleRows; row++ ).
-
-		// remove tiles fully outside of the outer extended view-port
-		List<Tile> toRemove = new ArrayList<Tile>( );
-		for ( Map.Entry<String, Tile> entry : this.viewPortTiles.entrySet( ) )
-		{
-			Tile tile = entry.getValue( );
-			Rectangle2D tileBounds = toExtendedViewPortCoordinates( tile.getBounds( ), this.camera );
-			if ( !this.outerExtViewPort.intersects( tileBounds ) )
+					// tile containing the map-center found
+					if ( ( column == columnOfMapCenter ) && ( row == rowOfMapCenter ) )
+					{
+						this.mapCenterTile = tile;
+						if ( DBG )
+							log.info( "Tile [" + tile.getTileId( ) + "] contains the center of the Map (geoCoord=" + this.mapCenterTile.getCenter( ).getFormatted( ) + ")" );
+					}// if ( ( col == columnOfMapCenter ) && ( row == rowOfMapCenter ) ).
+
+					// next column (update x-coordinate)
+					x += Tile.TILE_SIZE_PX;
+				}// for ( int col = column0; col < numberOfVisibleColumns; col++ ).
+
+				// next row (update y-coordinate)
+				y += Tile.TILE_SIZE_PX;
+			}// for ( int row = row0; row < numberOfVisibleRows; row++ ).
+
+			// remove tiles fully outside of the outer extended view-port
+			List<Tile> toRemove = new ArrayList<Tile>( );
+			for ( Tile tile : this.viewPortTiles )
 			{
-				toRemove.add( tile );
+				Rectangle2D tileBounds = toExtendedViewPortCoordinates( tile.getBounds( ), this.camera );
+				if ( !this.outerExtViewPort.intersects( tileBounds ) )
+				{
+					toRemove.add( tile );
+				}
 			}
-		}
 
-		// Guarantee that at least one tile will be visible.
-		// Remove only tiles if some tiles will be left in the list of view-port tiles.
-		if ( this.viewPortTiles.size( ) > toRemove.size( ) )
-		{
-			// now remove the tiles 
-			for ( Tile tile : toRemove )
+			// Guarantee that at least one tile will be visible.
+			// Remove only tiles if some tiles will be left in the list of view-port tiles.
+			if ( this.viewPortTiles.size( ) > toRemove.size( ) )
 			{
-				this.viewPortTiles.remove( tile.getTileId( ) );
-			}
-		}// if(this.viewPortTiles.size( ) > toRemove.size( )).
+				// now remove the tiles 
+				for ( Tile tile : toRemove )
+				{
+					this.viewPortTiles.remove( tile.getId( ) );
+					gridChanged = true;
+				}
+			}// if(this.viewPortTiles.size( ) > toRemove.size( )).
 
-		this.updateTileGridBounds( ); 
+			this.updateTileGridBounds( ); 
 
+			if ( gridChanged )
+			{
+				this.tileFallback.add( replacedTiles );
+				this.publishRenderSnapshot( );
+				this.mapLayerInvalid = true;
+			}
+		}
 	}
 
 	/**
@@ -869,23 +1147,15 @@ public class MapImage extends Canvas implements TileLoaderListener
 		}// if ( this.viewPortTiles.isEmpty( ) ).
 		else
 		{
-			int minX = Integer.MAX_VALUE;
-			int minY = Integer.MAX_VALUE;
-			int maxX = -Integer.MAX_VALUE;
-			int maxY = -Integer.MAX_VALUE;
-
-			for ( Map.Entry<String, Tile> entry : this.viewPortTiles.entrySet( ) )
-			{
-				Tile tile = entry.getValue( );
-				minX = min( minX, tile.getX( ) );
-				minY = min( minY, tile.getY( ) );
-				maxX = max( maxX, tile.getX( ) );
-				maxY = max( maxY, tile.getY( ) );
-			}
+			// the extent of the grid is maintained by the map while adding/removing tiles
+			int minX = this.viewPortTiles.getMinX( );
+			int minY = this.viewPortTiles.getMinY( );
+			int maxX = this.viewPortTiles.getMaxX( );
+			int maxY = this.viewPortTiles.getMaxY( );
 
-			// Convert the coordinates of the upper- and leftmost Tile (given in screen coordinates) to view-port coordinates. 
+			// Convert the coordinates of the upper-left and lower-right corner (given in screen coordinates) to view-port coordinates. 
 			Point2D upperLeftCorner = screenPosToViewPortPos( new Point2D.Double( minX, minY ) );
-			Point2D lowerRightCorner = screenPosToViewPortPos( new Point2D.Double( maxX + Tile.TILE_SIZE_PX, maxY + Tile.TILE_SIZE_PX ) );
+			Point2D lowerRightCorner = screenPosToViewPortPos( new Point2D.Double( maxX, maxY ) );
 			double width = lowerRightCorner.getX( ) - upperLeftCorner.getX( );
 			double height = lowerRightCorner.getY( ) - upperLeftCorner.getY( );
 			this.tileGridBounds.setRect( upperLeftCorner.getX( ), upperLeftCorner.getY( ), width, height );
@@ -894,28 +1164,170 @@ public class MapImage extends Canvas implements TileLoaderListener
 	}
 
 	/**
-	 * This method creates a new {@link TileRequest} for each {@link Tile} whose content is not valid.
+	 * This method creates a new {@link TileRequest} for each {@link Tile} whose content is not valid and passes them to the
+	 * {@link TileLoader}.
 	 */
 	private void createTileRequests( )
 	{
 		List<TileRequest> tileRequests = new ArrayList<>( );
-		for ( Map.Entry<String, Tile> entry : this.viewPortTiles.entrySet( ) )
+		for ( Tile viewPortTile : this.viewPortTiles )
 		{
-			Tile viewPortTile = entry.getValue( );
 			if ( !viewPortTile.isValid( ) && !viewPortTile.isEmptyTile( ) )
 			{
-				tileRequests.add( new TileRequest( this.log, this.urlBuilder, viewPortTile.getTileId( ), viewPortTile.getTileNumber( ) ) );
+				TileRequest tileRequest = new TileRequest( this.log, this.urlBuilder, viewPortTile.getId( ), viewPortTile.getTileNumber( ) );
+				this.applyPriority( tileRequest, viewPortTile );
+				tileRequests.add( tileRequest );
 
 				if ( DBG )
 					log.fine( "Tile [" + viewPortTile.getTileId( ) + "] Request started: geoCoord=" + viewPortTile.getCenter( ).getFormatted( ) );
 			}// if ( !viewPortTile.isValid( ) ).
-		}// for ( Map.Entry<String, Tile> entry : this.viewPortTiles.entrySet( ) ).
+		}// for ( Tile viewPortTile : this.viewPortTiles ).
+
+		this.createPrefetchRequests( tileRequests );
 
-		if ( !tileRequests.isEmpty( ) )
+		// Hand over the complete set of needed requests (even if empty), the TileLoader keeps the requests that are still needed
+		// and cancels those whose tiles have left the outer extended view-port.
+		this.tileLoader.addTileRequestBlock( tileRequests );
+	}
+
+	/**
+	 * Adds the {@link TileRequest}s prefetching the images that are expected to be needed soon to the given request-block: The images of
+	 * the tiles the moving camera is heading to and (while zooming using the mouse-wheel) of the tiles of the adjacent zoom-level. Since
+	 * the prefetch-requests are part of the request-block they are cancelled as soon as they are not predicted anymore.
+	 * @param tileRequests
+	 */
+	private void createPrefetchRequests( List<TileRequest> tileRequests )
+	{
+		if ( ( this.mapCenterTile == null ) || ( this.tileLoader.getPrefetchBudget( ) == 0 ) )
+			return;
+		long now = System.nanoTime( );
+
+		// ahead of the moving camera: the area passed by the inner extended view-port (tiles of the grid are requested anyway)
+		Point2D translation = this.prefetcher.predictTranslation( now );
+		if ( translation != null )
+		{
+			AffineTransform predictedCamera = new AffineTransform( this.camera );
+			predictedCamera.preConcatenate( AffineTransform.getTranslateInstance( translation.getX( ), translation.getY( ) ) );
+			Rectangle2D area = this.toTileCoordinates( this.innerExtViewPort, this.camera );
+			Rectangle2D predictedArea = this.toTileCoordinates( this.innerExtViewPort, predictedCamera );
+			if ( ( area != null ) && ( predictedArea != null ) )
+			{
+				Rectangle2D.union( area, predictedArea, area );
+				this.addPrefetchRequests( tileRequests, area, predictedCamera, this.tileNumberOfMapCenter, this.mapCenterTile.getColumn( ), this.mapCenterTile.getRow( ), true );
+			}
+		}
+
+		// the adjacent zoom-level: the zoom-level is changed with the scale of the camera reset to 1 and the map-center placed at the
+		// tile under the cursor (see updateZoomLevel()), as long as the cursor is not moved the tile-numbers are known in advance
+		int zoomDirection = this.prefetcher.getZoomDirection( now );
+		int nextZoomLevel = this.zoomLevel + zoomDirection;
+		if ( ( zoomDirection != 0 ) && ( nextZoomLevel >= MIN_ZOOM_LEVEL ) && ( nextZoomLevel <= MAX_ZOOM_LEVEL ) )
+		{
+			Point2D cursor = this.prefetcher.getZoomCursor( );
+			GeoCoord gcUnderCursor = this.posToGeoCoord( cursor );
+			Tile tileUnderCursor = this.getTileAt( cursor );
+			if ( ( gcUnderCursor != null ) && ( tileUnderCursor != null ) )
+			{
+				AffineTransform nextCamera = AffineTransform.getTranslateInstance( this.camera.getTranslateX( ), this.camera.getTranslateY( ) );
+				TileNumber nextTileNumberOfMapCenter = MercatorProjection.geoCoordToTileNumber( gcUnderCursor, nextZoomLevel );
+				this.alignCamera( nextCamera, nextTileNumberOfMapCenter );
+				Rectangle2D area = this.toTileCoordinates( this.innerExtViewPort, nextCamera );
+				if ( area != null )
+					this.addPrefetchRequests( tileRequests, area, nextCamera, nextTileNumberOfMapCenter, tileUnderCursor.getColumn( ), tileUnderCursor.getRow( ), false );
+			}
+		}
+	}
+
+	/**
+	 * Adds a prefetch-request for each tile of the grid covering the given area (at most {@link MapImage#MAX_PREFETCH_TILES}, those near to
+	 * the center of the view-port first).
+	 * @param tileRequests
+	 * @param area - area to be covered (coordinate-system of the {@link Tile}s)
+	 * @param cam - the camera expected when the images are needed (to compute the priority)
+	 * @param tileNumberOfMapCenter - {@link TileNumber} of the map-center
+	 * @param columnOfMapCenter - column of the tile containing the map-center
+	 * @param rowOfMapCenter - row of the tile containing the map-center
+	 * @param skipGridTiles - true if the tiles of the current grid shall be skipped
+	 */
+	private void addPrefetchRequests( List<TileRequest> tileRequests, Rectangle2D area, AffineTransform cam, TileNumber tileNumberOfMapCenter, int columnOfMapCenter, int rowOfMapCenter, boolean skipGridTiles )
+	{
+		// the tile at [column,row] is placed at x=outerExtViewPort.x+column*TILE_SIZE_PX (see updateTileGrid())
+		int column0 = ( int ) Math.floor( ( area.getMinX( ) - this.outerExtViewPort.getX( ) ) / Tile.TILE_SIZE_PX );
+		int row0 = ( int ) Math.floor( ( area.getMinY( ) - this.outerExtViewPort.getY( ) ) / Tile.TILE_SIZE_PX );
+		int column1 = ( int ) Math.floor( ( area.getMaxX( ) - this.outerExtViewPort.getX( ) ) / Tile.TILE_SIZE_PX );
+		int row1 = ( int ) Math.floor( ( area.getMaxY( ) - this.outerExtViewPort.getY( ) ) / Tile.TILE_SIZE_PX );
+
+		TileNumber tileNumberOfCenterTile = this.getTileNumberOfCenterTile( tileNumberOfMapCenter );
+		List<TileRequest> prefetchRequests = new ArrayList<>( );
+		synchronized ( this.viewPortTiles )
+		{
+			for ( int row = row0; row <= row1; row++ )
+			{
+				for ( int column = column0; column <= column1; column++ )
+				{
+					if ( skipGridTiles && ( this.viewPortTiles.get( column, row ) != null ) )
+						continue;
+
+					TileNumber tileNumber = new TileNumber( tileNumberOfCenterTile.getX( ) + ( column - columnOfMapCenter ), tileNumberOfCenterTile.getY( ) + ( row - rowOfMapCenter ), tileNumberOfCenterTile.getZoom( ) );
+					Point2D center = cam.transform( new Point2D.Double( this.outerExtViewPort.getX( ) + column * Tile.TILE_SIZE_PX + Tile.HALF_TILE_SIZE_PX, this.outerExtViewPort.getY( ) + row * Tile.TILE_SIZE_PX + Tile.HALF_TILE_SIZE_PX ), null );
+
+					TileRequest tileRequest = new TileRequest( this.log, this.urlBuilder, Tile.toTileId( column, row ), tileNumber );
+					tileRequest.setPriority( TileRequest.PRIORITY_PREFETCH, center.distance( this.viewPort.getCenterX( ), this.viewPort.getCenterY( ) ) );
+					prefetchRequests.add( tileRequest );
+				}
+			}
+		}
+
+		// the nearest ones first
+		Collections.sort( prefetchRequests, new Comparator<TileRequest>( )
+		{
+			@Override
+			public int compare( TileRequest o1, TileRequest o2 )
+			{
+				return java.lang.Double.compare( o1.getPriorityDistance( ), o2.getPriorityDistance( ) );
+			}
+		} );
+		tileRequests.addAll( prefetchRequests.subList( 0, Math.min( MAX_PREFETCH_TILES, prefetchRequests.size( ) ) ) );
+	}
+
+	/**
+	 * Transforms the given {@link Rectangle2D} from view-port coordinates into the coordinate-system of the {@link Tile}s using the inverse
+	 * of the given camera.
+	 * @param rect
+	 * @param cam
+	 * @return - null if the camera is not invertible
+	 */
+	private Rectangle2D toTileCoordinates( Rectangle2D rect, AffineTransform cam )
+	{
+		try
+		{
+			return toExtendedViewPortCoordinates( rect, cam.createInverse( ) );
+		}
+		catch ( NoninvertibleTransformException e )
 		{
-			this.tileLoader.cancelAllRequests( );
-			this.tileLoader.addTileRequestBlock( tileRequests );
-		}// if ( !tileRequests.isEmpty( ) ).
+			return null;
+		}
+	}
+
+	/**
+	 * Sets the priority of the given {@link TileRequest} depending on the position of its {@link Tile}: Visible tiles are loaded first
+	 * (those near to the center of the view-port before those at the border), then the tiles of the inner extended view-port and finally
+	 * those only part of the outer extended view-port.
+	 * @param tileRequest
+	 * @param tile
+	 */
+	private void applyPriority( TileRequest tileRequest, Tile tile )
+	{
+		Rectangle2D tileBounds = toExtendedViewPortCoordinates( tile.getBounds( ), this.camera );
+		double distance = Point2D.distance( tileBounds.getCenterX( ), tileBounds.getCenterY( ), this.viewPort.getCenterX( ), this.viewPort.getCenterY( ) );
+
+		int band = TileRequest.PRIORITY_OUTER_EXTENSION;
+		if ( this.viewPort.intersects( tileBounds ) )
+			band = TileRequest.PRIORITY_VIEWPORT;
+		else if ( this.innerExtViewPort.intersects( tileBounds ) )
+			band = TileRequest.PRIORITY_INNER_EXTENSION;
+
+		tileRequest.setPriority( band, distance );
 	}
 
 	private int getNumTileColumns( )
@@ -940,28 +1352,58 @@ public class MapImage extends Canvas implements TileLoaderListener
 		return ( int ) ( Math.round( this.tileGridBounds.getHeight( ) / this.getScaledTileSize( ) ) );
 	}
 
-	private void paint( Graphics2D gr )
+	/**
+	 * Publishes a new snapshot of the {@link Tile}s to be drawn. Has to be called whenever a {@link Tile} was added/removed or its image has
+	 * changed.
+	 */
+	private void publishRenderSnapshot( )
 	{
-		// copy the Tiles (for thread-safety)
-		List<Tile> tmpTiles = new ArrayList<>( );
 		synchronized ( this.viewPortTiles )
 		{
-			for ( Map.Entry<String, Tile> entry : this.viewPortTiles.entrySet( ) )
+			TileRenderRecord[] snapshot = new TileRenderRecord[this.viewPortTiles.size( )];
+			int i = 0;
+			int numMissingImages = 0;
+			for ( Tile tile : this.viewPortTiles )
 			{
-				tmpTiles.add( ( Tile ) entry.getValue( ).clone( ) );
+				snapshot[i] = new TileRenderRecord( tile );
+				if ( !snapshot[i].isImageLoaded( ) )
+					numMissingImages++;
+				i++;
 			}
+			this.renderSnapshot = snapshot;
+
+			// the fallback-images are not needed anymore as soon as each tile has its own image
+			if ( numMissingImages == 0 )
+				this.tileFallback.clear( );
 		}
+	}
 
-		// draw the copied tiles images
-		for ( Tile viewPortTile : tmpTiles )
+	/**
+	 * Draws the {@link Tile}s intersecting the given region.
+	 * @param gr
+	 * @param region - region in screen-coordinates (null draws all {@link Tile}s)
+	 */
+	private void paint( Graphics2D gr, Rectangle2D region )
+	{
+		// draw the latest snapshot of the tiles (immutable, no need to lock or copy)
+		TileRenderRecord[] snapshot = this.renderSnapshot;
+		for ( int i = 0; i < snapshot.length; i++ )
 		{
+			TileRenderRecord viewPortTile = snapshot[i];
 			int posX = viewPortTile.getX( );
 			int posY = viewPortTile.getY( );
+			if ( ( region != null ) && !region.intersects( posX, posY, Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX ) )
+				continue;
+
 			gr.drawImage( viewPortTile.getImage( ), posX, posY, null );
 
+			// draw the images of the previous zoom-level (if available) until the image is loaded
+			if ( !viewPortTile.isImageLoaded( ) )
+				this.tileFallback.draw( gr, viewPortTile.getTileNumber( ), posX, posY );
+
 			if ( DBG )
 			{
-				if ( viewPortTile.getTileId( ).equals( this.mapCenterTile.getTileId( ) ) )
+				if ( ( this.mapCenterTile != null ) && ( viewPortTile.getTileId( ) == this.mapCenterTile.getId( ) ) )
 					gr.setColor( Color.RED );
 				else gr.setColor( DEBUG_COLOR );
 
@@ -975,40 +1417,268 @@ public class MapImage extends Canvas implements TileLoaderListener
 				gr.drawString( "ImgCoord=(" + viewPortTile.getX( ) + "," + viewPortTile.getY( ) + ")", posX + 10, posY + 20 );
 				gr.drawString( "GeoCoord=(" + viewPortTile.getCenter( ).getFormatted( ) + ")", posX + 10, posY + 35 );
 				gr.drawString( "TileNumber=(" + viewPortTile.getTileNumber( ) + ")", posX + 10, posY + 50 );
-				gr.drawString( "ZoomLevel=(" + viewPortTile.getZoomLevel( ) + ")", posX + 10, posY + 65 );
+				gr.drawString( "ZoomLevel=(" + viewPortTile.getTileNumber( ).getZoom( ) + ")", posX + 10, posY + 65 );
 
 				gr.setFont( DEBUG_FONT_BIG );
-				gr.drawString( viewPortTile.getTileId( ) + "", Tile.HALF_TILE_SIZE_PX + posX, Tile.HALF_TILE_SIZE_PX + posY );
+				gr.drawString( Tile.tileIdToString( viewPortTile.getTileId( ) ), Tile.HALF_TILE_SIZE_PX + posX, Tile.HALF_TILE_SIZE_PX + posY );
+			}
+		}// for ( int i = 0; i < snapshot.length; i++ ).
+	}
+
+	/**
+	 * Draws the {@link Marker}s of the {@link MarkerLayer} within the canvas. The {@link Marker}s are drawn in device-coordinates (the size
+	 * does not depend on the scale of the camera), only the cells of the layer intersecting the canvas are visited. Up to zoom-level
+	 * {@link MarkerClusterIndex#MAX_ZOOM} the clusters of the {@link Marker}s are drawn instead (see {@link MapImage#paintClusters}).
+	 * @param gr
+	 */
+	private void paintMarkers( Graphics2D gr )
+	{
+		TileRenderRecord[] snapshot = this.renderSnapshot;
+		if ( ( snapshot.length == 0 ) || this.markerLayer.isEmpty( ) )
+			return;
+
+		// The tiles are placed in screen-coordinates, the center of a tile shows its TileNumber. Compute the position of the origin of 
+		// the world-map (at the zoom-level of the tiles) in screen-coordinates. 
+		TileNumber tileNumber = snapshot[0].getTileNumber( );
+		double mapSize = MercatorProjection.getMapSize( tileNumber.getZoom( ) );
+		double originX = snapshot[0].getX( ) + Tile.HALF_TILE_SIZE_PX - tileNumber.getX( ) * Tile.TILE_SIZE_PX;
+		double originY = snapshot[0].getY( ) + Tile.HALF_TILE_SIZE_PX - tileNumber.getY( ) * Tile.TILE_SIZE_PX;
+
+		// world-coordinates --> device-coordinates (the camera only scales and translates)
+		double factor = mapSize * this.camera.getScaleX( );
+		double offsetX = this.camera.getTranslateX( ) + originX * this.camera.getScaleX( );
+		double offsetY = this.camera.getTranslateY( ) + originY * this.camera.getScaleY( );
+
+		gr.setFont( MARKER_FONT );
+		if ( tileNumber.getZoom( ) <= MarkerClusterIndex.MAX_ZOOM )
+		{
+			this.paintClusters( gr, tileNumber.getZoom( ), factor, offsetX, offsetY );
+			return;
+		}
+
+		// the canvas (extended by the size of a marker) in world-coordinates
+		double minX = ( -MARKER_RADIUS - offsetX ) / factor;
+		double minY = ( -MARKER_RADIUS - offsetY ) / factor;
+		double maxX = ( this.getWidth( ) + MARKER_RADIUS - offsetX ) / factor;
+		double maxY = ( this.getHeight( ) + MARKER_RADIUS - offsetY ) / factor;
+		int numVisible = this.markerLayer.getMarkers( minX, minY, maxX, maxY, this.visibleMarkers );
+
+		boolean drawLabels = ( numVisible <= MAX_LABELED_MARKERS );
+		for ( int i = 0; i < numVisible; i++ )
+		{
+			int x = ( int ) Math.round( this.visibleMarkers.getX( i ) * factor + offsetX );
+			int y = ( int ) Math.round( this.visibleMarkers.getY( i ) * factor + offsetY );
+			this.paintMarker( gr, this.visibleMarkers.getMarker( i ), x, y, drawLabels );
+		}
+		this.visibleMarkers.clear( );
+	}
+
+	/**
+	 * Draws the clusters of the {@link Marker}s (at the given zoom-level) within the canvas: A circle showing the number of {@link Marker}s
+	 * for each cluster, a cluster consisting of a single {@link Marker} is drawn as {@link Marker}. Nothing is drawn until the
+	 * {@link MarkerClusterer} has built the first {@link MarkerClusterIndex}.
+	 * @param gr
+	 * @param zoom
+	 * @param factor - world-coordinates --> device-coordinates (scale)
+	 * @param offsetX - world-coordinates --> device-coordinates (translation)
+	 * @param offsetY - world-coordinates --> device-coordinates (translation)
+	 */
+	private void paintClusters( Graphics2D gr, int zoom, double factor, double offsetX, double offsetY )
+	{
+		MarkerClusterIndex clusterIndex = this.markerClusterer.getIndex( );
+		if ( clusterIndex == null )
+			return;
+
+		// the canvas (extended by the size of a glyph) in world-coordinates
+		double minX = ( -CLUSTER_MAX_RADIUS - offsetX ) / factor;
+		double minY = ( -CLUSTER_MAX_RADIUS - offsetY ) / factor;
+		double maxX = ( this.getWidth( ) + CLUSTER_MAX_RADIUS - offsetX ) / factor;
+		double maxY = ( this.getHeight( ) + CLUSTER_MAX_RADIUS - offsetY ) / factor;
+		int numVisible = clusterIndex.getClusters( zoom, minX, minY, maxX, maxY, this.visibleClusters );
+
+		boolean drawLabels = ( numVisible <= MAX_LABELED_MARKERS );
+		FontMetrics fontMetrics = gr.getFontMetrics( );
+		for ( int i = 0; i < numVisible; i++ )
+		{
+			int x = ( int ) Math.round( this.visibleClusters.getX( i ) * factor + offsetX );
+			int y = ( int ) Math.round( this.visibleClusters.getY( i ) * factor + offsetY );
+			int count = this.visibleClusters.getCount( i );
+			if ( count == 1 )
+			{
+				this.paintMarker( gr, this.visibleClusters.getMarker( i ), x, y, drawLabels );
+				continue;
 			}
-		}// for ( Tile viewPortTile : tmpTiles ).
+
+			int radius = ( int ) Math.min( CLUSTER_MAX_RADIUS, CLUSTER_MIN_RADIUS + 3 * Math.log10( count ) );
+			gr.setColor( ( count < 100 ) ? CLUSTER_COLOR_SMALL : ( count < 1000 ) ? CLUSTER_COLOR_MEDIUM : CLUSTER_COLOR_LARGE );
+			gr.fillOval( x - radius, y - radius, 2 * radius, 2 * radius );
+
+			String text = ( count < 1000 ) ? Integer.toString( count ) : ( count < 1000000 ) ? ( count / 1000 ) + "k" : ( count / 1000000 ) + "M";
+			gr.setColor( Color.BLACK );
+			gr.drawString( text, x - fontMetrics.stringWidth( text ) / 2, y + ( fontMetrics.getAscent( ) - fontMetrics.getDescent( ) ) / 2 );
+		}
+		this.visibleClusters.clear( );
+	}
+
+	private void paintMarker( Graphics2D gr, Marker marker, int x, int y, boolean drawLabel )
+	{
+		gr.setColor( marker.getColor( ) );
+		gr.fillOval( x - MARKER_RADIUS, y - MARKER_RADIUS, 2 * MARKER_RADIUS, 2 * MARKER_RADIUS );
+
+		if ( drawLabel && ( marker.getLabel( ) != null ) )
+		{
+			gr.setColor( Color.BLACK );
+			gr.drawString( marker.getLabel( ).toString( ), x + MARKER_RADIUS + 1, y + MARKER_RADIUS );
+		}
 	}
 
 	@Override
 	public void paint( Graphics g )
 	{
-		if ( strategy != null )
+		this.render( );
+	}
+
+	/**
+	 * Renders one frame on the event-dispatch thread (called by the {@link RenderScheduler}), blocks until the frame is shown.
+	 */
+	private void renderFrame( )
+	{
+		try
 		{
-			do
+			EventQueue.invokeAndWait( new Runnable( )
 			{
-				Graphics2D gr = ( Graphics2D ) strategy.getDrawGraphics( );
+				@Override
+				public void run( )
+				{
+					render( );
+				}
+			} );
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread( ).interrupt( );
+		}
+		catch ( InvocationTargetException e )
+		{
+			this.log.severe( "Unable to render the map: " + e.getCause( ) );
+		}
+	}
+
+	/**
+	 * Updates the composited layer of the tile-grid: The layer is rebuilt if the tile-grid has changed (or the content of the layer was
+	 * lost), otherwise only the regions of the {@link Tile}s whose images have changed meanwhile are redrawn.
+	 * @return - the layer
+	 */
+	private Image updateMapLayer( )
+	{
+		boolean rebuild = this.mapLayerInvalid || ( this.mapLayer == null );
+
+		// take the regions that have changed since the last frame
+		List<Rectangle2D> regions;
+		synchronized ( this.dirtyRegions )
+		{
+			regions = new ArrayList<>( this.dirtyRegions );
+			this.dirtyRegions.clear( );
+		}
+
+		// read the snapshot after the regions were taken: a tile publishes its snapshot before it adds its region, hence the snapshot
+		// contains the images of all taken regions (a region added meanwhile is redrawn with the next frame)
+		TileRenderRecord[] snapshot = this.renderSnapshot;
+		if ( regions.size( ) > MAX_DIRTY_REGIONS )
+			rebuild = true;
+
+		if ( this.mapLayer instanceof VolatileImage )
+		{
+			int state = ( ( VolatileImage ) this.mapLayer ).validate( this.getGraphicsConfiguration( ) );
+			if ( state == VolatileImage.IMAGE_INCOMPATIBLE )
+				this.mapLayer = null;
+			if ( state != VolatileImage.IMAGE_OK )
+				rebuild = true;
+		}
+
+		if ( !rebuild && regions.isEmpty( ) )
+			return this.mapLayer;
+
+		if ( rebuild )
+		{
+			this.mapLayerInvalid = false;
+			if ( snapshot.length == 0 )
+				return this.mapLayer;
+
+			// the layer covers the bounds of the tile-grid
+			int minX = Integer.MAX_VALUE;
+			int minY = Integer.MAX_VALUE;
+			int maxX = Integer.MIN_VALUE;
+			int maxY = Integer.MIN_VALUE;
+			for ( int i = 0; i < snapshot.length; i++ )
+			{
+				minX = Math.min( minX, snapshot[i].getX( ) );
+				minY = Math.min( minY, snapshot[i].getY( ) );
+				maxX = Math.max( maxX, snapshot[i].getX( ) + Tile.TILE_SIZE_PX );
+				maxY = Math.max( maxY, snapshot[i].getY( ) + Tile.TILE_SIZE_PX );
+			}
+			int width = maxX - minX;
+			int height = maxY - minY;
+
+			// (re-)create the layer if needed (it is kept if it is large enough), prefer an accelerated image
+			if ( ( this.mapLayer == null ) || ( this.mapLayer.getWidth( null ) < width ) || ( this.mapLayer.getHeight( null ) < height ) )
+			{
+				this.mapLayer = this.createVolatileImage( width, height );
+				if ( this.mapLayer == null )
+					this.mapLayer = new BufferedImage( width, height, BufferedImage.TYPE_INT_RGB );
+			}
+			this.mapLayerBounds.setBounds( minX, minY, width, height );
+
+			// the whole layer (it might be larger than the tile-grid) is cleared and redrawn
+			regions.clear( );
+			regions.add( new Rectangle( minX, minY, this.mapLayer.getWidth( null ), this.mapLayer.getHeight( null ) ) );
+		}
 
-				// update the render-quality
-				applyRenderQuality( gr );
+		// the tiles are drawn unscaled into the layer, the render quality matters only when blitting it (see render())
+		Graphics2D gr = ( Graphics2D ) this.mapLayer.getGraphics( );
+		applyRenderQuality( gr, RENDER_QUALITY_HIGH );
+		gr.translate( -this.mapLayerBounds.x, -this.mapLayerBounds.y );
+		for ( Rectangle2D region : regions )
+		{
+			Rectangle clip = region.getBounds( );
+			gr.setClip( clip );
+			gr.clearRect( clip.x, clip.y, clip.width, clip.height );
+			paint( gr, region );
+		}
+		gr.dispose( );
+		return this.mapLayer;
+	}
 
-				// clear the screen
-				gr.clearRect( 0, 0, this.getWidth( ), this.getHeight( ) );
+	/**
+	 * Draws the map using the buffer-strategy (nothing is drawn if there is none yet).
+	 */
+	private void render( )
+	{
+		if ( strategy != null )
+		{
+			do
+			{
+				// bring the map up to date (redraws only the dirty regions if possible)
+				Image layer = this.updateMapLayer( );
 
-				// store transform
-				AffineTransform m = gr.getTransform( );
+				Graphics2D gr = ( Graphics2D ) strategy.getDrawGraphics( );
+				applyRenderQuality( gr, this.renderQuality );
 
-				// apply camera 
-				gr.transform( camera );
+				// clear the screen (not needed if the layer covers it anyway)
+				Rectangle canvas = new Rectangle( 0, 0, this.getWidth( ), this.getHeight( ) );
+				if ( ( layer == null ) || !this.camera.createTransformedShape( new Rectangle( this.mapLayerBounds.x, this.mapLayerBounds.y, layer.getWidth( null ), layer.getHeight( null ) ) ).contains( canvas ) )
+					gr.clearRect( 0, 0, canvas.width, canvas.height );
 
-				// call internal paint-method
-				paint( gr );
+				// draw the layer using the camera (a single blit, no matter how many tiles are visible)
+				if ( layer != null )
+				{
+					AffineTransform m = gr.getTransform( );
+					gr.transform( camera );
+					gr.drawImage( layer, this.mapLayerBounds.x, this.mapLayerBounds.y, null );
+					gr.setTransform( m );
+				}
 
-				// reset transform
-				gr.setTransform( m );
+				this.paintMarkers( gr );
 
 				if ( DRAW_VIEWPORTS )
 				{
@@ -1086,6 +1756,9 @@ public class MapImage extends Canvas implements TileLoaderListener
 			// create a buffer-strategy using 2 buffers
 			this.createBufferStrategy( 2 );
 			this.strategy = this.getBufferStrategy( );
+
+			// let the loader convert the tiles into the pixel-layout of this screen
+			this.tileLoader.setGraphicsConfiguration( this.getGraphicsConfiguration( ) );
 		}
 		else
 		{
@@ -1094,10 +1767,11 @@ public class MapImage extends Canvas implements TileLoaderListener
 	}
 
 	/**
-	 * Apply the render quality settings that were set using setRenderQuality() to the Graphics2D object given.
+	 * Apply the given render quality settings (e.g. the ones that were set using setRenderQuality()) to the Graphics2D object given.
 	 * @param gr The Graphics2D object to apply the settins to.
+	 * @param renderQuality Either RENDER_QUALITY_HIGH or RENDER_QUALITY_LOW.
 	 */
-	private void applyRenderQuality( Graphics2D gr )
+	private static void applyRenderQuality( Graphics2D gr, int renderQuality )
 	{
 		gr.setRenderingHint( RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON );
 		if ( renderQuality == RENDER_QUALITY_LOW )
@@ -1116,13 +1790,16 @@ public class MapImage extends Canvas implements TileLoaderListener
 	}
 
 	/**
-	 * Sets the render quality to use for subsequent drawing operations. Can be either RENDER_QUALITY_HIGH or RENDER_QUALITY_LOW.
+	 * Sets the render quality to use for subsequent drawing operations. Can be either RENDER_QUALITY_HIGH or RENDER_QUALITY_LOW. Applies
+	 * to drawing the composited layer of the tiles onto the screen, the layer itself is not redrawn.
 	 * @param rq The render quality to use from now on.
 	 */
 	protected void setRenderQuality( int rq )
 	{
+		if ( renderQuality == rq )
+			return;
 		renderQuality = rq;
-		repaint( );
+		this.renderScheduler.requestFrame( );
 	}
 
 	/**
@@ -1155,39 +1832,52 @@ public class MapImage extends Canvas implements TileLoaderListener
 		}// if ( this.initialCam == null ).
 		this.camera.setTransform( this.initialCam );
 
-		this.repaint( );
+		this.renderScheduler.requestFrame( );
+	}
+
+	/**
+	 * Returns the view-port tile with the given id if it still needs the image of the given {@link TileNumber} (null otherwise, e.g. it got
+	 * a new one since the image was requested). The caller has to hold the lock of the view-port tiles.
+	 * @param tileId
+	 * @param tileNumber
+	 * @return
+	 */
+	private Tile getViewPortTile( long tileId, TileNumber tileNumber )
+	{
+		Tile viewPortTile = this.viewPortTiles.get( tileId );
+		if ( ( viewPortTile == null ) || !viewPortTile.getTileNumber( ).equals( tileNumber ) )
+			return null;
+		return viewPortTile;
 	}
 
 	@Override
-	public void onTileLoadRequestComplete( String tileId, Image image )
+	public void onTileLoadRequestComplete( long tileId, TileNumber tileNumber, Image image )
 	{
 		// protect the tiles
 		synchronized ( this.viewPortTiles )
 		{
-			Tile viewPortTile = this.viewPortTiles.get( tileId );
+			Tile viewPortTile = this.getViewPortTile( tileId, tileNumber );
 			if ( viewPortTile != null )
 			{
 				this.log.fine( "onTileLoadRequestComplete(tile=" + viewPortTile + ")" );
 				viewPortTile.setImage( image );
 				viewPortTile.setValid( true );
-				try
-				{
-					this.repaintFlag.put( true );
-				}
-				catch ( InterruptedException e )
+				this.publishRenderSnapshot( );
+				synchronized ( this.dirtyRegions )
 				{
-					e.printStackTrace( );
+					this.dirtyRegions.add( viewPortTile.getBounds( ) );
 				}
+				this.renderScheduler.requestFrame( );
 			}
 		}
 	}
 
 	@Override
-	public void onTileLoadRequestStarted( String tileId )
+	public void onTileLoadRequestStarted( long tileId, TileNumber tileNumber )
 	{
 		synchronized ( this.viewPortTiles )
 		{
-			Tile viewPortTile = this.viewPortTiles.get( tileId );
+			Tile viewPortTile = this.getViewPortTile( tileId, tileNumber );
 			if ( viewPortTile != null )
 			{
 
@@ -1197,11 +1887,11 @@ public class MapImage extends Canvas implements TileLoaderListener
 	}
 
 	@Override
-	public void onTileLoadRequestFailed( String tileId, FailReason reason, String cause )
+	public void onTileLoadRequestFailed( long tileId, TileNumber tileNumber, FailReason reason, String cause )
 	{
 		synchronized ( this.viewPortTiles )
 		{
-			Tile viewPortTile = this.viewPortTiles.get( tileId );
+			Tile viewPortTile = this.getViewPortTile( tileId, tileNumber );
 			if ( viewPortTile != null )
 			{
 				viewPortTile.setValid( false );
@@ -1220,28 +1910,65 @@ public class MapImage extends Canvas implements TileLoaderListener
 		return "[x=" + rect.getX( ) + ", y=" + rect.getY( ) + ", witdh=" + rect.getWidth( ) + ", height=" + rect.getHeight( ) + "]";
 	}
 
-	private class Repainter extends Thread
+	/**
+	 * Immutable state of a {@link Tile} needed to draw it.
+	 */
+	private static final class TileRenderRecord
 	{
-		@Override
-		public void run( )
+		private final long			tileId;
+		private final int			x;
+		private final int			y;
+		private final Image			image;
+		private final boolean		imageLoaded;
+		private final TileNumber	tileNumber;
+
+		public TileRenderRecord( Tile tile )
 		{
-			while ( true )
-			{
+			this.tileId = tile.getId( );
+			this.x = tile.getX( );
+			this.y = tile.getY( );
+			this.image = tile.getImage( );
+			this.imageLoaded = tile.hasImage( );
+			this.tileNumber = tile.getTileNumber( );
+		}
 
-				try
-				{
-					Boolean doRepaint = repaintFlag.take( );
-					if ( doRepaint.booleanValue( ) )
-					{
-						repaint( );
-					}
-				}
-				catch ( InterruptedException e )
-				{
-					// TODO Auto-generated catch block
-					e.printStackTrace( );
-				}
-			}
+		public long getTileId( )
+		{
+			return tileId;
+		}
+
+		public int getX( )
+		{
+			return x;
+		}
+
+		public int getY( )
+		{
+			return y;
+		}
+
+		public Image getImage( )
+		{
+			return image;
+		}
+
+		public TileNumber getTileNumber( )
+		{
+			return tileNumber;
+		}
+
+		/**
+		 * Returns false if the default image is drawn since the image of the {@link Tile} is not loaded yet.
+		 * @return
+		 */
+		public boolean isImageLoaded( )
+		{
+			return imageLoaded;
+		}
+
+		public GeoCoord getCenter( )
+		{
+			return this.tileNumber.getCenter( );
 		}
 	}
 
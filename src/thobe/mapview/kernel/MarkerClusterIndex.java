@@ -0,0 +1,458 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel;
+
+import java.util.Arrays;
+
+import thobe.mapview.kernel.mapprovider.Marker;
+import thobe.mapview.kernel.tilesystem.MercatorProjection;
+
+/**
+ * Hierarchical clustering of the {@link Marker}s of a {@link MarkerLayer} (see {@link MarkerLayer#createClusterIndex()}), precomputed
+ * for each zoom-level [0,{@link MarkerClusterIndex#MAX_ZOOM}]: At zoom-level z the world-map is divided into cells of
+ * {@link MarkerClusterIndex#CLUSTER_SIZE} x {@link MarkerClusterIndex#CLUSTER_SIZE} pixels, the {@link Marker}s within a cell form a
+ * cluster placed at their centroid. Each cell is divided into four cells at the next zoom-level, thus a cluster splits up into (at most
+ * four) clusters when zooming in.
+ * <p>
+ * The cells are identified by their Morton-code (the bits of column and row interleaved), so the children of a cell are contiguous when
+ * the cells are ordered by their code. The index is built by sorting the {@link Marker}s by the cell at
+ * {@link MarkerClusterIndex#MAX_ZOOM} once, each coarser zoom-level is derived from the next finer one in a single pass. Looking up the
+ * clusters of a zoom-level within the view-port does not compute anything.
+ * </p>
+ * <p>
+ * The index is a snapshot, it does not reflect the modifications of the {@link MarkerLayer} made afterwards (compare
+ * {@link MarkerClusterIndex#getVersion()} with {@link MarkerLayer#getVersion()}). Immutable.
+ * </p>
+ * @author Thomas Obenaus
+ * @source MarkerClusterIndex.java
+ * @date Jan 12, 2014
+ */
+public class MarkerClusterIndex
+{
+	/**
+	 * Max. zoom-level the {@link Marker}s are clustered for.
+	 */
+	public static final int			MAX_ZOOM			= 15;
+
+	/**
+	 * Size (in pixel) of a cell.
+	 */
+	public static final int			CLUSTER_SIZE		= 64;
+
+	/**
+	 * log2 of the number of cells per axis of a {@link thobe.mapview.kernel.tilesystem.Tile}.
+	 */
+	private static final int		CELLS_PER_TILE_BITS	= 2;
+
+	/**
+	 * Number of bits of the index of a {@link Marker} within the sort-keys (below the Morton-code of its cell).
+	 */
+	private static final int		INDEX_BITS			= 29;
+	private static final long		INDEX_MASK			= ( 1L << INDEX_BITS ) - 1;
+
+	private static final int		INITIAL_CAPACITY	= 256;
+
+	/**
+	 * The clustered {@link Marker}s.
+	 */
+	private final Marker[]			markers;
+
+	/**
+	 * The clusters of each zoom-level.
+	 */
+	private final Level[]			levels;
+
+	/**
+	 * Version of the {@link MarkerLayer} the index was built from.
+	 */
+	private final long				version;
+
+	/**
+	 * Ctor, clusters the given {@link Marker}s.
+	 * @param markers - the {@link Marker}s (not copied)
+	 * @param worldX - the world-coordinates (x) of the {@link Marker}s
+	 * @param worldY - the world-coordinates (y) of the {@link Marker}s
+	 * @param numMarkers - number of {@link Marker}s (index [0,numMarkers))
+	 * @param version - version of the {@link MarkerLayer}
+	 */
+	MarkerClusterIndex( Marker[] markers, double[] worldX, double[] worldY, int numMarkers, long version )
+	{
+		if ( numMarkers > INDEX_MASK )
+			throw new IllegalArgumentException( "Unable to cluster more than " + INDEX_MASK + " markers (got " + numMarkers + ")." );
+		this.markers = markers;
+		this.version = version;
+		this.levels = new Level[MAX_ZOOM + 1];
+
+		// sort the markers by their cell at the max. zoom-level
+		int numCells = getNumCells( MAX_ZOOM );
+		long[] keys = new long[numMarkers];
+		for ( int i = 0; i < numMarkers; i++ )
+			keys[i] = ( toMortonCode( toCell( worldX[i], numCells ), toCell( worldY[i], numCells ) ) << INDEX_BITS ) | i;
+		Arrays.sort( keys );
+
+		this.levels[MAX_ZOOM] = createLevel( keys, worldX, worldY );
+		for ( int zoom = MAX_ZOOM - 1; zoom >= 0; zoom-- )
+			this.levels[zoom] = createParentLevel( this.levels[zoom + 1] );
+	}
+
+	/**
+	 * Creates the clusters of the max. zoom-level.
+	 * @param keys - the sorted keys (Morton-code of the cell and index) of the {@link Marker}s
+	 * @param worldX
+	 * @param worldY
+	 * @return
+	 */
+	private static Level createLevel( long[] keys, double[] worldX, double[] worldY )
+	{
+		int numClusters = 0;
+		for ( int i = 0; i < keys.length; i++ )
+		{
+			if ( ( i == 0 ) || ( ( keys[i] >>> INDEX_BITS ) != ( keys[i - 1] >>> INDEX_BITS ) ) )
+				numClusters++;
+		}
+
+		Level level = new Level( numClusters );
+		int cluster = -1;
+		for ( int i = 0; i < keys.length; i++ )
+		{
+			long cell = keys[i] >>> INDEX_BITS;
+			int index = ( int ) ( keys[i] & INDEX_MASK );
+			if ( ( cluster < 0 ) || ( cell != level.cells[cluster] ) )
+			{
+				cluster++;
+				level.cells[cluster] = cell;
+				level.markerIndices[cluster] = index;
+			}
+			else level.markerIndices[cluster] = -1;
+			level.x[cluster] += worldX[index];
+			level.y[cluster] += worldY[index];
+			level.counts[cluster]++;
+		}
+		level.toCentroids( );
+		return level;
+	}
+
+	/**
+	 * Creates the clusters of the zoom-level above the given one, a cluster merges the clusters of the (up to) four cells within its cell.
+	 * @param children
+	 * @return
+	 */
+	private static Level createParentLevel( Level children )
+	{
+		int numClusters = 0;
+		for ( int i = 0; i < children.cells.length; i++ )
+		{
+			if ( ( i == 0 ) || ( ( children.cells[i] >>> 2 ) != ( children.cells[i - 1] >>> 2 ) ) )
+				numClusters++;
+		}
+
+		Level level = new Level( numClusters );
+		int cluster = -1;
+		for ( int i = 0; i < children.cells.length; i++ )
+		{
+			long cell = children.cells[i] >>> 2;
+			if ( ( cluster < 0 ) || ( cell != level.cells[cluster] ) )
+			{
+				cluster++;
+				level.cells[cluster] = cell;
+				level.markerIndices[cluster] = children.markerIndices[i];
+			}
+			else level.markerIndices[cluster] = -1;
+			int count = children.counts[i];
+			level.x[cluster] += children.x[i] * count;
+			level.y[cluster] += children.y[i] * count;
+			level.counts[cluster] += count;
+		}
+		level.toCentroids( );
+		return level;
+	}
+
+	/**
+	 * Collects the clusters of the given zoom-level whose cells intersect the given area (world-coordinates, see {@link MarkerLayer}). The
+	 * cells of the area are looked up unless there are less clusters than cells within the area.
+	 * @param zoom - [0,{@link MarkerClusterIndex#MAX_ZOOM}]
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @param result - receives the clusters (its previous content is dropped)
+	 * @return - the number of clusters found
+	 */
+	public int getClusters( int zoom, double minX, double minY, double maxX, double maxY, Clusters result )
+	{
+		if ( ( zoom < 0 ) || ( zoom > MAX_ZOOM ) )
+			throw new IllegalArgumentException( "The zoom-level has to be within [0," + MAX_ZOOM + "] (was " + zoom + ")." );
+		result.clear( );
+		Level level = this.levels[zoom];
+		if ( ( level.cells.length == 0 ) || ( minX > maxX ) || ( minY > maxY ) )
+			return 0;
+
+		int numCells = getNumCells( zoom );
+		int column0 = toCell( minX, numCells );
+		int row0 = toCell( minY, numCells );
+		int column1 = toCell( maxX, numCells );
+		int row1 = toCell( maxY, numCells );
+		long numCellsInArea = ( long ) ( column1 - column0 + 1 ) * ( row1 - row0 + 1 );
+
+		if ( numCellsInArea <= level.cells.length )
+		{
+			for ( int row = row0; row <= row1; row++ )
+			{
+				for ( int column = column0; column <= column1; column++ )
+				{
+					int cluster = Arrays.binarySearch( level.cells, toMortonCode( column, row ) );
+					if ( cluster >= 0 )
+						this.add( level, cluster, result );
+				}
+			}
+		}
+		else
+		{
+			for ( int cluster = 0; cluster < level.cells.length; cluster++ )
+			{
+				int column = compactBits( level.cells[cluster] );
+				int row = compactBits( level.cells[cluster] >>> 1 );
+				if ( ( column >= column0 ) && ( column <= column1 ) && ( row >= row0 ) && ( row <= row1 ) )
+					this.add( level, cluster, result );
+			}
+		}
+		return result.size;
+	}
+
+	private void add( Level level, int cluster, Clusters result )
+	{
+		result.ensureCapacity( result.size + 1 );
+		int markerIndex = level.markerIndices[cluster];
+		result.markers[result.size] = ( markerIndex >= 0 ) ? this.markers[markerIndex] : null;
+		result.x[result.size] = level.x[cluster];
+		result.y[result.size] = level.y[cluster];
+		result.counts[result.size] = level.counts[cluster];
+		result.size++;
+	}
+
+	/**
+	 * Returns the number of clusters of the given zoom-level.
+	 * @param zoom - [0,{@link MarkerClusterIndex#MAX_ZOOM}]
+	 * @return
+	 */
+	public int getNumClusters( int zoom )
+	{
+		return this.levels[zoom].cells.length;
+	}
+
+	/**
+	 * Returns the number of clustered {@link Marker}s.
+	 * @return
+	 */
+	public int getNumMarkers( )
+	{
+		int numMarkers = 0;
+		for ( int count : this.levels[0].counts )
+			numMarkers += count;
+		return numMarkers;
+	}
+
+	/**
+	 * Returns the version of the {@link MarkerLayer} the index was built from (see {@link MarkerLayer#getVersion()}).
+	 * @return
+	 */
+	public long getVersion( )
+	{
+		return version;
+	}
+
+	/**
+	 * Returns the number of cells per axis at the given zoom-level.
+	 * @param zoom
+	 * @return
+	 */
+	private static int getNumCells( int zoom )
+	{
+		return MercatorProjection.getNumberOfTiles( zoom ) << CELLS_PER_TILE_BITS;
+	}
+
+	/**
+	 * Returns the column/row of the cell containing the given world-coordinate (clipped to the grid).
+	 * @param worldCoord
+	 * @param numCells - number of cells per axis
+	 * @return
+	 */
+	private static int toCell( double worldCoord, int numCells )
+	{
+		return Math.max( 0, Math.min( numCells - 1, ( int ) ( worldCoord * numCells ) ) );
+	}
+
+	/**
+	 * Returns the Morton-code of the given cell: The bits of the column at the even, the bits of the row at the odd positions.
+	 * @param column
+	 * @param row
+	 * @return
+	 */
+	private static long toMortonCode( int column, int row )
+	{
+		return spreadBits( column ) | ( spreadBits( row ) << 1 );
+	}
+
+	/**
+	 * Moves the (lower 32) bits of the given value to the even positions of the result.
+	 * @param value
+	 * @return
+	 */
+	private static long spreadBits( int value )
+	{
+		long x = value & 0xFFFFFFFFL;
+		x = ( x | ( x << 16 ) ) & 0x0000FFFF0000FFFFL;
+		x = ( x | ( x << 8 ) ) & 0x00FF00FF00FF00FFL;
+		x = ( x | ( x << 4 ) ) & 0x0F0F0F0F0F0F0F0FL;
+		x = ( x | ( x << 2 ) ) & 0x3333333333333333L;
+		x = ( x | ( x << 1 ) ) & 0x5555555555555555L;
+		return x;
+	}
+
+	/**
+	 * Inverse of {@link MarkerClusterIndex#spreadBits(int)}: Collects the bits at the even positions of the given value.
+	 * @param value
+	 * @return
+	 */
+	private static int compactBits( long value )
+	{
+		long x = value & 0x5555555555555555L;
+		x = ( x | ( x >>> 1 ) ) & 0x3333333333333333L;
+		x = ( x | ( x >>> 2 ) ) & 0x0F0F0F0F0F0F0F0FL;
+		x = ( x | ( x >>> 4 ) ) & 0x00FF00FF00FF00FFL;
+		x = ( x | ( x >>> 8 ) ) & 0x0000FFFF0000FFFFL;
+		x = ( x | ( x >>> 16 ) ) & 0x00000000FFFFFFFFL;
+		return ( int ) x;
+	}
+
+	/**
+	 * The clusters of a zoom-level ordered by the Morton-code of their cells.
+	 */
+	private static final class Level
+	{
+		private final long[]	cells;
+		private final double[]	x;
+		private final double[]	y;
+		private final int[]		counts;
+
+		/**
+		 * Index of the {@link Marker} of each cluster that consists of a single {@link Marker}, -1 otherwise.
+		 */
+		private final int[]		markerIndices;
+
+		public Level( int numClusters )
+		{
+			this.cells = new long[numClusters];
+			this.x = new double[numClusters];
+			this.y = new double[numClusters];
+			this.counts = new int[numClusters];
+			this.markerIndices = new int[numClusters];
+		}
+
+		/**
+		 * Turns the sums of the positions into the centroids.
+		 */
+		private void toCentroids( )
+		{
+			for ( int i = 0; i < this.cells.length; i++ )
+			{
+				this.x[i] /= this.counts[i];
+				this.y[i] /= this.counts[i];
+			}
+		}
+	}
+
+	/**
+	 * Reusable result of {@link MarkerClusterIndex#getClusters(int, double, double, double, double, Clusters)}: The position
+	 * (world-coordinates) and number of {@link Marker}s of the clusters at index [0,size). Not thread-safe.
+	 */
+	public static class Clusters
+	{
+		private Marker[]	markers;
+		private double[]	x;
+		private double[]	y;
+		private int[]		counts;
+		private int			size;
+
+		public Clusters( )
+		{
+			this.markers = new Marker[INITIAL_CAPACITY];
+			this.x = new double[INITIAL_CAPACITY];
+			this.y = new double[INITIAL_CAPACITY];
+			this.counts = new int[INITIAL_CAPACITY];
+			this.size = 0;
+		}
+
+		private void ensureCapacity( int capacity )
+		{
+			if ( capacity <= this.markers.length )
+				return;
+			int newCapacity = Math.max( capacity, this.markers.length * 2 );
+			this.markers = Arrays.copyOf( this.markers, newCapacity );
+			this.x = Arrays.copyOf( this.x, newCapacity );
+			this.y = Arrays.copyOf( this.y, newCapacity );
+			this.counts = Arrays.copyOf( this.counts, newCapacity );
+		}
+
+		/**
+		 * Drops the content (the references to the {@link Marker}s are released).
+		 */
+		public void clear( )
+		{
+			Arrays.fill( this.markers, 0, this.size, null );
+			this.size = 0;
+		}
+
+		public int size( )
+		{
+			return size;
+		}
+
+		/**
+		 * Returns the {@link Marker} of the i-th cluster if it consists of a single {@link Marker}, null otherwise.
+		 * @param i
+		 * @return
+		 */
+		public Marker getMarker( int i )
+		{
+			return this.markers[i];
+		}
+
+		/**
+		 * Returns the number of {@link Marker}s of the i-th cluster.
+		 * @param i
+		 * @return
+		 */
+		public int getCount( int i )
+		{
+			return this.counts[i];
+		}
+
+		/**
+		 * Returns the world-coordinate (x) of the centroid of the i-th cluster.
+		 * @param i
+		 * @return
+		 */
+		public double getX( int i )
+		{
+			return this.x[i];
+		}
+
+		/**
+		 * Returns the world-coordinate (y) of the centroid of the i-th cluster.
+		 * @param i
+		 * @return
+		 */
+		public double getY( int i )
+		{
+			return this.y[i];
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the {@link MarkerClusterIndex} of a {@link MarkerLayer} up to date: The index is rebuilt on the thread of the clusterer whenever
+ * {@link MarkerClusterer#getIndex()} finds it outdated, at most once per {@link MarkerClusterer#MIN_REBUILD_INTERVAL} (a continuously
+ * modified layer does not keep the thread busy). Until the rebuild is done, the previous index is returned.
+ * @author Thomas Obenaus
+ * @source MarkerClusterer.java
+ * @date Jan 12, 2014
+ */
+class MarkerClusterer
+{
+	/**
+	 * Min. time between the start of two rebuilds in ns.
+	 */
+	private static final long			MIN_REBUILD_INTERVAL	= 200000000L;
+
+	private Logger						log;
+
+	private MarkerLayer					markerLayer;
+
+	/**
+	 * Called (by the thread of the clusterer) whenever a new index is available.
+	 */
+	private Runnable					onUpdate;
+
+	/**
+	 * The latest index, null until the first one was built.
+	 */
+	private volatile MarkerClusterIndex	index;
+
+	/**
+	 * True if a rebuild was requested but not started yet.
+	 */
+	private AtomicBoolean				rebuildPending;
+
+	private Thread						thread;
+
+	/**
+	 * Ctor
+	 * @param log
+	 * @param markerLayer
+	 * @param onUpdate - called whenever a new index is available
+	 */
+	public MarkerClusterer( Logger log, MarkerLayer markerLayer, Runnable onUpdate )
+	{
+		this.log = log;
+		this.markerLayer = markerLayer;
+		this.onUpdate = onUpdate;
+		this.index = null;
+		this.rebuildPending = new AtomicBoolean( false );
+		this.thread = new Thread( new Runnable( )
+		{
+			@Override
+			public void run( )
+			{
+				rebuildLoop( );
+			}
+		}, "MarkerClusterer" );
+		this.thread.setDaemon( true );
+	}
+
+	public void start( )
+	{
+		this.thread.start( );
+	}
+
+	public void shutdown( )
+	{
+		this.thread.interrupt( );
+	}
+
+	/**
+	 * Returns the latest index (null if none was built yet), requests a rebuild if it does not reflect the current state of the
+	 * {@link MarkerLayer}. Never blocks.
+	 * @return
+	 */
+	public MarkerClusterIndex getIndex( )
+	{
+		MarkerClusterIndex current = this.index;
+		if ( ( ( current == null ) || ( current.getVersion( ) != this.markerLayer.getVersion( ) ) ) && !this.rebuildPending.getAndSet( true ) )
+			LockSupport.unpark( this.thread );
+		return current;
+	}
+
+	private void rebuildLoop( )
+	{
+		long nextRebuild = System.nanoTime( );
+		while ( !Thread.currentThread( ).isInterrupted( ) )
+		{
+			// sleep until a rebuild is requested
+			if ( !this.rebuildPending.get( ) )
+			{
+				LockSupport.park( this );
+				continue;
+			}
+
+			long now = System.nanoTime( );
+			if ( now < nextRebuild )
+			{
+				LockSupport.parkNanos( this, nextRebuild - now );
+				continue;
+			}
+			nextRebuild = now + MIN_REBUILD_INTERVAL;
+
+			try
+			{
+				MarkerClusterIndex newIndex = this.markerLayer.createClusterIndex( );
+				this.index = newIndex;
+				this.rebuildPending.set( false );
+				this.onUpdate.run( );
+			}
+			catch ( RuntimeException e )
+			{
+				this.rebuildPending.set( false );
+				this.log.severe( "Unexpected error while clustering the markers: " + e.getLocalizedMessage( ) );
+			}
+		}
+	}
+}
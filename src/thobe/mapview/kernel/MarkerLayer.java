@@ -0,0 +1,589 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import thobe.mapview.kernel.mapprovider.Marker;
+import thobe.mapview.kernel.tilesystem.GeoCoord;
+import thobe.mapview.kernel.tilesystem.MercatorProjection;
+import thobe.mapview.kernel.tilesystem.Tile;
+
+/**
+ * Client-side layer of {@link Marker}s drawn on top of the map (in contrast to the markers encoded into the urls of the static-map
+ * services). The layer is meant to hold a large number (millions) of {@link Marker}s: They are indexed by a grid of cells covering the
+ * world-map, so the {@link Marker}s within the view-port are found without looking at the others, and a {@link Marker} is moved (see
+ * {@link MarkerLayer#move(Marker, GeoCoord)}) by updating just the cells concerned.
+ * <p>
+ * The positions are kept in world-coordinates: The position on the world-map at zoom-level 0 divided by its size (x from 0 at 180&deg;W
+ * to 1 at 180&deg;E, y from 0 in the north to 1 in the south), the pixel on the world-map at zoom-level z is the world-coordinate
+ * multiplied by {@link MercatorProjection#getMapSize(int)}. Thread-safe.
+ * </p>
+ * @author Thomas Obenaus
+ * @source MarkerLayer.java
+ * @date Jan 12, 2014
+ */
+public class MarkerLayer
+{
+	/**
+	 * The grid has 2^CELL_LEVEL x 2^CELL_LEVEL cells, a cell covers the area of a tile at this zoom-level.
+	 */
+	public static final int				CELL_LEVEL				= 12;
+	private static final int			NUM_CELLS				= 1 << CELL_LEVEL;
+
+	private static final int			INITIAL_CAPACITY		= 1024;
+	private static final int			INITIAL_CELL_CAPACITY	= 4;
+
+	/**
+	 * The markers and their positions (world-coordinates), index [0,numMarkers). A removed marker is replaced by the last one.
+	 */
+	private Marker[]					markers;
+	private double[]					worldX;
+	private double[]					worldY;
+
+	/**
+	 * Position of each marker within the list of its cell.
+	 */
+	private int[]						cellSlots;
+	private int							numMarkers;
+
+	/**
+	 * Index of each marker.
+	 */
+	private Map<Marker, Integer>		indices;
+
+	/**
+	 * The non-empty cells of the grid, the key is row * {@link MarkerLayer#NUM_CELLS} + column.
+	 */
+	private Map<Integer, Cell>			cells;
+
+	/**
+	 * Incremented on each modification.
+	 */
+	private long						version;
+
+	private List<MarkerLayerListener>	listeners;
+
+	public MarkerLayer( )
+	{
+		this.markers = new Marker[INITIAL_CAPACITY];
+		this.worldX = new double[INITIAL_CAPACITY];
+		this.worldY = new double[INITIAL_CAPACITY];
+		this.cellSlots = new int[INITIAL_CAPACITY];
+		this.numMarkers = 0;
+		this.indices = new IdentityHashMap<>( );
+		this.cells = new HashMap<>( );
+		this.version = 0;
+		this.listeners = new CopyOnWriteArrayList<>( );
+	}
+
+	/**
+	 * Adds the given {@link Marker} (nothing happens if the layer contains it already).
+	 * @param marker
+	 * @return - false if the layer contains the {@link Marker} already
+	 */
+	public boolean add( Marker marker )
+	{
+		synchronized ( this )
+		{
+			if ( this.indices.containsKey( marker ) )
+				return false;
+			GeoCoord position = marker.getPosition( );
+			this.ensureCapacity( this.numMarkers + 1 );
+			this.append( marker, toWorldX( position.getLongitude( ) ), toWorldY( position.getLatitude( ) ) );
+			this.version++;
+		}
+		this.fireMarkersChanged( );
+		return true;
+	}
+
+	/**
+	 * Adds the given {@link Marker}s (those contained already are ignored), the positions are projected at once.
+	 * @param markersToAdd
+	 */
+	public void addAll( Collection<Marker> markersToAdd )
+	{
+		int numToAdd = markersToAdd.size( );
+		double[] x = new double[numToAdd];
+		double[] y = new double[numToAdd];
+		int i = 0;
+		for ( Marker marker : markersToAdd )
+		{
+			x[i] = marker.getPosition( ).getLongitude( );
+			y[i] = marker.getPosition( ).getLatitude( );
+			i++;
+		}
+		MercatorProjection.projectToWorldPixels( y, x, 0, x, y );
+
+		synchronized ( this )
+		{
+			this.ensureCapacity( this.numMarkers + numToAdd );
+			i = 0;
+			for ( Marker marker : markersToAdd )
+			{
+				if ( !this.indices.containsKey( marker ) )
+					this.append( marker, x[i] / Tile.TILE_SIZE_PX, y[i] / Tile.TILE_SIZE_PX );
+				i++;
+			}
+			this.version++;
+		}
+		this.fireMarkersChanged( );
+	}
+
+	/**
+	 * Removes the given {@link Marker}.
+	 * @param marker
+	 * @return - false if the layer does not contain the {@link Marker}
+	 */
+	public boolean remove( Marker marker )
+	{
+		synchronized ( this )
+		{
+			Integer index = this.indices.get( marker );
+			if ( index == null )
+				return false;
+			this.removeAt( index );
+			this.version++;
+		}
+		this.fireMarkersChanged( );
+		return true;
+	}
+
+	public void clear( )
+	{
+		synchronized ( this )
+		{
+			Arrays.fill( this.markers, 0, this.numMarkers, null );
+			this.numMarkers = 0;
+			this.indices.clear( );
+			this.cells.clear( );
+			this.version++;
+		}
+		this.fireMarkersChanged( );
+	}
+
+	/**
+	 * Moves the given {@link Marker} to the given position (the position of the {@link Marker} is updated).
+	 * @param marker
+	 * @param position
+	 * @return - false if the layer does not contain the {@link Marker}
+	 */
+	public boolean move( Marker marker, GeoCoord position )
+	{
+		synchronized ( this )
+		{
+			if ( !this.moveMarker( marker, position ) )
+				return false;
+			this.version++;
+		}
+		this.fireMarkersChanged( );
+		return true;
+	}
+
+	/**
+	 * Moves each of the given {@link Marker}s to the position at the same index of the given list (the listeners are notified once).
+	 * {@link Marker}s not contained in the layer are ignored.
+	 * @param markersToMove
+	 * @param positions
+	 */
+	public void moveAll( List<Marker> markersToMove, List<GeoCoord> positions )
+	{
+		if ( markersToMove.size( ) != positions.size( ) )
+			throw new IllegalArgumentException( "Got " + markersToMove.size( ) + " markers but " + positions.size( ) + " positions." );
+		synchronized ( this )
+		{
+			for ( int i = 0; i < markersToMove.size( ); i++ )
+				this.moveMarker( markersToMove.get( i ), positions.get( i ) );
+			this.version++;
+		}
+		this.fireMarkersChanged( );
+	}
+
+	private boolean moveMarker( Marker marker, GeoCoord position )
+	{
+		Integer index = this.indices.get( marker );
+		if ( index == null )
+			return false;
+		marker.setPosition( position );
+
+		double x = toWorldX( position.getLongitude( ) );
+		double y = toWorldY( position.getLatitude( ) );
+		if ( toCellKey( x, y ) != toCellKey( this.worldX[index], this.worldY[index] ) )
+		{
+			this.removeFromCell( index );
+			this.worldX[index] = x;
+			this.worldY[index] = y;
+			this.addToCell( index );
+		}
+		else
+		{
+			this.worldX[index] = x;
+			this.worldY[index] = y;
+		}
+		return true;
+	}
+
+	public synchronized boolean contains( Marker marker )
+	{
+		return this.indices.containsKey( marker );
+	}
+
+	public synchronized int size( )
+	{
+		return this.numMarkers;
+	}
+
+	public synchronized boolean isEmpty( )
+	{
+		return this.numMarkers == 0;
+	}
+
+	/**
+	 * Returns a number that changes whenever the layer is modified.
+	 * @return
+	 */
+	public synchronized long getVersion( )
+	{
+		return this.version;
+	}
+
+	/**
+	 * Returns all {@link Marker}s of the layer (in no particular order).
+	 * @return
+	 */
+	public synchronized List<Marker> getMarkers( )
+	{
+		return new ArrayList<>( Arrays.asList( this.markers ).subList( 0, this.numMarkers ) );
+	}
+
+	/**
+	 * Collects the {@link Marker}s (and their positions) within the given area (world-coordinates, bounds inclusive). Only the cells
+	 * intersecting the area are visited.
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @param result - receives the {@link Marker}s (its previous content is dropped)
+	 * @return - the number of {@link Marker}s found
+	 */
+	public synchronized int getMarkers( double minX, double minY, double maxX, double maxY, Selection result )
+	{
+		result.clear( );
+		if ( ( this.numMarkers == 0 ) || ( minX > maxX ) || ( minY > maxY ) )
+			return 0;
+
+		int column0 = toCell( minX );
+		int row0 = toCell( minY );
+		int column1 = toCell( maxX );
+		int row1 = toCell( maxY );
+		long numCellsInArea = ( long ) ( column1 - column0 + 1 ) * ( row1 - row0 + 1 );
+
+		// look up the cells of the area unless there are less non-empty cells than cells within the area
+		if ( numCellsInArea <= this.cells.size( ) )
+		{
+			for ( int row = row0; row <= row1; row++ )
+			{
+				for ( int column = column0; column <= column1; column++ )
+				{
+					Cell cell = this.cells.get( row * NUM_CELLS + column );
+					if ( cell != null )
+						this.collect( cell, minX, minY, maxX, maxY, ( column > column0 ) && ( column < column1 ) && ( row > row0 ) && ( row < row1 ), result );
+				}
+			}
+		}
+		else
+		{
+			for ( Cell cell : this.cells.values( ) )
+			{
+				if ( ( cell.column >= column0 ) && ( cell.column <= column1 ) && ( cell.row >= row0 ) && ( cell.row <= row1 ) )
+					this.collect( cell, minX, minY, maxX, maxY, ( cell.column > column0 ) && ( cell.column < column1 ) && ( cell.row > row0 ) && ( cell.row < row1 ), result );
+			}
+		}
+		return result.size;
+	}
+
+	/**
+	 * Adds the markers of the given cell that are within the given area to the result.
+	 * @param cell
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @param inside - true if the cell is completely within the area (no need to test the markers)
+	 * @param result
+	 */
+	private void collect( Cell cell, double minX, double minY, double maxX, double maxY, boolean inside, Selection result )
+	{
+		result.ensureCapacity( result.size + cell.size );
+		for ( int i = 0; i < cell.size; i++ )
+		{
+			int index = cell.items[i];
+			double x = this.worldX[index];
+			double y = this.worldY[index];
+			if ( inside || ( ( x >= minX ) && ( x <= maxX ) && ( y >= minY ) && ( y <= maxY ) ) )
+			{
+				result.markers[result.size] = this.markers[index];
+				result.x[result.size] = x;
+				result.y[result.size] = y;
+				result.size++;
+			}
+		}
+	}
+
+	/**
+	 * Clusters the {@link Marker}s of the layer for each zoom-level. Only copying the {@link Marker}s and their positions blocks the
+	 * modifications of the layer, the clusters are computed afterwards.
+	 * @return
+	 */
+	public MarkerClusterIndex createClusterIndex( )
+	{
+		Marker[] markersCopy;
+		double[] worldXCopy;
+		double[] worldYCopy;
+		int numMarkersCopy;
+		long versionCopy;
+		synchronized ( this )
+		{
+			numMarkersCopy = this.numMarkers;
+			markersCopy = Arrays.copyOf( this.markers, numMarkersCopy );
+			worldXCopy = Arrays.copyOf( this.worldX, numMarkersCopy );
+			worldYCopy = Arrays.copyOf( this.worldY, numMarkersCopy );
+			versionCopy = this.version;
+		}
+		return new MarkerClusterIndex( markersCopy, worldXCopy, worldYCopy, numMarkersCopy, versionCopy );
+	}
+
+	public void addListener( MarkerLayerListener l )
+	{
+		this.listeners.add( l );
+	}
+
+	public void removeListener( MarkerLayerListener l )
+	{
+		this.listeners.remove( l );
+	}
+
+	private void fireMarkersChanged( )
+	{
+		for ( MarkerLayerListener l : this.listeners )
+			l.onMarkersChanged( this );
+	}
+
+	private void ensureCapacity( int capacity )
+	{
+		if ( capacity <= this.markers.length )
+			return;
+		int newCapacity = Math.max( capacity, this.markers.length * 2 );
+		this.markers = Arrays.copyOf( this.markers, newCapacity );
+		this.worldX = Arrays.copyOf( this.worldX, newCapacity );
+		this.worldY = Arrays.copyOf( this.worldY, newCapacity );
+		this.cellSlots = Arrays.copyOf( this.cellSlots, newCapacity );
+	}
+
+	/**
+	 * Appends the given marker (the capacity has to be sufficient).
+	 * @param marker
+	 * @param x
+	 * @param y
+	 */
+	private void append( Marker marker, double x, double y )
+	{
+		int index = this.numMarkers++;
+		this.markers[index] = marker;
+		this.worldX[index] = x;
+		this.worldY[index] = y;
+		this.indices.put( marker, index );
+		this.addToCell( index );
+	}
+
+	/**
+	 * Removes the marker at the given index, the last marker takes its place.
+	 * @param index
+	 */
+	private void removeAt( int index )
+	{
+		this.removeFromCell( index );
+		this.indices.remove( this.markers[index] );
+
+		int last = this.numMarkers - 1;
+		if ( index != last )
+		{
+			this.markers[index] = this.markers[last];
+			this.worldX[index] = this.worldX[last];
+			this.worldY[index] = this.worldY[last];
+			this.cellSlots[index] = this.cellSlots[last];
+			this.cells.get( toCellKey( this.worldX[index], this.worldY[index] ) ).items[this.cellSlots[index]] = index;
+			this.indices.put( this.markers[index], index );
+		}
+		this.markers[last] = null;
+		this.numMarkers--;
+	}
+
+	private void addToCell( int index )
+	{
+		int key = toCellKey( this.worldX[index], this.worldY[index] );
+		Cell cell = this.cells.get( key );
+		if ( cell == null )
+		{
+			cell = new Cell( key % NUM_CELLS, key / NUM_CELLS );
+			this.cells.put( key, cell );
+		}
+		if ( cell.size == cell.items.length )
+			cell.items = Arrays.copyOf( cell.items, cell.size * 2 );
+		this.cellSlots[index] = cell.size;
+		cell.items[cell.size++] = index;
+	}
+
+	/**
+	 * Removes the marker at the given index from its cell, the last marker of the cell takes its place.
+	 * @param index
+	 */
+	private void removeFromCell( int index )
+	{
+		int key = toCellKey( this.worldX[index], this.worldY[index] );
+		Cell cell = this.cells.get( key );
+		int slot = this.cellSlots[index];
+		int lastIndex = cell.items[--cell.size];
+		cell.items[slot] = lastIndex;
+		this.cellSlots[lastIndex] = slot;
+		if ( cell.size == 0 )
+			this.cells.remove( key );
+	}
+
+	/**
+	 * Returns the world-coordinate (x) of the given longitude.
+	 * @param longitude
+	 * @return
+	 */
+	static double toWorldX( double longitude )
+	{
+		return MercatorProjection.longitudeToXOnWorldMap( longitude, 0 ) / Tile.TILE_SIZE_PX;
+	}
+
+	/**
+	 * Returns the world-coordinate (y) of the given latitude.
+	 * @param latitude
+	 * @return
+	 */
+	static double toWorldY( double latitude )
+	{
+		return MercatorProjection.latitutdeToYOnWorldMap( latitude, 0 ) / Tile.TILE_SIZE_PX;
+	}
+
+	/**
+	 * Returns the column/row of the cell containing the given world-coordinate (clipped to the grid).
+	 * @param worldCoord
+	 * @return
+	 */
+	private static int toCell( double worldCoord )
+	{
+		return Math.max( 0, Math.min( NUM_CELLS - 1, ( int ) ( worldCoord * NUM_CELLS ) ) );
+	}
+
+	private static int toCellKey( double x, double y )
+	{
+		return toCell( y ) * NUM_CELLS + toCell( x );
+	}
+
+	/**
+	 * A cell of the grid: The indices of the markers within the cell.
+	 */
+	private static final class Cell
+	{
+		private final int	column;
+		private final int	row;
+		private int[]		items;
+		private int			size;
+
+		public Cell( int column, int row )
+		{
+			this.column = column;
+			this.row = row;
+			this.items = new int[INITIAL_CELL_CAPACITY];
+			this.size = 0;
+		}
+	}
+
+	/**
+	 * Reusable result of {@link MarkerLayer#getMarkers(double, double, double, double, Selection)}: The {@link Marker}s and their
+	 * positions (world-coordinates) at index [0,size). Not thread-safe.
+	 */
+	public static class Selection
+	{
+		private Marker[]	markers;
+		private double[]	x;
+		private double[]	y;
+		private int			size;
+
+		public Selection( )
+		{
+			this.markers = new Marker[INITIAL_CAPACITY];
+			this.x = new double[INITIAL_CAPACITY];
+			this.y = new double[INITIAL_CAPACITY];
+			this.size = 0;
+		}
+
+		private void ensureCapacity( int capacity )
+		{
+			if ( capacity <= this.markers.length )
+				return;
+			int newCapacity = Math.max( capacity, this.markers.length * 2 );
+			this.markers = Arrays.copyOf( this.markers, newCapacity );
+			this.x = Arrays.copyOf( this.x, newCapacity );
+			this.y = Arrays.copyOf( this.y, newCapacity );
+		}
+
+		/**
+		 * Drops the content (the references to the {@link Marker}s are released).
+		 */
+		public void clear( )
+		{
+			Arrays.fill( this.markers, 0, this.size, null );
+			this.size = 0;
+		}
+
+		public int size( )
+		{
+			return size;
+		}
+
+		public Marker getMarker( int i )
+		{
+			return this.markers[i];
+		}
+
+		/**
+		 * Returns the world-coordinate (x) of the i-th {@link Marker}.
+		 * @param i
+		 * @return
+		 */
+		public double getX( int i )
+		{
+			return this.x[i];
+		}
+
+		/**
+		 * Returns the world-coordinate (y) of the i-th {@link Marker}.
+		 * @param i
+		 * @return
+		 */
+		public double getY( int i )
+		{
+			return this.y[i];
+		}
+	}
+}
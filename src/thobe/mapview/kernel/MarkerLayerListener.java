@@ -0,0 +1,22 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel;
+
+/**
+ * Listener notified whenever {@link thobe.mapview.kernel.mapprovider.Marker}s were added to, removed from or moved within a
+ * {@link MarkerLayer}. Called by the thread that has modified the layer.
+ * @author Thomas Obenaus
+ * @source MarkerLayerListener.java
+ * @date Jan 12, 2014
+ */
+public interface MarkerLayerListener
+{
+	public void onMarkersChanged( MarkerLayer markerLayer );
+}
@@ -0,0 +1,189 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel;
+
+import java.awt.geom.Point2D;
+
+/**
+ * Estimates where the map will be moved to in the near future to prefetch the images needed there: The velocity of the camera is
+ * estimated from the latest positions of the camera while the map is dragged, the direction of zooming from the latest movements of the
+ * mouse-wheel.
+ * @author Thomas Obenaus
+ * @source Prefetcher.java
+ * @date Jan 10, 2014
+ */
+class Prefetcher
+{
+	/**
+	 * Default time (in ms) the movement of the camera is predicted ahead.
+	 */
+	public static final int		DEFAULT_LOOK_AHEAD		= 500;
+
+	/**
+	 * Number of positions of the camera kept to estimate its velocity.
+	 */
+	private static final int	NUM_SAMPLES				= 8;
+
+	/**
+	 * Only the positions of the camera within this time (in ns) before the latest one are used to estimate the velocity, the camera is
+	 * assumed to stand still if the latest position is older.
+	 */
+	private static final long	VELOCITY_WINDOW			= 150000000L;
+
+	/**
+	 * The direction of zooming is valid for this time (in ns) after the last movement of the mouse-wheel.
+	 */
+	private static final long	ZOOM_DIRECTION_TIMEOUT	= 1000000000L;
+
+	/**
+	 * Ring-buffer of the latest positions (translation in view-port coordinates) of the camera and the time (in ns) they were recorded.
+	 */
+	private long[]				sampleTimes;
+	private double[]			sampleX;
+	private double[]			sampleY;
+	private int					numSamples;
+	private int					nextSample;
+
+	/**
+	 * Direction of the last movement of the mouse-wheel (1 zoom in, -1 zoom out), the time (in ns) and position of the cursor.
+	 */
+	private int					zoomDirection;
+	private long				zoomTime;
+	private Point2D				zoomCursor;
+
+	/**
+	 * Time (in ms) the movement of the camera is predicted ahead.
+	 */
+	private int					lookAhead;
+
+	public Prefetcher( )
+	{
+		this.sampleTimes = new long[NUM_SAMPLES];
+		this.sampleX = new double[NUM_SAMPLES];
+		this.sampleY = new double[NUM_SAMPLES];
+		this.numSamples = 0;
+		this.nextSample = 0;
+		this.zoomDirection = 0;
+		this.zoomTime = 0;
+		this.zoomCursor = null;
+		this.lookAhead = DEFAULT_LOOK_AHEAD;
+	}
+
+	/**
+	 * Records the position of the camera while the map is dragged.
+	 * @param time - point in time (ns)
+	 * @param translateX - translation of the camera (view-port coordinates)
+	 * @param translateY - translation of the camera (view-port coordinates)
+	 */
+	public void dragged( long time, double translateX, double translateY )
+	{
+		this.sampleTimes[this.nextSample] = time;
+		this.sampleX[this.nextSample] = translateX;
+		this.sampleY[this.nextSample] = translateY;
+		this.nextSample = ( this.nextSample + 1 ) % NUM_SAMPLES;
+		this.numSamples = Math.min( this.numSamples + 1, NUM_SAMPLES );
+	}
+
+	/**
+	 * Drops the recorded positions of the camera (e.g. dragging has stopped), no movement is predicted until the map is dragged again.
+	 */
+	public void stopped( )
+	{
+		this.numSamples = 0;
+	}
+
+	/**
+	 * Records a movement of the mouse-wheel.
+	 * @param time - point in time (ns)
+	 * @param wheelRotation - see {@link java.awt.event.MouseWheelEvent#getWheelRotation()}
+	 * @param cursor - position of the cursor (the pivot of zooming)
+	 */
+	public void wheelMoved( long time, int wheelRotation, Point2D cursor )
+	{
+		if ( wheelRotation == 0 )
+			return;
+		this.zoomDirection = ( wheelRotation < 0 ) ? 1 : -1;
+		this.zoomTime = time;
+		this.zoomCursor = cursor;
+	}
+
+	/**
+	 * Returns the predicted movement of the camera (view-port coordinates) within the look-ahead time.
+	 * @param now - current point in time (ns)
+	 * @return - the movement or null if the camera is not moving
+	 */
+	public Point2D predictTranslation( long now )
+	{
+		if ( this.numSamples < 2 )
+			return null;
+
+		int latest = ( this.nextSample + NUM_SAMPLES - 1 ) % NUM_SAMPLES;
+		long latestTime = this.sampleTimes[latest];
+		if ( now - latestTime > VELOCITY_WINDOW )
+			return null;
+
+		// the oldest sample within the window
+		int oldest = latest;
+		for ( int i = 1; i < this.numSamples; i++ )
+		{
+			int sample = ( latest + NUM_SAMPLES - i ) % NUM_SAMPLES;
+			if ( latestTime - this.sampleTimes[sample] > VELOCITY_WINDOW )
+				break;
+			oldest = sample;
+		}
+		long dt = latestTime - this.sampleTimes[oldest];
+		if ( dt <= 0 )
+			return null;
+
+		double scale = ( this.lookAhead * 1e6 ) / dt;
+		double dx = ( this.sampleX[latest] - this.sampleX[oldest] ) * scale;
+		double dy = ( this.sampleY[latest] - this.sampleY[oldest] ) * scale;
+		if ( ( dx == 0 ) && ( dy == 0 ) )
+			return null;
+		return new Point2D.Double( dx, dy );
+	}
+
+	/**
+	 * Returns the direction of zooming (1 zoom in, -1 zoom out) or 0 if the mouse-wheel was not moved recently.
+	 * @param now - current point in time (ns)
+	 * @return
+	 */
+	public int getZoomDirection( long now )
+	{
+		if ( now - this.zoomTime > ZOOM_DIRECTION_TIMEOUT )
+			return 0;
+		return this.zoomDirection;
+	}
+
+	/**
+	 * Returns the position of the cursor at the last movement of the mouse-wheel (null if the wheel was not moved yet).
+	 * @return
+	 */
+	public Point2D getZoomCursor( )
+	{
+		return zoomCursor;
+	}
+
+	/**
+	 * Sets the time (in ms) the movement of the camera is predicted ahead.
+	 * @param lookAhead
+	 */
+	public void setLookAhead( int lookAhead )
+	{
+		if ( lookAhead < 0 )
+			throw new IllegalArgumentException( "The look-ahead has to be >= 0 (was " + lookAhead + ")." );
+		this.lookAhead = lookAhead;
+	}
+
+	public int getLookAhead( )
+	{
+		return lookAhead;
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Merges any number of frame-requests (invalidations) into at most one frame per tick of a fixed frame-rate (e.g. 60 Hz).
+ * {@link RenderScheduler#requestFrame()} never blocks the caller (e.g. the {@link thobe.mapview.kernel.tileloader.TileLoader}), the
+ * frames are rendered by the given renderer on the thread of the scheduler. While no frame is requested the scheduler is sleeping (no
+ * ticks).
+ * @author Thomas Obenaus
+ * @source RenderScheduler.java
+ * @date Jan 8, 2014
+ */
+public class RenderScheduler
+{
+	public static final int		DEFAULT_FRAME_RATE	= 60;
+
+	private Logger				log;
+
+	/**
+	 * Renders one frame (called by the thread of the scheduler).
+	 */
+	private Runnable			renderer;
+
+	/**
+	 * Min. time between the start of two frames in ns.
+	 */
+	private volatile long		framePeriodNs;
+
+	/**
+	 * True if a frame was requested but not rendered yet.
+	 */
+	private AtomicBoolean		framePending;
+
+	private Thread				thread;
+
+	/**
+	 * Number of rendered frames.
+	 */
+	private AtomicLong			numFrames;
+
+	/**
+	 * Number of frame-requests merged into a frame that was already pending.
+	 */
+	private AtomicLong			numMergedRequests;
+
+	/**
+	 * Number of ticks missed since rendering a frame took longer than the frame-period.
+	 */
+	private AtomicLong			numDroppedFrames;
+
+	/**
+	 * Ctor
+	 * @param log
+	 * @param name - name of the thread
+	 * @param renderer - renders one frame
+	 * @param frameRate - max. number of frames per second
+	 */
+	public RenderScheduler( Logger log, String name, Runnable renderer, int frameRate )
+	{
+		this.log = log;
+		this.renderer = renderer;
+		this.setFrameRate( frameRate );
+		this.framePending = new AtomicBoolean( false );
+		this.numFrames = new AtomicLong( 0 );
+		this.numMergedRequests = new AtomicLong( 0 );
+		this.numDroppedFrames = new AtomicLong( 0 );
+		this.thread = new Thread( new Runnable( )
+		{
+			@Override
+			public void run( )
+			{
+				renderLoop( );
+			}
+		}, name );
+		this.thread.setDaemon( true );
+	}
+
+	public void start( )
+	{
+		this.thread.start( );
+	}
+
+	public void shutdown( )
+	{
+		this.thread.interrupt( );
+	}
+
+	/**
+	 * Requests a frame, returns immediately. Requests arriving before the pending frame was started are merged into it.
+	 */
+	public void requestFrame( )
+	{
+		if ( this.framePending.getAndSet( true ) )
+		{
+			this.numMergedRequests.incrementAndGet( );
+		}
+		else LockSupport.unpark( this.thread );
+	}
+
+	/**
+	 * Sets the max. number of frames per second.
+	 * @param frameRate
+	 */
+	public void setFrameRate( int frameRate )
+	{
+		if ( frameRate <= 0 )
+			throw new IllegalArgumentException( "The frame-rate has to be > 0 (was " + frameRate + ")." );
+		this.framePeriodNs = 1000000000L / frameRate;
+	}
+
+	public int getFrameRate( )
+	{
+		return ( int ) Math.round( 1e9 / this.framePeriodNs );
+	}
+
+	public long getNumFrames( )
+	{
+		return this.numFrames.get( );
+	}
+
+	public long getNumMergedRequests( )
+	{
+		return this.numMergedRequests.get( );
+	}
+
+	public long getNumDroppedFrames( )
+	{
+		return this.numDroppedFrames.get( );
+	}
+
+	public void resetStatistics( )
+	{
+		this.numFrames.set( 0 );
+		this.numMergedRequests.set( 0 );
+		this.numDroppedFrames.set( 0 );
+	}
+
+	@Override
+	public String toString( )
+	{
+		return "RenderScheduler [" + this.getFrameRate( ) + " Hz, frames=" + this.getNumFrames( ) + ", merged=" + this.getNumMergedRequests( ) + ", dropped=" + this.getNumDroppedFrames( ) + "]";
+	}
+
+	private void renderLoop( )
+	{
+		long nextTick = System.nanoTime( );
+		while ( !Thread.currentThread( ).isInterrupted( ) )
+		{
+			// sleep until a frame is requested
+			if ( !this.framePending.get( ) )
+			{
+				LockSupport.park( this );
+				continue;
+			}
+
+			// wait for the next tick, requests arriving meanwhile are merged
+			long now = System.nanoTime( );
+			if ( now < nextTick )
+			{
+				LockSupport.parkNanos( this, nextTick - now );
+				continue;
+			}
+
+			this.framePending.set( false );
+			try
+			{
+				this.renderer.run( );
+			}
+			catch ( RuntimeException e )
+			{
+				this.log.severe( "Unexpected error while rendering: " + e.getLocalizedMessage( ) );
+			}
+			this.numFrames.incrementAndGet( );
+
+			// frames that could not be started in time since this one took too long
+			long period = this.framePeriodNs;
+			long renderTime = System.nanoTime( ) - now;
+			if ( renderTime > period )
+				this.numDroppedFrames.addAndGet( renderTime / period );
+			nextTick = now + ( ( renderTime / period ) + 1 ) * period;
+		}
+	}
+}
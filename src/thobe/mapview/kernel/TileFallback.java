@@ -0,0 +1,171 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import thobe.mapview.kernel.tilesystem.Tile;
+import thobe.mapview.kernel.tilesystem.TileNumber;
+
+/**
+ * Keeps the images of {@link Tile}s that were replaced (e.g. since the zoom-level has changed) to draw something useful in place of
+ * {@link Tile}s whose image is not loaded yet: A scaled sub-region of the image of the parent-tile (zoom in) or a mosaic of the images of
+ * the child-tiles (zoom out). Since the images of the static-map services are centered at arbitrary {@link TileNumber}s all images are
+ * placed by the area they cover in world-coordinates (tile-numbers of zoom-level 0), so any number of zoom-levels and any overlap are
+ * handled alike. No image is downloaded for that.
+ * @author Thomas Obenaus
+ * @source TileFallback.java
+ * @date Jan 9, 2014
+ */
+class TileFallback
+{
+	/**
+	 * Max. number of images kept, the oldest ones are dropped first.
+	 */
+	public static final int	MAX_IMAGES	= 256;
+
+	/**
+	 * The images, ordered by zoom-level (coarse images are drawn first, finer ones on top). Replaced as a whole (copy-on-write) since it is
+	 * read by the paint-method without locking.
+	 */
+	private volatile Entry[]	entries;
+
+	public TileFallback( )
+	{
+		this.entries = new Entry[0];
+	}
+
+	/**
+	 * Adds the images of the given {@link Tile}s (the ones without an image are ignored). The images have to be added before the
+	 * {@link Tile}s get their new {@link TileNumber}.
+	 * @param tiles
+	 */
+	public void add( List<Tile> tiles )
+	{
+		List<Entry> newEntries = new ArrayList<>( );
+		for ( Tile tile : tiles )
+		{
+			if ( tile.hasImage( ) )
+				newEntries.add( new Entry( tile.getTileNumber( ), tile.getImage( ) ) );
+		}
+		if ( newEntries.isEmpty( ) )
+			return;
+
+		// keep the latest images, drop the oldest ones
+		Entry[] oldEntries = this.entries;
+		int numOld = Math.min( oldEntries.length, Math.max( 0, MAX_IMAGES - newEntries.size( ) ) );
+		List<Entry> result = new ArrayList<>( );
+		for ( int i = oldEntries.length - numOld; i < oldEntries.length; i++ )
+			result.add( oldEntries[i] );
+		result.addAll( newEntries.subList( Math.max( 0, newEntries.size( ) - MAX_IMAGES ), newEntries.size( ) ) );
+
+		// stable sort: coarse before fine, older before newer
+		Collections.sort( result, new Comparator<Entry>( )
+		{
+			@Override
+			public int compare( Entry o1, Entry o2 )
+			{
+				return Integer.compare( o1.zoom, o2.zoom );
+			}
+		} );
+		this.entries = result.toArray( new Entry[result.size( )] );
+	}
+
+	/**
+	 * Drops all images (e.g. as soon as all {@link Tile}s have their own image).
+	 */
+	public void clear( )
+	{
+		if ( this.entries.length > 0 )
+			this.entries = new Entry[0];
+	}
+
+	public int size( )
+	{
+		return this.entries.length;
+	}
+
+	/**
+	 * Draws the parts of the kept images covering the area of the {@link Tile} having the given {@link TileNumber}.
+	 * @param gr
+	 * @param tileNumber - the {@link TileNumber} of the {@link Tile} whose image is missing
+	 * @param x - position of the {@link Tile}
+	 * @param y - position of the {@link Tile}
+	 * @return - true if something was drawn
+	 */
+	public boolean draw( Graphics2D gr, TileNumber tileNumber, int x, int y )
+	{
+		Entry[] entries = this.entries;
+		if ( entries.length == 0 )
+			return false;
+
+		double size = 1.0 / ( 1L << tileNumber.getZoom( ) );
+		double minX = ( tileNumber.getX( ) - 0.5 ) * size;
+		double minY = ( tileNumber.getY( ) - 0.5 ) * size;
+		double maxX = minX + size;
+		double maxY = minY + size;
+
+		boolean drawn = false;
+		for ( int i = 0; i < entries.length; i++ )
+		{
+			Entry entry = entries[i];
+
+			// the part of the image overlapping the tile (world-coordinates)
+			double ix0 = Math.max( minX, entry.minX );
+			double iy0 = Math.max( minY, entry.minY );
+			double ix1 = Math.min( maxX, entry.minX + entry.size );
+			double iy1 = Math.min( maxY, entry.minY + entry.size );
+			if ( ( ix0 >= ix1 ) || ( iy0 >= iy1 ) )
+				continue;
+
+			// world-coordinates --> pixels of the tile (destination) and of the image (source)
+			double scale = Tile.TILE_SIZE_PX / size;
+			double entryScale = Tile.TILE_SIZE_PX / entry.size;
+			int dx0 = x + ( int ) Math.floor( ( ix0 - minX ) * scale );
+			int dy0 = y + ( int ) Math.floor( ( iy0 - minY ) * scale );
+			int dx1 = x + ( int ) Math.ceil( ( ix1 - minX ) * scale );
+			int dy1 = y + ( int ) Math.ceil( ( iy1 - minY ) * scale );
+			int sx0 = ( int ) Math.floor( ( ix0 - entry.minX ) * entryScale );
+			int sy0 = ( int ) Math.floor( ( iy0 - entry.minY ) * entryScale );
+			int sx1 = ( int ) Math.ceil( ( ix1 - entry.minX ) * entryScale );
+			int sy1 = ( int ) Math.ceil( ( iy1 - entry.minY ) * entryScale );
+			gr.drawImage( entry.image, dx0, dy0, dx1, dy1, sx0, sy0, sx1, sy1, null );
+			drawn = true;
+		}
+		return drawn;
+	}
+
+	/**
+	 * An image and the area it covers in world-coordinates (tile-numbers at zoom-level 0).
+	 */
+	private static final class Entry
+	{
+		private final int		zoom;
+		private final double	minX;
+		private final double	minY;
+		private final double	size;
+		private final Image		image;
+
+		public Entry( TileNumber tileNumber, Image image )
+		{
+			// the image is centered at the tile-number
+			this.zoom = tileNumber.getZoom( );
+			this.size = 1.0 / ( 1L << this.zoom );
+			this.minX = ( tileNumber.getX( ) - 0.5 ) * this.size;
+			this.minY = ( tileNumber.getY( ) - 0.5 ) * this.size;
+			this.image = image;
+		}
+	}
+}
@@ -15,5 +15,11 @@ package thobe.mapview.kernel.mapprovider;
  */
 public enum MapProvider
 {
-	GOOGLE, BING, OSMStaticMapLite;
+	GOOGLE, BING, OSMStaticMapLite,
+
+	/**
+	 * Any tile-server addressing the images by zoom-level and tile-index (slippy-map, e.g. /{z}/{x}/{y}.png), see
+	 * {@link XYZTileURLBuilder}.
+	 */
+	XYZ;
 }
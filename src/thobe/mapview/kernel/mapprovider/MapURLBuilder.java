@@ -79,12 +79,49 @@ public abstract class MapURLBuilder
 		return this.buildURL( center, zoomLevel, width, height, MapType.ROADMAP );
 	}
 
+	/**
+	 * Returns true if the images are addressed by tiles (see {@link MapURLBuilder#buildTileURL(int, long, long, MapType)}) instead of being
+	 * rendered around an arbitrary center. The image of a tile covers the whole tile, so it can be requested only for the integer
+	 * tile-numbers.
+	 * @return
+	 */
+	public boolean isTileAddressed( )
+	{
+		return false;
+	}
+
+	/**
+	 * Create a {@link URL} from which the image of the tile [x,y] can be loaded. Only supported if the images are addressed by tiles
+	 * (see {@link MapURLBuilder#isTileAddressed()}).
+	 * @param zoomLevel - the zoom-level of the tile
+	 * @param x - the x-index of the tile
+	 * @param y - the y-index of the tile
+	 * @param mapType - the type of the map
+	 * @return
+	 * @throws MalformedURLException
+	 */
+	public URL buildTileURL( int zoomLevel, long x, long y, MapType mapType ) throws MalformedURLException
+	{
+		throw new UnsupportedOperationException( this.getClass( ).getSimpleName( ) + " does not support tile-addressed images." );
+	}
+
 	/**
 	 * Returns the corresponding {@link MapProvider}.
 	 * @return
 	 */
 	public abstract MapProvider getProvider( );
 
+	/**
+	 * Returns the id of the source of the images for builders sharing the same {@link MapProvider} but loading different images (e.g. the
+	 * tile-servers of {@link XYZTileURLBuilder}), 0 if the {@link MapProvider} already identifies the source. The id is part of the key
+	 * of the cached images, hence it has to be stable across runs.
+	 * @return
+	 */
+	public int getSourceId( )
+	{
+		return 0;
+	}
+
 	/**
 	 * Inner class representing a URL-query. By adding queryparameters the corresponding query-part of the url can be retrieved via
 	 * toString().
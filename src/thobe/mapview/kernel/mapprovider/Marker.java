@@ -57,6 +57,16 @@ public class Marker
 		return position;
 	}
 
+	/**
+	 * Sets the position, a {@link Marker} shown by a {@link thobe.mapview.kernel.MarkerLayer} has to be moved using
+	 * {@link thobe.mapview.kernel.MarkerLayer#move(Marker, GeoCoord)} instead.
+	 * @param position
+	 */
+	public void setPosition( GeoCoord position )
+	{
+		this.position = position;
+	}
+
 	public String getColorHex( )
 	{
 		return colorToHexColor( this.color );
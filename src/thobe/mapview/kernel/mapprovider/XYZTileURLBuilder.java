@@ -0,0 +1,129 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.mapprovider;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+
+import thobe.mapview.kernel.tilesystem.GeoCoord;
+import thobe.mapview.kernel.tilesystem.MercatorProjection;
+import thobe.mapview.kernel.tilesystem.Tile;
+import thobe.mapview.kernel.tilesystem.TileNumber;
+
+/**
+ * {@link MapURLBuilder} implementation for tile-servers addressing the images by zoom-level and tile-index (slippy-map tiles, e.g.
+ * https://tile.openstreetmap.org/{z}/{x}/{y}.png). In contrast to the static-map services the images are not rendered for each request,
+ * the same tile is always loaded from the same {@link URL} (perfectly cacheable). The {@link URL} is built from a template containing the
+ * placeholders {z}, {x} and {y}, any protocol supported by {@link URL} can be used (e.g. file:-urls for tiles stored in a local
+ * directory). All images have the size {@link Tile#TILE_SIZE_PX}, the {@link MapType} is ignored (defined by the server). All
+ * tile-servers share the {@link MapProvider#XYZ}, they are told apart by the source-id (see {@link XYZTileURLBuilder#getSourceId()}).
+ * @author Thomas Obenaus
+ * @source XYZTileURLBuilder.java
+ * @date Jan 10, 2014
+ */
+public class XYZTileURLBuilder extends MapURLBuilder
+{
+	public static final String	DEFAULT_URL_TEMPLATE	= "https://tile.openstreetmap.org/{z}/{x}/{y}.png";
+
+	private String				urlTemplate;
+
+	public XYZTileURLBuilder( )
+	{
+		this( DEFAULT_URL_TEMPLATE );
+	}
+
+	/**
+	 * Ctor
+	 * @param urlTemplate - template of the {@link URL}s containing the placeholders {z}, {x} and {y}
+	 */
+	public XYZTileURLBuilder( String urlTemplate )
+	{
+		if ( !urlTemplate.contains( "{z}" ) || !urlTemplate.contains( "{x}" ) || !urlTemplate.contains( "{y}" ) )
+			throw new IllegalArgumentException( "The url-template has to contain {z}, {x} and {y} (was " + urlTemplate + ")." );
+		this.urlTemplate = urlTemplate;
+	}
+
+	/**
+	 * Returns a {@link XYZTileURLBuilder} for the tiles stored in the given directory (layout {z}/{x}/{y}.png).
+	 * @param directory
+	 * @return
+	 */
+	public static XYZTileURLBuilder forDirectory( File directory )
+	{
+		return new XYZTileURLBuilder( directory.toURI( ) + "{z}/{x}/{y}.png" );
+	}
+
+	@Override
+	public boolean isTileAddressed( )
+	{
+		return true;
+	}
+
+	@Override
+	public URL buildTileURL( int zoomLevel, long x, long y, MapType mapType ) throws MalformedURLException
+	{
+		long numTiles = 1L << zoomLevel;
+		if ( ( y < 0 ) || ( y >= numTiles ) )
+			throw new IllegalArgumentException( "The tile [" + x + "," + y + "] is outside of the map (zoom-level " + zoomLevel + ")." );
+
+		// the map is repeated horizontally
+		long wrappedX = ( ( x % numTiles ) + numTiles ) % numTiles;
+		String url = this.urlTemplate.replace( "{z}", Integer.toString( zoomLevel ) ).replace( "{x}", Long.toString( wrappedX ) ).replace( "{y}", Long.toString( y ) );
+		return new URL( url );
+	}
+
+	/**
+	 * Returns the {@link URL} of the tile containing the given center (the size is ignored).
+	 */
+	@Override
+	public URL buildURL( GeoCoord center, int zoomLevel, int width, int height, MapType mapType ) throws MalformedURLException
+	{
+		TileNumber tileNumber = MercatorProjection.geoCoordToTileNumber( center, zoomLevel );
+		return this.buildTileURL( zoomLevel, tileNumber.getXIndex( ), tileNumber.getYIndex( ), mapType );
+	}
+
+	/**
+	 * Returns the {@link URL} of the tile containing the given center (the size is ignored, markers are not supported by tile-servers).
+	 */
+	@Override
+	public URL buildURL( GeoCoord center, int zoomLevel, int width, int height, MapType mapType, List<Marker> markers ) throws MalformedURLException
+	{
+		return this.buildURL( center, zoomLevel, width, height, mapType );
+	}
+
+	@Override
+	public MapProvider getProvider( )
+	{
+		return MapProvider.XYZ;
+	}
+
+	/**
+	 * Returns the hash of the url-template ({@link String#hashCode()} is stable across runs), so the images of different tile-servers are
+	 * not mixed up within the caches.
+	 */
+	@Override
+	public int getSourceId( )
+	{
+		return this.urlTemplate.hashCode( );
+	}
+
+	public String getUrlTemplate( )
+	{
+		return urlTemplate;
+	}
+
+	@Override
+	public String toString( )
+	{
+		return "XYZTileURLBuilder [" + this.urlTemplate + "]";
+	}
+}
@@ -0,0 +1,675 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tilecache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Logger;
+
+/**
+ * Persistent store for the raw (encoded PNG/JPEG) bytes of tile-images. The store consists of two files within a directory:
+ * <ul>
+ * <li><b>tiles.dat</b> - append-only data file containing the bytes of the images</li>
+ * <li><b>tiles.idx</b> - memory-mapped index (open-addressing hash-table) that maps a {@link TileKey} to offset and length of the image
+ * within the data file</li>
+ * </ul>
+ * Looking up a {@link TileKey} only touches the memory-mapped index. If the data file exceeds the configured size limit the least recently
+ * used images are evicted by compacting the data file. The images are copied into the compacted file without holding the lock of the
+ * store, so reading is not blocked meanwhile. Writers are serialized, {@link DiskTileStore#putAsync(TileKey, byte[])} hands the bytes
+ * over to the writer-thread of the store (e.g. to keep compactions off the threads decoding the tile-images).
+ * @author Thomas Obenaus
+ * @source DiskTileStore.java
+ * @date Dec 29, 2013
+ */
+public class DiskTileStore
+{
+	private static final String	DATA_FILE_NAME		= "tiles.dat";
+	private static final String	INDEX_FILE_NAME		= "tiles.idx";
+
+	private static final int	MAGIC				= 0x4D565453;
+	private static final int	VERSION				= 2;
+
+	/**
+	 * Layout of the header of the index: magic (int), version (int), capacity (int), count (int), end of data (long), access-sequence
+	 * (long).
+	 */
+	private static final int	HEADER_SIZE			= 32;
+	private static final int	HDR_CAPACITY		= 8;
+	private static final int	HDR_COUNT			= 12;
+	private static final int	HDR_DATA_END		= 16;
+	private static final int	HDR_SEQUENCE		= 24;
+
+	/**
+	 * Layout of one slot of the index: key part 1 (long), key part 2 (long), key part 3 (long), offset+1 within the data file (long, 0
+	 * means empty), length (int), last access (int).
+	 */
+	private static final int	SLOT_SIZE			= 40;
+	private static final int	SLOT_KEY1			= 0;
+	private static final int	SLOT_KEY2			= 8;
+	private static final int	SLOT_KEY3			= 16;
+	private static final int	SLOT_OFFSET			= 24;
+	private static final int	SLOT_LENGTH			= 32;
+	private static final int	SLOT_ACCESS			= 36;
+
+	private static final int	INITIAL_CAPACITY	= 4096;
+
+	/**
+	 * Max. ratio between used and available slots of the index.
+	 */
+	private static final double	MAX_LOAD_FACTOR		= 0.7;
+
+	/**
+	 * On eviction the data file will be compacted to this ratio of the size limit.
+	 */
+	private static final double	COMPACTION_RATIO	= 0.75;
+
+	/**
+	 * Max. number of images waiting for the writer-thread, further images are not stored.
+	 */
+	private static final int	WRITE_QUEUE_CAPACITY	= 64;
+
+	private Logger				log;
+	private File				directory;
+	private long				maxBytes;
+
+	private RandomAccessFile	dataFile;
+	private FileChannel			dataChannel;
+	private RandomAccessFile	indexFile;
+	private FileChannel			indexChannel;
+	private MappedByteBuffer	index;
+
+	private int					capacity;
+
+	/**
+	 * Serializes the writers ({@link DiskTileStore#put(TileKey, byte[])}), held during a compaction while the lock of the store is
+	 * released. Has to be taken before the lock of the store.
+	 */
+	private Object				writeLock;
+
+	/**
+	 * Images waiting to be written by the writer-thread (see {@link DiskTileStore#putAsync(TileKey, byte[])}).
+	 */
+	private BlockingQueue<PendingWrite>	writeQueue;
+	private Thread				writer;
+
+	private long				hits;
+	private long				misses;
+	private long				evictions;
+
+	/**
+	 * Ctor
+	 * @param log
+	 * @param directory - the directory where the files of the store are located (will be created if it does not exist)
+	 * @param maxBytes - size limit of the data file (in bytes)
+	 * @throws IOException
+	 */
+	public DiskTileStore( Logger log, File directory, long maxBytes ) throws IOException
+	{
+		this.log = log;
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.hits = 0;
+		this.misses = 0;
+		this.evictions = 0;
+		this.writeLock = new Object( );
+		this.writeQueue = new ArrayBlockingQueue<>( WRITE_QUEUE_CAPACITY );
+
+		if ( !directory.isDirectory( ) && !directory.mkdirs( ) )
+			throw new IOException( "Unable to create directory " + directory );
+
+		this.openDataFile( );
+		this.openIndex( );
+
+		this.writer = new Thread( new Runnable( )
+		{
+			@Override
+			public void run( )
+			{
+				writeLoop( );
+			}
+		}, "DiskTileStore-Writer" );
+		this.writer.setDaemon( true );
+		this.writer.start( );
+
+		this.log.info( "DiskTileStore opened (dir=" + directory + ", tiles=" + this.getSize( ) + ", bytes=" + this.getCurrentBytes( ) + "/" + maxBytes + ")" );
+	}
+
+	/**
+	 * Returns the bytes of the image for the given {@link TileKey} or null if the image is not stored.
+	 * @param key
+	 * @return
+	 */
+	public synchronized byte[] get( TileKey key )
+	{
+		if ( this.index == null )
+			return null;
+
+		int slot = this.findSlot( key1( key ), key2( key ), key3( key ) );
+		long offset = this.index.getLong( slotPos( slot ) + SLOT_OFFSET ) - 1;
+		if ( offset < 0 )
+		{
+			this.misses++;
+			return null;
+		}
+
+		int length = this.index.getInt( slotPos( slot ) + SLOT_LENGTH );
+		byte[] data = new byte[length];
+		try
+		{
+			ByteBuffer buffer = ByteBuffer.wrap( data );
+			while ( buffer.hasRemaining( ) )
+			{
+				if ( this.dataChannel.read( buffer, offset + buffer.position( ) ) < 0 )
+					throw new IOException( "Unexpected end of " + DATA_FILE_NAME );
+			}
+		}
+		catch ( IOException e )
+		{
+			this.log.warning( "Unable to read tile " + key + " from disk: " + e.getLocalizedMessage( ) );
+			this.misses++;
+			return null;
+		}
+
+		this.index.putInt( slotPos( slot ) + SLOT_ACCESS, this.nextAccess( ) );
+		this.hits++;
+		return data;
+	}
+
+	/**
+	 * Returns true if the image for the given {@link TileKey} is stored.
+	 * @param key
+	 * @return
+	 */
+	public synchronized boolean contains( TileKey key )
+	{
+		if ( this.index == null )
+			return false;
+		int slot = this.findSlot( key1( key ), key2( key ), key3( key ) );
+		return this.index.getLong( slotPos( slot ) + SLOT_OFFSET ) != 0;
+	}
+
+	/**
+	 * Appends the given bytes of the image for the given {@link TileKey} to the store. Least recently used images will be evicted if the
+	 * size limit is exceeded. Blocks while another image is written or the store is compacted, see
+	 * {@link DiskTileStore#putAsync(TileKey, byte[])}.
+	 * @param key
+	 * @param data
+	 */
+	public void put( TileKey key, byte[] data )
+	{
+		if ( ( key == null ) || ( data == null ) || ( data.length == 0 ) || ( data.length > this.maxBytes ) )
+			return;
+
+		synchronized ( this.writeLock )
+		{
+			try
+			{
+				// evict least recently used images
+				if ( this.getCurrentBytes( ) + data.length > this.maxBytes )
+					this.compact( ( long ) ( this.maxBytes * COMPACTION_RATIO ) - data.length );
+
+				synchronized ( this )
+				{
+					if ( this.index == null )
+						return;
+
+					// grow the index if too many slots are used
+					if ( this.getSize( ) + 1 > this.capacity * MAX_LOAD_FACTOR )
+						this.rebuildIndex( this.capacity * 2 );
+
+					long k1 = key1( key );
+					long k2 = key2( key );
+					long k3 = key3( key );
+					int slot = this.findSlot( k1, k2, k3 );
+					boolean isNew = this.index.getLong( slotPos( slot ) + SLOT_OFFSET ) == 0;
+
+					// append the data
+					long offset = this.getCurrentBytes( );
+					ByteBuffer buffer = ByteBuffer.wrap( data );
+					while ( buffer.hasRemaining( ) )
+						this.dataChannel.write( buffer, offset + buffer.position( ) );
+
+					this.index.putLong( HDR_DATA_END, offset + data.length );
+					this.writeSlot( slot, k1, k2, k3, offset, data.length, this.nextAccess( ) );
+					if ( isNew )
+						this.index.putInt( HDR_COUNT, this.getSize( ) + 1 );
+				}
+			}
+			catch ( IOException e )
+			{
+				this.log.warning( "Unable to write tile " + key + " to disk: " + e.getLocalizedMessage( ) );
+			}
+		}
+	}
+
+	/**
+	 * Hands the given bytes of the image for the given {@link TileKey} over to the writer-thread of the store (see
+	 * {@link DiskTileStore#put(TileKey, byte[])}), returns immediately. The image is not stored if too many images are waiting.
+	 * @param key
+	 * @param data - must not be modified afterwards
+	 */
+	public void putAsync( TileKey key, byte[] data )
+	{
+		if ( !this.writeQueue.offer( new PendingWrite( key, data ) ) )
+			this.log.fine( "Tile " + key + " not written to disk, too many tiles are waiting." );
+	}
+
+	private void writeLoop( )
+	{
+		while ( !Thread.currentThread( ).isInterrupted( ) )
+		{
+			try
+			{
+				PendingWrite write = this.writeQueue.take( );
+				this.put( write.key, write.data );
+			}
+			catch ( InterruptedException e )
+			{
+				break;
+			}
+			catch ( RuntimeException e )
+			{
+				this.log.severe( "Unexpected error while writing tiles to disk: " + e.getLocalizedMessage( ) );
+			}
+		}
+	}
+
+	/**
+	 * Stops the writer-thread (images still waiting are dropped), flushes and closes the files of the store.
+	 */
+	public void close( )
+	{
+		this.writer.interrupt( );
+		this.writeQueue.clear( );
+		this.closeFiles( );
+	}
+
+	private synchronized void closeFiles( )
+	{
+		if ( this.index == null )
+			return;
+		try
+		{
+			this.index.force( );
+			this.dataChannel.force( false );
+			this.dataFile.close( );
+			this.indexFile.close( );
+		}
+		catch ( IOException e )
+		{
+			this.log.warning( "Unable to close DiskTileStore: " + e.getLocalizedMessage( ) );
+		}
+		this.index = null;
+	}
+
+	/**
+	 * Number of images in the store.
+	 * @return
+	 */
+	public synchronized int getSize( )
+	{
+		return ( this.index == null ) ? 0 : this.index.getInt( HDR_COUNT );
+	}
+
+	/**
+	 * Number of bytes used in the data file.
+	 * @return
+	 */
+	public synchronized long getCurrentBytes( )
+	{
+		return ( this.index == null ) ? 0 : this.index.getLong( HDR_DATA_END );
+	}
+
+	public synchronized long getMaxBytes( )
+	{
+		return maxBytes;
+	}
+
+	public synchronized long getHits( )
+	{
+		return hits;
+	}
+
+	public synchronized long getMisses( )
+	{
+		return misses;
+	}
+
+	public synchronized long getEvictions( )
+	{
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString( )
+	{
+		return "DiskTileStore [tiles=" + this.getSize( ) + ", bytes=" + this.getCurrentBytes( ) + "/" + this.maxBytes + ", hits=" + this.hits + ", misses=" + this.misses + ", evictions=" + this.evictions + "]";
+	}
+
+	private void openDataFile( ) throws IOException
+	{
+		this.dataFile = new RandomAccessFile( new File( this.directory, DATA_FILE_NAME ), "rw" );
+		this.dataChannel = this.dataFile.getChannel( );
+	}
+
+	private void openIndex( ) throws IOException
+	{
+		File file = new File( this.directory, INDEX_FILE_NAME );
+		boolean exists = file.length( ) >= HEADER_SIZE;
+		this.indexFile = new RandomAccessFile( file, "rw" );
+		this.indexChannel = this.indexFile.getChannel( );
+
+		if ( exists )
+		{
+			this.mapIndex( this.indexChannel.size( ) );
+			int capacity = this.index.getInt( HDR_CAPACITY );
+			boolean valid = ( this.index.getInt( 0 ) == MAGIC ) && ( this.index.getInt( 4 ) == VERSION ) && ( capacity > 0 ) && ( this.indexChannel.size( ) == HEADER_SIZE + ( long ) capacity * SLOT_SIZE ) && ( this.index.getLong( HDR_DATA_END ) <= this.dataChannel.size( ) );
+			if ( valid )
+			{
+				this.capacity = capacity;
+				return;
+			}
+			this.log.warning( "Index of DiskTileStore is corrupt or of another version, the store will be cleared." );
+		}
+
+		// create a new (empty) store
+		this.dataChannel.truncate( 0 );
+		this.capacity = INITIAL_CAPACITY;
+		this.mapIndex( HEADER_SIZE + ( long ) this.capacity * SLOT_SIZE );
+		this.clearIndex( 0, 0 );
+	}
+
+	private void mapIndex( long size ) throws IOException
+	{
+		this.index = this.indexChannel.map( FileChannel.MapMode.READ_WRITE, 0, size );
+	}
+
+	/**
+	 * Clears all slots and writes the header of the index.
+	 * @param dataEnd
+	 * @param sequence
+	 */
+	private void clearIndex( long dataEnd, long sequence )
+	{
+		for ( int pos = HEADER_SIZE; pos < HEADER_SIZE + this.capacity * SLOT_SIZE; pos += 8 )
+			this.index.putLong( pos, 0 );
+
+		this.index.putInt( 0, MAGIC );
+		this.index.putInt( 4, VERSION );
+		this.index.putInt( HDR_CAPACITY, this.capacity );
+		this.index.putInt( HDR_COUNT, 0 );
+		this.index.putLong( HDR_DATA_END, dataEnd );
+		this.index.putLong( HDR_SEQUENCE, sequence );
+	}
+
+	/**
+	 * Rebuilds the index using the given capacity. All entries are kept.
+	 * @param newCapacity
+	 * @throws IOException
+	 */
+	private void rebuildIndex( int newCapacity ) throws IOException
+	{
+		List<Slot> slots = this.readSlots( );
+		long dataEnd = this.getCurrentBytes( );
+		long sequence = this.index.getLong( HDR_SEQUENCE );
+
+		this.capacity = newCapacity;
+		this.mapIndex( HEADER_SIZE + ( long ) this.capacity * SLOT_SIZE );
+		this.clearIndex( dataEnd, sequence );
+
+		for ( Slot slot : slots )
+			this.writeSlot( this.findSlot( slot.key1, slot.key2, slot.key3 ), slot.key1, slot.key2, slot.key3, slot.offset, slot.length, slot.access );
+		this.index.putInt( HDR_COUNT, slots.size( ) );
+	}
+
+	/**
+	 * Rewrites the data file keeping only the most recently used images whose size in sum does not exceed the given number of bytes. The
+	 * images are copied into the new data file without holding the lock of the store (reading the old one is not blocked meanwhile), the
+	 * caller has to hold the {@link DiskTileStore#writeLock} instead.
+	 * @param targetBytes
+	 * @throws IOException
+	 */
+	private void compact( long targetBytes ) throws IOException
+	{
+		List<Slot> slots;
+		List<Slot> kept = new ArrayList<>( );
+		FileChannel source;
+		synchronized ( this )
+		{
+			if ( this.index == null )
+				return;
+			slots = this.readSlots( );
+			source = this.dataChannel;
+		}
+
+		// most recently used first
+		Collections.sort( slots, new Comparator<Slot>( )
+		{
+			@Override
+			public int compare( Slot s1, Slot s2 )
+			{
+				return Integer.compare( s2.access, s1.access );
+			}
+		} );
+
+		long keptBytes = 0;
+		for ( Slot slot : slots )
+		{
+			if ( keptBytes + slot.length > targetBytes )
+				break;
+			kept.add( slot );
+			keptBytes += slot.length;
+		}
+
+		// copy the kept images into a new data file (the old one is not modified meanwhile since the writers are serialized)
+		File tmpFile = new File( this.directory, DATA_FILE_NAME + ".tmp" );
+		long newOffset = 0;
+		try (RandomAccessFile tmp = new RandomAccessFile( tmpFile, "rw" ))
+		{
+			FileChannel tmpChannel = tmp.getChannel( );
+			tmpChannel.truncate( 0 );
+			for ( Slot slot : kept )
+			{
+				long transferred = 0;
+				while ( transferred < slot.length )
+					transferred += source.transferTo( slot.offset + transferred, slot.length - transferred, tmpChannel );
+				slot.newOffset = newOffset;
+				newOffset += slot.length;
+			}
+			tmpChannel.force( false );
+		}
+
+		synchronized ( this )
+		{
+			// closed meanwhile
+			if ( this.index == null )
+			{
+				Files.deleteIfExists( tmpFile.toPath( ) );
+				return;
+			}
+
+			// images read during the copy are more recently used now
+			for ( Slot slot : kept )
+				slot.access = this.index.getInt( slotPos( this.findSlot( slot.key1, slot.key2, slot.key3 ) ) + SLOT_ACCESS );
+			Collections.sort( kept, new Comparator<Slot>( )
+			{
+				@Override
+				public int compare( Slot s1, Slot s2 )
+				{
+					return Integer.compare( s1.access, s2.access );
+				}
+			} );
+
+			this.dataFile.close( );
+			Files.move( tmpFile.toPath( ), new File( this.directory, DATA_FILE_NAME ).toPath( ), StandardCopyOption.REPLACE_EXISTING );
+			this.openDataFile( );
+
+			// rebuild the index using the kept images (restart the access-sequence to avoid overflows)
+			this.clearIndex( newOffset, 0 );
+			for ( Slot slot : kept )
+				this.writeSlot( this.findSlot( slot.key1, slot.key2, slot.key3 ), slot.key1, slot.key2, slot.key3, slot.newOffset, slot.length, this.nextAccess( ) );
+			this.index.putInt( HDR_COUNT, kept.size( ) );
+
+			int evicted = slots.size( ) - kept.size( );
+			this.evictions += evicted;
+			this.log.fine( "DiskTileStore compacted: " + evicted + " tiles evicted, " + kept.size( ) + " tiles (" + newOffset + " bytes) kept." );
+		}
+	}
+
+	private List<Slot> readSlots( )
+	{
+		List<Slot> slots = new ArrayList<>( );
+		for ( int i = 0; i < this.capacity; i++ )
+		{
+			int pos = slotPos( i );
+			long offset = this.index.getLong( pos + SLOT_OFFSET ) - 1;
+			if ( offset >= 0 )
+				slots.add( new Slot( this.index.getLong( pos + SLOT_KEY1 ), this.index.getLong( pos + SLOT_KEY2 ), this.index.getLong( pos + SLOT_KEY3 ), offset, this.index.getInt( pos + SLOT_LENGTH ), this.index.getInt( pos + SLOT_ACCESS ) ) );
+		}
+		return slots;
+	}
+
+	/**
+	 * Returns the slot containing the given key or the (empty) slot where the key has to be inserted (linear probing).
+	 * @param k1
+	 * @param k2
+	 * @param k3
+	 * @return
+	 */
+	private int findSlot( long k1, long k2, long k3 )
+	{
+		int slot = ( int ) ( ( mix( ( k1 * 31 + k2 ) * 31 + k3 ) & 0x7fffffffffffffffL ) % this.capacity );
+		while ( true )
+		{
+			int pos = slotPos( slot );
+			if ( this.index.getLong( pos + SLOT_OFFSET ) == 0 )
+				return slot;
+			if ( ( this.index.getLong( pos + SLOT_KEY1 ) == k1 ) && ( this.index.getLong( pos + SLOT_KEY2 ) == k2 ) && ( this.index.getLong( pos + SLOT_KEY3 ) == k3 ) )
+				return slot;
+			slot = ( slot + 1 ) % this.capacity;
+		}
+	}
+
+	private void writeSlot( int slot, long k1, long k2, long k3, long offset, int length, int access )
+	{
+		int pos = slotPos( slot );
+		this.index.putLong( pos + SLOT_KEY1, k1 );
+		this.index.putLong( pos + SLOT_KEY2, k2 );
+		this.index.putLong( pos + SLOT_KEY3, k3 );
+		this.index.putLong( pos + SLOT_OFFSET, offset + 1 );
+		this.index.putInt( pos + SLOT_LENGTH, length );
+		this.index.putInt( pos + SLOT_ACCESS, access );
+	}
+
+	private int nextAccess( )
+	{
+		long sequence = this.index.getLong( HDR_SEQUENCE ) + 1;
+		this.index.putLong( HDR_SEQUENCE, sequence );
+		return ( int ) Math.min( sequence, Integer.MAX_VALUE );
+	}
+
+	private static int slotPos( int slot )
+	{
+		return HEADER_SIZE + slot * SLOT_SIZE;
+	}
+
+	/**
+	 * First part of the key: provider, map-type, zoom and the position within the tile.
+	 * @param key
+	 * @return
+	 */
+	private static long key1( TileKey key )
+	{
+		long provider = ( key.getProvider( ) == null ) ? 0xff : key.getProvider( ).ordinal( );
+		long mapType = ( key.getMapType( ) == null ) ? 0xff : key.getMapType( ).ordinal( );
+		return ( provider << 48 ) | ( mapType << 40 ) | ( ( key.getZoom( ) & 0xffL ) << 32 ) | ( ( key.getOffsetX( ) & 0xffffL ) << 16 ) | ( key.getOffsetY( ) & 0xffffL );
+	}
+
+	/**
+	 * Second part of the key: x and y index of the tile.
+	 * @param key
+	 * @return
+	 */
+	private static long key2( TileKey key )
+	{
+		return ( key.getX( ) << 32 ) | ( key.getY( ) & 0xffffffffL );
+	}
+
+	/**
+	 * Third part of the key: the source-id (tile-servers sharing the provider).
+	 * @param key
+	 * @return
+	 */
+	private static long key3( TileKey key )
+	{
+		return key.getSourceId( ) & 0xffffffffL;
+	}
+
+	private static long mix( long value )
+	{
+		value ^= ( value >>> 33 );
+		value *= 0xff51afd7ed558ccdL;
+		value ^= ( value >>> 33 );
+		return value;
+	}
+
+	private static class Slot
+	{
+		private long	key1;
+		private long	key2;
+		private long	key3;
+		private long	offset;
+		private int		length;
+		private int		access;
+
+		/**
+		 * Offset within the compacted data file.
+		 */
+		private long	newOffset;
+
+		public Slot( long key1, long key2, long key3, long offset, int length, int access )
+		{
+			this.key1 = key1;
+			this.key2 = key2;
+			this.key3 = key3;
+			this.offset = offset;
+			this.length = length;
+			this.access = access;
+			this.newOffset = offset;
+		}
+	}
+
+	/**
+	 * An image waiting for the writer-thread.
+	 */
+	private static class PendingWrite
+	{
+		private TileKey	key;
+		private byte[]	data;
+
+		public PendingWrite( TileKey key, byte[] data )
+		{
+			this.key = key;
+			this.data = data;
+		}
+	}
+}
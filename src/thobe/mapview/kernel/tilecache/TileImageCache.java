@@ -0,0 +1,221 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tilecache;
+
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import thobe.mapview.kernel.tilesystem.Tile;
+
+/**
+ * In-memory cache for decoded tile-images. The cache is bounded by a budget of bytes (estimated size of the decoded images) and evicts the
+ * least recently used images first.
+ * @author Thomas Obenaus
+ * @source TileImageCache.java
+ * @date Dec 28, 2013
+ */
+public class TileImageCache
+{
+	/**
+	 * Images in access-order (least recently used first).
+	 */
+	private LinkedHashMap<TileKey, Entry>	entries;
+
+	/**
+	 * Max. number of bytes the cached images may occupy.
+	 */
+	private long							maxBytes;
+
+	/**
+	 * Number of bytes currently occupied by the cached images.
+	 */
+	private long							currentBytes;
+
+	private long							hits;
+	private long							misses;
+	private long							evictions;
+
+	/**
+	 * Ctor
+	 * @param maxBytes - max. number of bytes the cached images may occupy
+	 */
+	public TileImageCache( long maxBytes )
+	{
+		this.maxBytes = maxBytes;
+		this.currentBytes = 0;
+		this.entries = new LinkedHashMap<>( 256, 0.75f, true );
+		this.hits = 0;
+		this.misses = 0;
+		this.evictions = 0;
+	}
+
+	/**
+	 * Returns the cached image for the given {@link TileKey} or null if the image is not cached.
+	 * @param key
+	 * @return
+	 */
+	public synchronized Image get( TileKey key )
+	{
+		Entry entry = this.entries.get( key );
+		if ( entry == null )
+		{
+			this.misses++;
+			return null;
+		}
+		this.hits++;
+		return entry.image;
+	}
+
+	/**
+	 * Returns true if an image for the given {@link TileKey} is cached. In contrast to {@link TileImageCache#get(TileKey)} neither the
+	 * access-order nor the hit/miss counters are modified.
+	 * @param key
+	 * @return
+	 */
+	public synchronized boolean contains( TileKey key )
+	{
+		return this.entries.containsKey( key );
+	}
+
+	/**
+	 * Adds the given image to the cache. Least recently used images will be evicted if the budget is exceeded.
+	 * @param key
+	 * @param image
+	 */
+	public synchronized void put( TileKey key, Image image )
+	{
+		if ( ( key == null ) || ( image == null ) )
+			return;
+
+		long size = estimateSize( image );
+
+		// never cache images that are larger than the whole budget
+		if ( size > this.maxBytes )
+			return;
+
+		Entry old = this.entries.put( key, new Entry( image, size ) );
+		if ( old != null )
+			this.currentBytes -= old.size;
+		this.currentBytes += size;
+
+		this.evict( );
+	}
+
+	/**
+	 * Removes all images from the cache. The counters are not reset.
+	 */
+	public synchronized void clear( )
+	{
+		this.entries.clear( );
+		this.currentBytes = 0;
+	}
+
+	/**
+	 * Sets the max. number of bytes the cached images may occupy.
+	 * @param maxBytes
+	 */
+	public synchronized void setMaxBytes( long maxBytes )
+	{
+		this.maxBytes = maxBytes;
+		this.evict( );
+	}
+
+	public synchronized long getMaxBytes( )
+	{
+		return maxBytes;
+	}
+
+	public synchronized long getCurrentBytes( )
+	{
+		return currentBytes;
+	}
+
+	public synchronized int getSize( )
+	{
+		return this.entries.size( );
+	}
+
+	public synchronized long getHits( )
+	{
+		return hits;
+	}
+
+	public synchronized long getMisses( )
+	{
+		return misses;
+	}
+
+	public synchronized long getEvictions( )
+	{
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString( )
+	{
+		return "TileImageCache [images=" + this.entries.size( ) + ", bytes=" + this.currentBytes + "/" + this.maxBytes + ", hits=" + this.hits + ", misses=" + this.misses + ", evictions=" + this.evictions + "]";
+	}
+
+	/**
+	 * Removes the least recently used images until the budget is no longer exceeded.
+	 */
+	private void evict( )
+	{
+		Iterator<Map.Entry<TileKey, Entry>> it = this.entries.entrySet( ).iterator( );
+		while ( ( this.currentBytes > this.maxBytes ) && it.hasNext( ) )
+		{
+			Entry eldest = it.next( ).getValue( );
+			it.remove( );
+			this.currentBytes -= eldest.size;
+			this.evictions++;
+		}
+	}
+
+	/**
+	 * Estimates the number of bytes occupied by the given (decoded) image.
+	 * @param image
+	 * @return
+	 */
+	static long estimateSize( Image image )
+	{
+		if ( image instanceof BufferedImage )
+		{
+			DataBuffer dataBuffer = ( ( BufferedImage ) image ).getRaster( ).getDataBuffer( );
+			long bits = ( long ) dataBuffer.getSize( ) * dataBuffer.getNumBanks( ) * DataBuffer.getDataTypeSize( dataBuffer.getDataType( ) );
+			return bits / 8;
+		}
+
+		int width = image.getWidth( null );
+		int height = image.getHeight( null );
+		if ( width <= 0 || height <= 0 )
+		{
+			width = Tile.TILE_SIZE_PX;
+			height = Tile.TILE_SIZE_PX;
+		}
+		// assume 4 bytes per pixel (ARGB)
+		return ( long ) width * height * 4;
+	}
+
+	private static class Entry
+	{
+		private Image	image;
+		private long	size;
+
+		public Entry( Image image, long size )
+		{
+			this.image = image;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tilecache;
+
+import thobe.mapview.kernel.mapprovider.MapProvider;
+import thobe.mapview.kernel.mapprovider.MapType;
+import thobe.mapview.kernel.mapprovider.MapURLBuilder;
+import thobe.mapview.kernel.tilesystem.Tile;
+import thobe.mapview.kernel.tilesystem.TileNumber;
+
+/**
+ * Immutable key that identifies the image of a {@link Tile} independent from its position on the screen. The key consists of the
+ * {@link MapProvider}, the source-id (see {@link MapURLBuilder#getSourceId()}), the {@link MapType}, the zoom-level and the integer x/y
+ * index of the tile. Since the static-map services render an
+ * image centered at an arbitrary {@link TileNumber} the position within the tile (in pixel) is part of the key as well.
+ * @author Thomas Obenaus
+ * @source TileKey.java
+ * @date Dec 28, 2013
+ */
+public final class TileKey
+{
+	private final MapProvider	provider;
+
+	/**
+	 * Identifies the source of the images if several sources share the {@link MapProvider} (see {@link MapURLBuilder#getSourceId()}).
+	 */
+	private final int			sourceId;
+	private final MapType		mapType;
+	private final int			zoom;
+	private final long			x;
+	private final long			y;
+
+	/**
+	 * Position of the image-center within the tile (x-axis) in pixel [0..{@link Tile#TILE_SIZE_PX}-1].
+	 */
+	private final int			offsetX;
+
+	/**
+	 * Position of the image-center within the tile (y-axis) in pixel [0..{@link Tile#TILE_SIZE_PX}-1].
+	 */
+	private final int			offsetY;
+
+	private final int			hash;
+
+	public TileKey( MapProvider provider, MapType mapType, int zoom, long x, long y, int offsetX, int offsetY )
+	{
+		this( provider, 0, mapType, zoom, x, y, offsetX, offsetY );
+	}
+
+	public TileKey( MapProvider provider, int sourceId, MapType mapType, int zoom, long x, long y, int offsetX, int offsetY )
+	{
+		this.provider = provider;
+		this.sourceId = sourceId;
+		this.mapType = mapType;
+		this.zoom = zoom;
+		this.x = x;
+		this.y = y;
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+		this.hash = computeHash( );
+	}
+
+	/**
+	 * Creates the {@link TileKey} for the image of the given {@link TileNumber}.
+	 * @param provider
+	 * @param mapType
+	 * @param tileNumber
+	 * @return
+	 */
+	public static TileKey create( MapProvider provider, MapType mapType, TileNumber tileNumber )
+	{
+		return create( provider, 0, mapType, tileNumber );
+	}
+
+	/**
+	 * Creates the {@link TileKey} for the image of the given {@link TileNumber} loaded using the given {@link MapURLBuilder}.
+	 * @param urlBuilder
+	 * @param mapType
+	 * @param tileNumber
+	 * @return
+	 */
+	public static TileKey create( MapURLBuilder urlBuilder, MapType mapType, TileNumber tileNumber )
+	{
+		return create( urlBuilder.getProvider( ), urlBuilder.getSourceId( ), mapType, tileNumber );
+	}
+
+	private static TileKey create( MapProvider provider, int sourceId, MapType mapType, TileNumber tileNumber )
+	{
+		int offsetX = ( int ) ( tileNumber.getXFrac( ) * Tile.TILE_SIZE_PX );
+		int offsetY = ( int ) ( tileNumber.getYFrac( ) * Tile.TILE_SIZE_PX );
+		return new TileKey( provider, sourceId, mapType, tileNumber.getZoom( ), tileNumber.getXInt( ), tileNumber.getYInt( ), offsetX, offsetY );
+	}
+
+	public MapProvider getProvider( )
+	{
+		return provider;
+	}
+
+	public int getSourceId( )
+	{
+		return sourceId;
+	}
+
+	public MapType getMapType( )
+	{
+		return mapType;
+	}
+
+	public int getZoom( )
+	{
+		return zoom;
+	}
+
+	public long getX( )
+	{
+		return x;
+	}
+
+	public long getY( )
+	{
+		return y;
+	}
+
+	public int getOffsetX( )
+	{
+		return offsetX;
+	}
+
+	public int getOffsetY( )
+	{
+		return offsetY;
+	}
+
+	private int computeHash( )
+	{
+		int result = 31 + ( ( provider == null ) ? 0 : provider.hashCode( ) );
+		result = 31 * result + sourceId;
+		result = 31 * result + ( ( mapType == null ) ? 0 : mapType.hashCode( ) );
+		result = 31 * result + zoom;
+		result = 31 * result + ( int ) ( x ^ ( x >>> 32 ) );
+		result = 31 * result + ( int ) ( y ^ ( y >>> 32 ) );
+		result = 31 * result + offsetX;
+		result = 31 * result + offsetY;
+		return result;
+	}
+
+	@Override
+	public int hashCode( )
+	{
+		return this.hash;
+	}
+
+	@Override
+	public boolean equals( Object obj )
+	{
+		if ( this == obj )
+			return true;
+		if ( !( obj instanceof TileKey ) )
+			return false;
+		TileKey other = ( TileKey ) obj;
+		return ( this.hash == other.hash ) && ( this.provider == other.provider ) && ( this.sourceId == other.sourceId ) && ( this.mapType == other.mapType ) && ( this.zoom == other.zoom ) && ( this.x == other.x ) && ( this.y == other.y ) && ( this.offsetX == other.offsetX ) && ( this.offsetY == other.offsetY );
+	}
+
+	@Override
+	public String toString( )
+	{
+		return "[" + provider + ( ( sourceId != 0 ) ? "#" + Integer.toHexString( sourceId ) : "" ) + "|" + mapType + "|z=" + zoom + "|" + x + "," + y + "|+" + offsetX + "," + offsetY + "]";
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tilecache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only offline source of pre-rendered tile-images (slippy-map tiles addressed by zoom-level and tile-index), packed into a single
+ * file (see {@link TilePackageWriter}). Layout of the file:
+ * <ul>
+ * <li>header - magic (int), version (int), number of tiles (int), min. zoom-level (int), max. zoom-level (int), reserved (int), offset of
+ * the index (long)</li>
+ * <li>data - the raw bytes of the images, none of them crosses a multiple of {@link TilePackage#CHUNK_SIZE}</li>
+ * <li>index - one entry per image, sorted by zoom-level, x and y: key (long), offset within the file (long), length (int)</li>
+ * </ul>
+ * The whole file is memory-mapped, looking up an image is a binary search within the index and the image is returned as slice of the
+ * mapped file (no copy, no lock). Thread-safe.
+ * @author Thomas Obenaus
+ * @source TilePackage.java
+ * @date Jan 11, 2014
+ */
+public class TilePackage
+{
+	static final int					MAGIC				= 0x4D565450;
+	static final int					VERSION				= 1;
+
+	static final int					HEADER_SIZE			= 32;
+	static final int					HDR_COUNT			= 8;
+	static final int					HDR_MIN_ZOOM		= 12;
+	static final int					HDR_MAX_ZOOM		= 16;
+	static final int					HDR_INDEX_OFFSET	= 24;
+
+	static final int					ENTRY_SIZE			= 20;
+	static final int					ENTRY_KEY			= 0;
+	static final int					ENTRY_OFFSET		= 8;
+	static final int					ENTRY_LENGTH		= 16;
+
+	/**
+	 * The data is mapped in chunks of this size (a single mapping is limited to 2 GB).
+	 */
+	static final long					CHUNK_SIZE			= 1L << 30;
+
+	/**
+	 * Max. zoom-level supported by the key of the index (28 bits per tile-index).
+	 */
+	public static final int				MAX_ZOOM			= 28;
+
+	private File						file;
+	private RandomAccessFile			randomAccessFile;
+	private MappedByteBuffer			index;
+	private MappedByteBuffer[]			chunks;
+	private int							count;
+	private int							minZoom;
+	private int							maxZoom;
+
+	private AtomicLong					hits;
+	private AtomicLong					misses;
+
+	/**
+	 * Opens the given package.
+	 * @param file
+	 * @throws IOException - if the file is not readable or no valid package
+	 */
+	public TilePackage( File file ) throws IOException
+	{
+		this.file = file;
+		this.hits = new AtomicLong( 0 );
+		this.misses = new AtomicLong( 0 );
+		this.randomAccessFile = new RandomAccessFile( file, "r" );
+		try
+		{
+			FileChannel channel = this.randomAccessFile.getChannel( );
+			long fileSize = channel.size( );
+			if ( fileSize < HEADER_SIZE )
+				throw new IOException( file + " is no tile-package (too small)." );
+
+			MappedByteBuffer header = channel.map( FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE );
+			if ( header.getInt( 0 ) != MAGIC )
+				throw new IOException( file + " is no tile-package (wrong magic)." );
+			if ( header.getInt( 4 ) != VERSION )
+				throw new IOException( "Unsupported version " + header.getInt( 4 ) + " of tile-package " + file + "." );
+			this.count = header.getInt( HDR_COUNT );
+			this.minZoom = header.getInt( HDR_MIN_ZOOM );
+			this.maxZoom = header.getInt( HDR_MAX_ZOOM );
+			long indexOffset = header.getLong( HDR_INDEX_OFFSET );
+			if ( ( indexOffset < HEADER_SIZE ) || ( indexOffset + ( long ) this.count * ENTRY_SIZE > fileSize ) )
+				throw new IOException( "The tile-package " + file + " is corrupt (index out of bounds)." );
+
+			this.index = channel.map( FileChannel.MapMode.READ_ONLY, indexOffset, ( long ) this.count * ENTRY_SIZE );
+			int numChunks = ( int ) ( ( indexOffset + CHUNK_SIZE - 1 ) / CHUNK_SIZE );
+			this.chunks = new MappedByteBuffer[numChunks];
+			for ( int i = 0; i < numChunks; i++ )
+			{
+				long start = i * CHUNK_SIZE;
+				this.chunks[i] = channel.map( FileChannel.MapMode.READ_ONLY, start, Math.min( CHUNK_SIZE, indexOffset - start ) );
+			}
+		}
+		catch ( IOException e )
+		{
+			this.randomAccessFile.close( );
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the raw bytes of the image of the given tile as read-only slice of the mapped file (position 0, limit is the length of the
+	 * image) or null if the package does not contain the tile.
+	 * @param zoom
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public ByteBuffer get( int zoom, long x, long y )
+	{
+		int entry = this.find( zoom, x, y );
+		if ( entry < 0 )
+		{
+			this.misses.incrementAndGet( );
+			return null;
+		}
+		this.hits.incrementAndGet( );
+
+		int pos = entry * ENTRY_SIZE;
+		long offset = this.index.getLong( pos + ENTRY_OFFSET );
+		int length = this.index.getInt( pos + ENTRY_LENGTH );
+		int start = ( int ) ( offset % CHUNK_SIZE );
+
+		ByteBuffer slice = this.chunks[( int ) ( offset / CHUNK_SIZE )].duplicate( );
+		slice.limit( start + length );
+		slice.position( start );
+		return slice.slice( );
+	}
+
+	public boolean contains( int zoom, long x, long y )
+	{
+		return this.find( zoom, x, y ) >= 0;
+	}
+
+	/**
+	 * Returns the number of the entry of the given tile within the index (binary search) or -1 if the package does not contain the tile.
+	 * @param zoom
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	private int find( int zoom, long x, long y )
+	{
+		if ( ( zoom < this.minZoom ) || ( zoom > this.maxZoom ) || !isValid( zoom, x, y ) )
+			return -1;
+
+		long key = toKey( zoom, x, y );
+		int low = 0;
+		int high = this.count - 1;
+		while ( low <= high )
+		{
+			int mid = ( low + high ) >>> 1;
+			long midKey = this.index.getLong( mid * ENTRY_SIZE + ENTRY_KEY );
+			if ( midKey < key )
+				low = mid + 1;
+			else if ( midKey > key )
+				high = mid - 1;
+			else return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true if the given tile exists (the tile-index is within the map, the zoom-level is supported by the package-format).
+	 * @param zoom
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	static boolean isValid( int zoom, long x, long y )
+	{
+		if ( ( zoom < 0 ) || ( zoom > MAX_ZOOM ) )
+			return false;
+		long numTiles = 1L << zoom;
+		return ( x >= 0 ) && ( x < numTiles ) && ( y >= 0 ) && ( y < numTiles );
+	}
+
+	/**
+	 * Returns the key of the index for the given (valid) tile, the keys are ordered by zoom-level, x and y.
+	 * @param zoom
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	static long toKey( int zoom, long x, long y )
+	{
+		return ( ( long ) zoom << ( 2 * MAX_ZOOM ) ) | ( x << MAX_ZOOM ) | y;
+	}
+
+	/**
+	 * Closes the file. The mapped memory is released as soon as the slices returned by {@link TilePackage#get(int, long, long)} are not
+	 * referenced anymore.
+	 * @throws IOException
+	 */
+	public void close( ) throws IOException
+	{
+		this.randomAccessFile.close( );
+	}
+
+	public File getFile( )
+	{
+		return file;
+	}
+
+	public int getNumTiles( )
+	{
+		return count;
+	}
+
+	public int getMinZoom( )
+	{
+		return minZoom;
+	}
+
+	public int getMaxZoom( )
+	{
+		return maxZoom;
+	}
+
+	public long getHits( )
+	{
+		return this.hits.get( );
+	}
+
+	public long getMisses( )
+	{
+		return this.misses.get( );
+	}
+
+	@Override
+	public String toString( )
+	{
+		return "TilePackage [file=" + this.file + ", tiles=" + this.count + ", zoom=" + this.minZoom + "-" + this.maxZoom + ", hits=" + this.getHits( ) + ", misses=" + this.getMisses( ) + "]";
+	}
+}
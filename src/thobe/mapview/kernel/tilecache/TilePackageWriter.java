@@ -0,0 +1,162 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tilecache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes a {@link TilePackage}: The images are appended to the file in the order they are added, the sorted index and the header are
+ * written on {@link TilePackageWriter#close()}. Not thread-safe.
+ * @author Thomas Obenaus
+ * @source TilePackageWriter.java
+ * @date Jan 11, 2014
+ */
+public class TilePackageWriter
+{
+	private File				file;
+	private DataOutputStream	out;
+
+	/**
+	 * Offset (within the file) of the next image.
+	 */
+	private long				offset;
+
+	private List<Entry>			entries;
+	private int					minZoom;
+	private int					maxZoom;
+
+	/**
+	 * Ctor, an existing file will be overwritten.
+	 * @param file
+	 * @throws IOException
+	 */
+	public TilePackageWriter( File file ) throws IOException
+	{
+		this.file = file;
+		this.out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ), 64 * 1024 ) );
+		this.entries = new ArrayList<>( );
+		this.minZoom = Integer.MAX_VALUE;
+		this.maxZoom = Integer.MIN_VALUE;
+
+		// placeholder, the header is written on close
+		this.out.write( new byte[TilePackage.HEADER_SIZE] );
+		this.offset = TilePackage.HEADER_SIZE;
+	}
+
+	/**
+	 * Adds the raw bytes of the image of the given tile.
+	 * @param zoom
+	 * @param x
+	 * @param y
+	 * @param data
+	 * @throws IOException
+	 */
+	public void add( int zoom, long x, long y, byte[] data ) throws IOException
+	{
+		if ( !TilePackage.isValid( zoom, x, y ) )
+			throw new IllegalArgumentException( "Invalid tile [" + x + "," + y + "] (zoom-level " + zoom + ")." );
+		if ( data.length > TilePackage.CHUNK_SIZE )
+			throw new IllegalArgumentException( "Image too large (" + data.length + " bytes)." );
+
+		// an image must not cross the border of a chunk (mapped separately)
+		long chunkEnd = ( this.offset / TilePackage.CHUNK_SIZE + 1 ) * TilePackage.CHUNK_SIZE;
+		if ( this.offset + data.length > chunkEnd )
+		{
+			this.out.write( new byte[( int ) ( chunkEnd - this.offset )] );
+			this.offset = chunkEnd;
+		}
+
+		this.out.write( data );
+		this.entries.add( new Entry( TilePackage.toKey( zoom, x, y ), this.offset, data.length ) );
+		this.offset += data.length;
+		this.minZoom = Math.min( this.minZoom, zoom );
+		this.maxZoom = Math.max( this.maxZoom, zoom );
+	}
+
+	public int getNumTiles( )
+	{
+		return this.entries.size( );
+	}
+
+	/**
+	 * Returns the number of bytes written so far (without the index).
+	 * @return
+	 */
+	public long getNumBytes( )
+	{
+		return this.offset;
+	}
+
+	/**
+	 * Writes the index and the header and closes the file.
+	 * @throws IOException - e.g. if a tile was added twice
+	 */
+	public void close( ) throws IOException
+	{
+		Collections.sort( this.entries, new Comparator<Entry>( )
+		{
+			@Override
+			public int compare( Entry o1, Entry o2 )
+			{
+				return Long.compare( o1.key, o2.key );
+			}
+		} );
+
+		long indexOffset = this.offset;
+		long lastKey = -1;
+		for ( Entry entry : this.entries )
+		{
+			if ( entry.key == lastKey )
+			{
+				this.out.close( );
+				throw new IOException( "The tile-package " + this.file + " contains a tile twice." );
+			}
+			lastKey = entry.key;
+			this.out.writeLong( entry.key );
+			this.out.writeLong( entry.offset );
+			this.out.writeInt( entry.length );
+		}
+		this.out.close( );
+
+		try (RandomAccessFile raf = new RandomAccessFile( this.file, "rw" ))
+		{
+			raf.writeInt( TilePackage.MAGIC );
+			raf.writeInt( TilePackage.VERSION );
+			raf.writeInt( this.entries.size( ) );
+			raf.writeInt( this.entries.isEmpty( ) ? 0 : this.minZoom );
+			raf.writeInt( this.entries.isEmpty( ) ? 0 : this.maxZoom );
+			raf.writeInt( 0 );
+			raf.writeLong( indexOffset );
+		}
+	}
+
+	private static final class Entry
+	{
+		private final long	key;
+		private final long	offset;
+		private final int	length;
+
+		public Entry( long key, long offset, int length )
+		{
+			this.key = key;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
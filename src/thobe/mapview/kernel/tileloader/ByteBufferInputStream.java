@@ -0,0 +1,64 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tileloader;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link InputStream} reading the bytes of a {@link ByteBuffer} (from its position to its limit) without copying them, e.g. to decode an
+ * image that is a slice of a memory-mapped file. The position of the given {@link ByteBuffer} is not modified.
+ * @author Thomas Obenaus
+ * @source ByteBufferInputStream.java
+ * @date Jan 11, 2014
+ */
+class ByteBufferInputStream extends InputStream
+{
+	private ByteBuffer	buffer;
+
+	public ByteBufferInputStream( ByteBuffer buffer )
+	{
+		this.buffer = buffer.duplicate( );
+	}
+
+	@Override
+	public int read( )
+	{
+		if ( !this.buffer.hasRemaining( ) )
+			return -1;
+		return this.buffer.get( ) & 0xFF;
+	}
+
+	@Override
+	public int read( byte[] b, int off, int len )
+	{
+		if ( len == 0 )
+			return 0;
+		if ( !this.buffer.hasRemaining( ) )
+			return -1;
+		int n = Math.min( len, this.buffer.remaining( ) );
+		this.buffer.get( b, off, n );
+		return n;
+	}
+
+	@Override
+	public long skip( long n )
+	{
+		int skipped = ( int ) Math.max( 0, Math.min( n, this.buffer.remaining( ) ) );
+		this.buffer.position( this.buffer.position( ) + skipped );
+		return skipped;
+	}
+
+	@Override
+	public int available( )
+	{
+		return this.buffer.remaining( );
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tileloader;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.HeadlessException;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+import thobe.mapview.kernel.tilesystem.Tile;
+
+/**
+ * Converts decoded tile-images (e.g. indexed-color images returned by ImageIO) into images having the pixel-layout of the screen. Drawing
+ * such an image is a plain (accelerated) blit, whereas other images are converted on each call of drawImage.
+ * @author Thomas Obenaus
+ * @source CompatibleImageConverter.java
+ * @date Jan 6, 2014
+ */
+public class CompatibleImageConverter
+{
+	/**
+	 * The configuration of the screen the images are drawn on (null in a headless environment).
+	 */
+	private GraphicsConfiguration	graphicsConfiguration;
+
+	/**
+	 * Images having the pixel-layout of the screen, one per transparency (OPAQUE, BITMASK, TRANSLUCENT), used to check the compatibility.
+	 */
+	private BufferedImage[]			screenImages;
+
+	/**
+	 * Ctor, creates images compatible to the default screen.
+	 */
+	public CompatibleImageConverter( )
+	{
+		this( getDefaultConfiguration( ) );
+	}
+
+	/**
+	 * Ctor
+	 * @param graphicsConfiguration - configuration of the screen the images are drawn on (null creates images of type
+	 *            {@link BufferedImage#TYPE_INT_RGB}/{@link BufferedImage#TYPE_INT_ARGB})
+	 */
+	public CompatibleImageConverter( GraphicsConfiguration graphicsConfiguration )
+	{
+		this.graphicsConfiguration = graphicsConfiguration;
+		this.screenImages = new BufferedImage[Transparency.TRANSLUCENT + 1];
+	}
+
+	/**
+	 * Returns an image of size {@link Tile#TILE_SIZE_PX} having the pixel-layout of the screen and showing the given image. The given image
+	 * is returned if it is already compatible.
+	 * @param image
+	 * @return
+	 */
+	public BufferedImage convert( BufferedImage image )
+	{
+		if ( this.isCompatible( image ) )
+			return image;
+
+		int transparency = image.getColorModel( ).getTransparency( );
+		BufferedImage result;
+		if ( this.graphicsConfiguration != null )
+			result = this.graphicsConfiguration.createCompatibleImage( Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX, transparency );
+		else result = new BufferedImage( Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX, ( transparency == Transparency.OPAQUE ) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB );
+
+		Graphics2D gr = result.createGraphics( );
+		gr.drawImage( image, 0, 0, Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX, null );
+		gr.dispose( );
+		return result;
+	}
+
+	/**
+	 * Returns true if the given image has the size {@link Tile#TILE_SIZE_PX} and the pixel-layout of the screen.
+	 * @param image
+	 * @return
+	 */
+	public boolean isCompatible( BufferedImage image )
+	{
+		if ( ( image.getWidth( ) != Tile.TILE_SIZE_PX ) || ( image.getHeight( ) != Tile.TILE_SIZE_PX ) )
+			return false;
+
+		if ( this.graphicsConfiguration == null )
+			return ( image.getType( ) == BufferedImage.TYPE_INT_RGB ) || ( image.getType( ) == BufferedImage.TYPE_INT_ARGB );
+
+		BufferedImage screenImage = this.getScreenImage( image.getColorModel( ).getTransparency( ) );
+		return ( image.getType( ) == screenImage.getType( ) ) && image.getColorModel( ).equals( screenImage.getColorModel( ) );
+	}
+
+	/**
+	 * Returns a (1x1) image having the pixel-layout of the screen for the given transparency.
+	 * @param transparency
+	 * @return
+	 */
+	private synchronized BufferedImage getScreenImage( int transparency )
+	{
+		BufferedImage result = this.screenImages[transparency];
+		if ( result == null )
+		{
+			result = this.graphicsConfiguration.createCompatibleImage( 1, 1, transparency );
+			this.screenImages[transparency] = result;
+		}
+		return result;
+	}
+
+	public GraphicsConfiguration getGraphicsConfiguration( )
+	{
+		return graphicsConfiguration;
+	}
+
+	/**
+	 * Returns the configuration of the default screen or null in a headless environment.
+	 * @return
+	 */
+	public static GraphicsConfiguration getDefaultConfiguration( )
+	{
+		if ( GraphicsEnvironment.isHeadless( ) )
+			return null;
+		try
+		{
+			return GraphicsEnvironment.getLocalGraphicsEnvironment( ).getDefaultScreenDevice( ).getDefaultConfiguration( );
+		}
+		catch ( HeadlessException e )
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tileloader;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Logger;
+
+/**
+ * CPU-bound stage of the {@link TileLoader} pipeline: Decodes the raw bytes fetched by the {@link TileRequest}s (I/O-bound stage) into
+ * images having the pixel-layout of the screen (see {@link CompatibleImageConverter}). The stages are connected by a bounded queue, a
+ * {@link TileRequest} handing over its bytes blocks while the queue is full.
+ * @author Thomas Obenaus
+ * @source DecodeStage.java
+ * @date Jan 5, 2014
+ */
+class DecodeStage
+{
+	private Logger				log;
+	private BlockingQueue<Job>	queue;
+	private List<Thread>		decoders;
+
+	/**
+	 * Converts the decoded images into images having the pixel-layout of the screen.
+	 */
+	private volatile CompatibleImageConverter	imageConverter;
+
+	/**
+	 * Time the fetched bytes are waiting within the queue.
+	 */
+	private StageStatistics		queueStatistics;
+
+	/**
+	 * Time needed to decode the images.
+	 */
+	private StageStatistics		decodeStatistics;
+
+	/**
+	 * Ctor
+	 * @param log
+	 * @param numDecoders - number of decoding threads
+	 * @param queueCapacity - max. number of fetched images waiting to be decoded
+	 */
+	public DecodeStage( Logger log, int numDecoders, int queueCapacity )
+	{
+		this.log = log;
+		this.queue = new ArrayBlockingQueue<>( queueCapacity );
+		this.queueStatistics = new StageStatistics( "decode-queue" );
+		this.decodeStatistics = new StageStatistics( "decode" );
+		this.imageConverter = new CompatibleImageConverter( );
+		this.decoders = new ArrayList<>( );
+		for ( int i = 0; i < numDecoders; i++ )
+		{
+			Thread decoder = new Thread( new Runnable( )
+			{
+				@Override
+				public void run( )
+				{
+					decodeLoop( );
+				}
+			}, "TileDecoder-" + i );
+			decoder.setDaemon( true );
+			decoder.start( );
+			this.decoders.add( decoder );
+		}
+	}
+
+	/**
+	 * Hands the fetched bytes of the given {@link TileRequest} over to the decoders, blocks while the queue is full.
+	 * @param tileRequest
+	 * @param data - the raw bytes of the image (from position to limit)
+	 * @param fromStore - true if the bytes were loaded locally (persistent store or tile-package)
+	 * @param retries - number of download-retries done so far
+	 * @throws InterruptedException
+	 */
+	public void submit( TileRequest tileRequest, ByteBuffer data, boolean fromStore, int retries ) throws InterruptedException
+	{
+		this.queue.put( new Job( tileRequest, data, fromStore, retries ) );
+	}
+
+	/**
+	 * Stops the decoders, images waiting within the queue are dropped.
+	 */
+	public void shutdown( )
+	{
+		for ( Thread decoder : this.decoders )
+			decoder.interrupt( );
+		this.queue.clear( );
+	}
+
+	/**
+	 * Sets the converter used to convert the decoded images into images having the pixel-layout of the screen.
+	 * @param imageConverter
+	 */
+	public void setImageConverter( CompatibleImageConverter imageConverter )
+	{
+		this.imageConverter = imageConverter;
+	}
+
+	public CompatibleImageConverter getImageConverter( )
+	{
+		return imageConverter;
+	}
+
+	public int getNumDecoders( )
+	{
+		return this.decoders.size( );
+	}
+
+	/**
+	 * Returns the number of fetched images waiting to be decoded.
+	 * @return
+	 */
+	public int getQueueSize( )
+	{
+		return this.queue.size( );
+	}
+
+	public StageStatistics getQueueStatistics( )
+	{
+		return queueStatistics;
+	}
+
+	public StageStatistics getDecodeStatistics( )
+	{
+		return decodeStatistics;
+	}
+
+	private void decodeLoop( )
+	{
+		while ( !Thread.currentThread( ).isInterrupted( ) )
+		{
+			try
+			{
+				Job job = this.queue.take( );
+				long start = System.nanoTime( );
+				this.queueStatistics.record( start - job.enqueued );
+
+				job.tileRequest.decode( job.data, job.fromStore, job.retries );
+				this.decodeStatistics.record( System.nanoTime( ) - start );
+			}
+			catch ( InterruptedException e )
+			{
+				break;
+			}
+			catch ( RuntimeException e )
+			{
+				this.log.severe( "Unexpected error while decoding: " + e.getLocalizedMessage( ) );
+			}
+		}
+	}
+
+	private static class Job
+	{
+		private TileRequest	tileRequest;
+		private ByteBuffer	data;
+		private boolean		fromStore;
+		private int			retries;
+		private long		enqueued;
+
+		public Job( TileRequest tileRequest, ByteBuffer data, boolean fromStore, int retries )
+		{
+			this.tileRequest = tileRequest;
+			this.data = data;
+			this.fromStore = fromStore;
+			this.retries = retries;
+			this.enqueued = System.nanoTime( );
+		}
+	}
+}
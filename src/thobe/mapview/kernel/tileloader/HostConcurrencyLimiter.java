@@ -0,0 +1,130 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tileloader;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Limits the number of concurrent downloads per host (e.g. the server of a map-provider), independent of the number of workers of the
+ * {@link TileLoader}. Never blocks: A {@link TileRequest} that does not get a permit is queued and resumed (see
+ * {@link TileRequest#permitGranted(URL)}) as soon as a download from the host has terminated, so waiting for a slow host does not
+ * occupy a worker.
+ * @author Thomas Obenaus
+ * @source HostConcurrencyLimiter.java
+ * @date Jan 4, 2014
+ */
+class HostConcurrencyLimiter
+{
+	private int								maxConcurrentRequests;
+
+	/**
+	 * The permits of each host <host:port, permits>.
+	 */
+	private ConcurrentMap<String, Host>		hosts;
+
+	/**
+	 * Ctor
+	 * @param maxConcurrentRequests - max. number of concurrent downloads per host
+	 */
+	public HostConcurrencyLimiter( int maxConcurrentRequests )
+	{
+		this.maxConcurrentRequests = maxConcurrentRequests;
+		this.hosts = new ConcurrentHashMap<>( );
+	}
+
+	/**
+	 * Takes a permit for a download from the host of the given {@link URL} if one is available. Otherwise the given {@link TileRequest} is
+	 * queued, it is resumed by {@link TileRequest#permitGranted(URL)} as soon as it gets the permit.
+	 * @param url
+	 * @param tileRequest - the {@link TileRequest} waiting for the permit
+	 * @return - true if the permit was taken, false if the {@link TileRequest} was queued
+	 */
+	public boolean acquire( URL url, TileRequest tileRequest )
+	{
+		Host host = this.getHost( url );
+		synchronized ( host )
+		{
+			if ( host.numActiveRequests < this.maxConcurrentRequests )
+			{
+				host.numActiveRequests++;
+				return true;
+			}
+			host.waitingRequests.add( tileRequest );
+			return false;
+		}
+	}
+
+	/**
+	 * Has to be called as soon as a download (permitted by {@link HostConcurrencyLimiter#acquire(URL, TileRequest)}) has terminated. The
+	 * permit is passed to the next waiting {@link TileRequest} that was not cancelled meanwhile.
+	 * @param url
+	 */
+	public void release( URL url )
+	{
+		Host host = this.getHost( url );
+		while ( true )
+		{
+			TileRequest next;
+			synchronized ( host )
+			{
+				next = host.waitingRequests.poll( );
+				if ( next == null )
+				{
+					host.numActiveRequests--;
+					return;
+				}
+			}
+
+			if ( !next.isCancelled( ) )
+			{
+				next.permitGranted( url );
+				return;
+			}
+		}
+	}
+
+	public int getMaxConcurrentRequests( )
+	{
+		return maxConcurrentRequests;
+	}
+
+	private Host getHost( URL url )
+	{
+		String key = url.getHost( ) + ":" + url.getPort( );
+		Host result = this.hosts.get( key );
+		if ( result == null )
+		{
+			Host newHost = new Host( );
+			result = this.hosts.putIfAbsent( key, newHost );
+			if ( result == null )
+				result = newHost;
+		}
+		return result;
+	}
+
+	/**
+	 * The downloads of a host: The number of permits taken and the {@link TileRequest}s waiting for a permit (in the order of arrival).
+	 */
+	private static class Host
+	{
+		private int					numActiveRequests;
+		private Deque<TileRequest>	waitingRequests;
+
+		public Host( )
+		{
+			this.numActiveRequests = 0;
+			this.waitingRequests = new ArrayDeque<>( );
+		}
+	}
+}
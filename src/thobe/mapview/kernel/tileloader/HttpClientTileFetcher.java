@@ -0,0 +1,244 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tileloader;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Non-blocking {@link TileFetcher} based on a shared {@link HttpClient}. The downloads are multiplexed over a few persistent connections
+ * (HTTP/2 if supported by the server, HTTP/1.1 keep-alive otherwise), no thread is blocked during the round trip. The number of
+ * concurrent downloads is limited, further downloads are queued and started as soon as a download has terminated
+ * ({@link HttpClientTileFetcher#fetch(URL)} never blocks). Urls not using http/https (e.g. file:) are loaded using a
+ * {@link URLConnectionTileFetcher}.
+ * <p>
+ * The returned {@link CompletableFuture}s are completed by the threads of the {@link HttpClient}, so their dependent actions must not
+ * block.
+ * </p>
+ * @author Thomas Obenaus
+ * @source HttpClientTileFetcher.java
+ * @date Jan 3, 2014
+ */
+public class HttpClientTileFetcher implements TileFetcher
+{
+	/**
+	 * Default for the max. number of concurrent downloads.
+	 */
+	public static final int				DEFAULT_MAX_CONCURRENT_REQUESTS	= 32;
+
+	private HttpClient					client;
+	private Duration					timeout;
+	private int							maxConcurrentRequests;
+
+	/**
+	 * Downloads waiting for a free download slot (in the order of submission), guards {@link HttpClientTileFetcher#numActiveRequests}.
+	 */
+	private Deque<PendingDownload>		waitingDownloads;
+	private int							numActiveRequests;
+
+	/**
+	 * Fetcher for urls not supported by the {@link HttpClient}.
+	 */
+	private URLConnectionTileFetcher	fallback;
+
+	public HttpClientTileFetcher( )
+	{
+		this( DEFAULT_MAX_CONCURRENT_REQUESTS, URLConnectionTileFetcher.DEFAULT_TIMEOUT );
+	}
+
+	/**
+	 * Ctor
+	 * @param maxConcurrentRequests - max. number of concurrent downloads
+	 * @param timeout - timeout (in ms) for connecting and receiving the response
+	 */
+	public HttpClientTileFetcher( int maxConcurrentRequests, int timeout )
+	{
+		this.maxConcurrentRequests = maxConcurrentRequests;
+		this.timeout = Duration.ofMillis( timeout );
+		this.waitingDownloads = new ArrayDeque<>( );
+		this.numActiveRequests = 0;
+		this.fallback = new URLConnectionTileFetcher( timeout );
+		this.client = HttpClient.newBuilder( ).version( HttpClient.Version.HTTP_2 ).followRedirects( HttpClient.Redirect.NORMAL ).connectTimeout( this.timeout ).build( );
+	}
+
+	@Override
+	public CompletableFuture<byte[]> fetch( URL url )
+	{
+		String protocol = url.getProtocol( );
+		if ( !"http".equalsIgnoreCase( protocol ) && !"https".equalsIgnoreCase( protocol ) )
+			return this.fallback.fetch( url );
+
+		HttpRequest request;
+		try
+		{
+			request = HttpRequest.newBuilder( url.toURI( ) ).timeout( this.timeout ).GET( ).build( );
+		}
+		catch ( URISyntaxException | IllegalArgumentException e )
+		{
+			return failed( e );
+		}
+
+		// start the download if a slot is free, queue it otherwise
+		PendingDownload download = new PendingDownload( request );
+		synchronized ( this.waitingDownloads )
+		{
+			if ( this.numActiveRequests >= this.maxConcurrentRequests )
+			{
+				this.waitingDownloads.add( download );
+				return download.result;
+			}
+			this.numActiveRequests++;
+		}
+		this.send( download );
+		return download.result;
+	}
+
+	/**
+	 * Sends the request of the given download, the caller has taken a download slot for it.
+	 * @param download
+	 */
+	private void send( final PendingDownload download )
+	{
+		final CompletableFuture<HttpResponse<byte[]>> response;
+		try
+		{
+			response = this.client.sendAsync( download.request, HttpResponse.BodyHandlers.ofByteArray( ) );
+		}
+		catch ( RuntimeException e )
+		{
+			this.downloadTerminated( );
+			download.result.completeExceptionally( e );
+			return;
+		}
+
+		// free the slot (passing it to the next waiting download) as soon as the exchange has terminated (completed, failed or aborted)
+		response.whenComplete( new BiConsumer<HttpResponse<byte[]>, Throwable>( )
+		{
+			@Override
+			public void accept( HttpResponse<byte[]> r, Throwable t )
+			{
+				downloadTerminated( );
+
+				if ( t != null )
+					download.result.completeExceptionally( ( t instanceof CompletionException && t.getCause( ) != null ) ? t.getCause( ) : t );
+				else if ( r.statusCode( ) != 200 )
+					download.result.completeExceptionally( new IOException( "Server returned HTTP " + r.statusCode( ) + " for " + r.uri( ) ) );
+				else if ( ( r.body( ) == null ) || ( r.body( ).length == 0 ) )
+					download.result.completeExceptionally( new IllegalArgumentException( "Loaded image is empty." ) );
+				else download.result.complete( r.body( ) );
+			}
+		} );
+
+		// abort the exchange if the result was cancelled
+		download.result.whenComplete( new BiConsumer<byte[], Throwable>( )
+		{
+			@Override
+			public void accept( byte[] data, Throwable t )
+			{
+				if ( download.result.isCancelled( ) )
+					response.cancel( true );
+			}
+		} );
+	}
+
+	/**
+	 * Passes the slot of a terminated download to the next waiting download that was not cancelled meanwhile, frees the slot if there is
+	 * none.
+	 */
+	private void downloadTerminated( )
+	{
+		while ( true )
+		{
+			PendingDownload next;
+			synchronized ( this.waitingDownloads )
+			{
+				next = this.waitingDownloads.poll( );
+				if ( next == null )
+				{
+					this.numActiveRequests--;
+					return;
+				}
+			}
+
+			if ( !next.result.isDone( ) )
+			{
+				this.send( next );
+				return;
+			}
+		}
+	}
+
+	public int getMaxConcurrentRequests( )
+	{
+		return maxConcurrentRequests;
+	}
+
+	/**
+	 * Returns the number of downloads currently in progress.
+	 * @return
+	 */
+	public int getNumActiveRequests( )
+	{
+		synchronized ( this.waitingDownloads )
+		{
+			return this.numActiveRequests;
+		}
+	}
+
+	/**
+	 * Returns the number of downloads waiting for a free download slot.
+	 * @return
+	 */
+	public int getNumWaitingRequests( )
+	{
+		synchronized ( this.waitingDownloads )
+		{
+			return this.waitingDownloads.size( );
+		}
+	}
+
+	private static CompletableFuture<byte[]> failed( Throwable cause )
+	{
+		CompletableFuture<byte[]> result = new CompletableFuture<>( );
+		result.completeExceptionally( cause );
+		return result;
+	}
+
+	@Override
+	public String toString( )
+	{
+		return "HttpClientTileFetcher [maxConcurrentRequests=" + this.maxConcurrentRequests + ", timeout=" + this.timeout.toMillis( ) + "]";
+	}
+
+	/**
+	 * A download and the {@link CompletableFuture} receiving its result.
+	 */
+	private static class PendingDownload
+	{
+		private HttpRequest					request;
+		private CompletableFuture<byte[]>	result;
+
+		public PendingDownload( HttpRequest request )
+		{
+			this.request = request;
+			this.result = new CompletableFuture<>( );
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tileloader;
+
+/**
+ * Statistics of the prefetching of the {@link TileLoader}: How many prefetch-requests were started/skipped (budget exhausted) and how
+ * many of the images needed by the tiles were already prefetched (hits).
+ * @author Thomas Obenaus
+ * @source PrefetchStatistics.java
+ * @date Jan 10, 2014
+ */
+public class PrefetchStatistics
+{
+	private long	numStarted;
+	private long	numLoaded;
+	private long	numSkipped;
+	private long	numTileImages;
+	private long	numHits;
+
+	public PrefetchStatistics( )
+	{
+		this.reset( );
+	}
+
+	/**
+	 * A prefetch-request was started.
+	 */
+	public synchronized void recordStarted( )
+	{
+		this.numStarted++;
+	}
+
+	/**
+	 * A prefetch-request has loaded its image (the image was not needed by a tile meanwhile).
+	 */
+	public synchronized void recordLoaded( )
+	{
+		this.numLoaded++;
+	}
+
+	/**
+	 * A prefetch-request was not started since the budget was exhausted (counted for each request-block, a prefetch-request that is
+	 * predicted again is counted again).
+	 */
+	public synchronized void recordSkipped( )
+	{
+		this.numSkipped++;
+	}
+
+	/**
+	 * An image was needed by a tile.
+	 * @param prefetched - true if the image was already prefetched (loaded or still loading)
+	 */
+	public synchronized void recordTileImage( boolean prefetched )
+	{
+		this.numTileImages++;
+		if ( prefetched )
+			this.numHits++;
+	}
+
+	public synchronized void reset( )
+	{
+		this.numStarted = 0;
+		this.numLoaded = 0;
+		this.numSkipped = 0;
+		this.numTileImages = 0;
+		this.numHits = 0;
+	}
+
+	public synchronized long getNumStarted( )
+	{
+		return numStarted;
+	}
+
+	public synchronized long getNumLoaded( )
+	{
+		return numLoaded;
+	}
+
+	public synchronized long getNumSkipped( )
+	{
+		return numSkipped;
+	}
+
+	/**
+	 * Returns the number of images needed by the tiles.
+	 * @return
+	 */
+	public synchronized long getNumTileImages( )
+	{
+		return numTileImages;
+	}
+
+	/**
+	 * Returns the number of images needed by the tiles that were already prefetched.
+	 * @return
+	 */
+	public synchronized long getNumHits( )
+	{
+		return numHits;
+	}
+
+	/**
+	 * Returns the fraction of the images needed by the tiles that were already prefetched [0..1] (0 if no image was needed yet).
+	 * @return
+	 */
+	public synchronized double getHitRate( )
+	{
+		return ( this.numTileImages == 0 ) ? 0 : ( double ) this.numHits / this.numTileImages;
+	}
+
+	@Override
+	public synchronized String toString( )
+	{
+		return String.format( "prefetch [started=%d, loaded=%d, skipped=%d, tileImages=%d, hits=%d, hitRate=%.1f%%]", this.numStarted, this.numLoaded, this.numSkipped, this.numTileImages, this.numHits, this.getHitRate( ) * 100 );
+	}
+}
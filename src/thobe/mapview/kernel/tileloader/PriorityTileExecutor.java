@@ -0,0 +1,120 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tileloader;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ThreadPoolExecutor} that executes the submitted {@link TileRequest}s ordered by their priority (see
+ * {@link TileRequest#setPriority(int, double)}) instead of the order of submission. Requests having the same priority are executed in the
+ * order of submission.
+ * @author Thomas Obenaus
+ * @source PriorityTileExecutor.java
+ * @date Jan 2, 2014
+ */
+class PriorityTileExecutor extends ThreadPoolExecutor
+{
+	/**
+	 * Sequence-number of the submitted tasks, used to keep the order of submission for tasks having the same priority.
+	 */
+	private AtomicLong	sequence;
+
+	public PriorityTileExecutor( int numWorkers )
+	{
+		this( numWorkers, Executors.defaultThreadFactory( ) );
+	}
+
+	/**
+	 * Ctor
+	 * @param numWorkers - number of worker-threads
+	 * @param threadFactory - factory creating the worker-threads (e.g. virtual threads)
+	 */
+	public PriorityTileExecutor( int numWorkers, ThreadFactory threadFactory )
+	{
+		super( numWorkers, numWorkers, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>( ), threadFactory );
+		this.sequence = new AtomicLong( 0 );
+		this.prestartAllCoreThreads( );
+	}
+
+	@Override
+	protected <T> RunnableFuture<T> newTaskFor( Runnable runnable, T value )
+	{
+		return new PriorityTask<T>( runnable, value, this.sequence.getAndIncrement( ) );
+	}
+
+	/**
+	 * Applies a new priority to the given {@link TileRequest}. If the request is still waiting for execution it will be re-sorted within the
+	 * queue. The request might be submitted again meanwhile (retries, see {@link TileRequest#submit()}), thus the queued task is looked up
+	 * while holding the lock of the request.
+	 * @param tileRequest
+	 * @param band
+	 * @param distance
+	 */
+	public void updatePriority( TileRequest tileRequest, int band, double distance )
+	{
+		synchronized ( tileRequest )
+		{
+			if ( ( tileRequest.getPriorityBand( ) == band ) && ( tileRequest.getPriorityDistance( ) == distance ) )
+				return;
+
+			// the priority must not be modified while the task is part of the queue
+			Runnable queuedTask = null;
+			for ( Runnable task : this.getQueue( ) )
+			{
+				if ( ( task instanceof PriorityTask ) && ( ( ( PriorityTask<?> ) task ).tileRequest == tileRequest ) )
+				{
+					queuedTask = task;
+					break;
+				}
+			}
+			boolean queued = ( queuedTask != null ) && this.getQueue( ).remove( queuedTask );
+			tileRequest.setPriority( band, distance );
+			if ( queued )
+				this.getQueue( ).add( queuedTask );
+		}
+	}
+
+	/**
+	 * {@link FutureTask} that is ordered by the priority of the wrapped {@link TileRequest}.
+	 * @param <T>
+	 */
+	private static class PriorityTask<T> extends FutureTask<T> implements Comparable<PriorityTask<?>>
+	{
+		private TileRequest	tileRequest;
+		private long		sequence;
+
+		public PriorityTask( Runnable runnable, T value, long sequence )
+		{
+			super( runnable, value );
+			this.tileRequest = ( runnable instanceof TileRequest ) ? ( TileRequest ) runnable : null;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo( PriorityTask<?> other )
+		{
+			int result = 0;
+			if ( ( this.tileRequest != null ) && ( other.tileRequest != null ) )
+				result = TileLoader.comparePriority( this.tileRequest, other.tileRequest );
+			else if ( this.tileRequest != other.tileRequest )
+				result = ( this.tileRequest == null ) ? 1 : -1;
+			if ( result == 0 )
+				result = Long.compare( this.sequence, other.sequence );
+			return result;
+		}
+	}
+}
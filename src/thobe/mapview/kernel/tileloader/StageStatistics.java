@@ -0,0 +1,83 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tileloader;
+
+/**
+ * Latency-statistics of one stage of the {@link TileLoader} pipeline (e.g. fetching or decoding the images).
+ * @author Thomas Obenaus
+ * @source StageStatistics.java
+ * @date Jan 5, 2014
+ */
+public class StageStatistics
+{
+	private String	name;
+	private long	count;
+	private long	totalNs;
+	private long	maxNs;
+
+	public StageStatistics( String name )
+	{
+		this.name = name;
+		this.reset( );
+	}
+
+	/**
+	 * Adds one measurement.
+	 * @param latencyNs - latency in ns
+	 */
+	public synchronized void record( long latencyNs )
+	{
+		this.count++;
+		this.totalNs += latencyNs;
+		if ( latencyNs > this.maxNs )
+			this.maxNs = latencyNs;
+	}
+
+	public synchronized void reset( )
+	{
+		this.count = 0;
+		this.totalNs = 0;
+		this.maxNs = 0;
+	}
+
+	public String getName( )
+	{
+		return name;
+	}
+
+	public synchronized long getCount( )
+	{
+		return count;
+	}
+
+	/**
+	 * Returns the mean latency in ms (0 if nothing was measured yet).
+	 * @return
+	 */
+	public synchronized double getMeanMs( )
+	{
+		return ( this.count == 0 ) ? 0 : ( this.totalNs / 1e6 ) / this.count;
+	}
+
+	/**
+	 * Returns the max. latency in ms.
+	 * @return
+	 */
+	public synchronized double getMaxMs( )
+	{
+		return this.maxNs / 1e6;
+	}
+
+	@Override
+	public synchronized String toString( )
+	{
+		return String.format( "%s [count=%d, mean=%.2f ms, max=%.2f ms]", this.name, this.count, this.getMeanMs( ), this.getMaxMs( ) );
+	}
+}
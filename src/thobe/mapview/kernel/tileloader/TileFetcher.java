@@ -0,0 +1,30 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tileloader;
+
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Backend used by the {@link TileRequest}s to download the raw bytes of a tile-image.
+ * @author Thomas Obenaus
+ * @source TileFetcher.java
+ * @date Jan 3, 2014
+ */
+public interface TileFetcher
+{
+	/**
+	 * Starts downloading the given {@link URL}. The returned {@link CompletableFuture} is completed with the raw bytes of the image or
+	 * exceptionally if the download has failed. Cancelling the {@link CompletableFuture} aborts the download (if supported).
+	 * @param url
+	 * @return
+	 */
+	public CompletableFuture<byte[]> fetch( URL url );
+}
@@ -9,17 +9,26 @@
  */
 package thobe.mapview.kernel.tileloader;
 
+import java.awt.GraphicsConfiguration;
 import java.awt.Image;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Logger;
 
+import thobe.mapview.kernel.tilecache.DiskTileStore;
+import thobe.mapview.kernel.tilecache.TileImageCache;
+import thobe.mapview.kernel.tilecache.TileKey;
+import thobe.mapview.kernel.tilecache.TilePackage;
 import thobe.mapview.kernel.tileloader.TileLoaderListener.FailReason;
+import thobe.mapview.kernel.tilesystem.TileNumber;
 
 /**
  * @author Thomas Obenaus
@@ -28,9 +37,47 @@ import thobe.mapview.kernel.tileloader.TileLoaderListener.FailReason;
  */
 public class TileLoader extends Thread
 {
+	/**
+	 * Default budget (in bytes) of the in-memory cache for decoded tile-images.
+	 */
+	public static final long			DEFAULT_IMAGE_CACHE_SIZE	= 64 * 1024 * 1024;
+
+	/**
+	 * Max. number of fetched images waiting to be decoded, the workers block if the decoders can't keep up.
+	 */
+	public static final int				DECODE_QUEUE_CAPACITY		= 64;
+
+	/**
+	 * Default max. number of prefetch-requests started per second (see {@link TileRequest#PRIORITY_PREFETCH}).
+	 */
+	public static final int				DEFAULT_PREFETCH_BUDGET		= 16;
+
+	/**
+	 * Max. number of prefetched images remembered to detect whether an image needed by a tile was prefetched.
+	 */
+	private static final int			MAX_PREFETCHED_KEYS			= 1024;
+
+	/**
+	 * Threads executing the {@link TileRequest}s.
+	 */
+	public enum ExecutionMode
+	{
+		/**
+		 * A fixed number of platform threads.
+		 */
+		FIXED_POOL,
+
+		/**
+		 * Virtual threads (needs a JVM supporting them, platform threads are used otherwise). Since a blocked virtual thread does not
+		 * occupy a platform thread, the number of workers can be much higher than for {@link ExecutionMode#FIXED_POOL}; the load on the
+		 * servers should be limited using {@link TileLoader#setMaxRequestsPerHost(int)}.
+		 */
+		VIRTUAL_THREADS;
+	};
+
 	private enum Event
 	{
-		CANCEL_ALL_REQUESTS, NEW_REQUEST_BLOCK_AVAILABLE, SHUTDOWN;
+		CANCEL_ALL_REQUESTS, NEW_REQUEST_BLOCK_AVAILABLE, REQUEST_COMPLETED, SHUTDOWN;
 	};
 
 	private enum State
@@ -40,32 +87,194 @@ public class TileLoader extends Thread
 
 	private BlockingQueue<Event>		eventQueue;
 
+	/**
+	 * {@link TileRequest}s that have terminated but are not processed yet. Filled by the {@link TileRequest}s (worker-threads), each entry
+	 * is accompanied by a {@link Event#REQUEST_COMPLETED} within the event-queue.
+	 */
+	private BlockingQueue<TileRequest>	completedTileRequests;
+
+	/**
+	 * Listener registered at each started {@link TileRequest}, wakes up the {@link TileLoader} as soon as a request has terminated.
+	 */
+	private TileRequestListener			requestListener;
+
 	private List<TileLoaderListener>	listeners;
-	private List<TileRequest>			runningTileRequests;
+
+	/**
+	 * The started (queued or running) {@link TileRequest}s <image, {@link TileRequest}>. Only one {@link TileRequest} per image is started,
+	 * even if several tiles need the same image.
+	 */
+	private Map<TileKey, TileRequest>	runningTileRequests;
+
+	/**
+	 * The tiles waiting for an image that is currently loaded <image, <id of the tile, {@link TileNumber} requested by the tile>>. The
+	 * listeners get the {@link TileNumber} requested by each tile, the tile might have got a new one meanwhile.
+	 */
+	private Map<TileKey, Map<Long, TileNumber>>	interestedTileIds;
+
+	/**
+	 * The latest request-block, containing all {@link TileRequest}s that are currently needed.
+	 */
 	private List<TileRequest>			pendingTileRequests;
 
+	/**
+	 * Incremented each time a new request-block is added, used to detect whether the pending block was already processed.
+	 */
+	private int							pendingBlockVersion;
+	private int							processedBlockVersion;
+
 	private Boolean						shudownRequested;
 
 	private Logger						log;
-	private ExecutorService				executorService;
+
+	/**
+	 * The workers, executing the {@link TileRequest}s ordered by their priority.
+	 */
+	private PriorityTileExecutor		executorService;
+
+	private ExecutionMode				executionMode;
+
+	/**
+	 * Decodes the bytes fetched by the workers (one decoder per core).
+	 */
+	private DecodeStage					decodeStage;
+
+	/**
+	 * Time needed by the workers to fetch the bytes of an image (from the persistent store or the server).
+	 */
+	private StageStatistics				fetchStatistics;
+
+	/**
+	 * Limits the concurrent downloads per host (null if unlimited).
+	 */
+	private HostConcurrencyLimiter		hostLimiter;
 
 	private int							numWorkers;
 
 	private State						state;
 
+	/**
+	 * Cache for the decoded images, checked before a {@link TileRequest} is started.
+	 */
+	private TileImageCache				imageCache;
+
+	/**
+	 * Persistent store for the raw bytes of the images, checked by the {@link TileRequest}s before downloading (might be null).
+	 */
+	private DiskTileStore				tileStore;
+
+	/**
+	 * Offline package of pre-rendered tiles, checked by the {@link TileRequest}s first (might be null).
+	 */
+	private TilePackage					tilePackage;
+
+	/**
+	 * True if images not available locally (tile-package or persistent store) must not be downloaded.
+	 */
+	private volatile boolean			offline;
+
+	/**
+	 * Backend used by the {@link TileRequest}s to download the images.
+	 */
+	private TileFetcher					tileFetcher;
+
+	/**
+	 * Point in time (ns) since visible tiles are waiting for their image, -1 if no visible tile is waiting.
+	 */
+	private long						firstVisibleTileRequested;
+
+	/**
+	 * Time (ns) from requesting visible tiles until the first of them was delivered, -1 if not measured yet.
+	 */
+	private volatile long				timeToFirstVisibleTile;
+
+	/**
+	 * Max. number of prefetch-requests started per second (0 disables prefetching). Limited by a token-bucket holding the budget of one
+	 * second, so short bursts are possible while the average rate is kept.
+	 */
+	private volatile int				prefetchBudget;
+	private double						prefetchTokens;
+	private long						prefetchTokensUpdated;
+
+	/**
+	 * Images loaded by prefetch-requests that were not needed by a tile yet (ordered by age, the oldest ones are forgotten first).
+	 */
+	private Map<TileKey, Boolean>		prefetchedKeys;
+
+	private PrefetchStatistics			prefetchStatistics;
+
 	public TileLoader( Logger log, int numWorkers )
+	{
+		this( log, numWorkers, new TileImageCache( DEFAULT_IMAGE_CACHE_SIZE ) );
+	}
+
+	public TileLoader( Logger log, int numWorkers, TileImageCache imageCache )
+	{
+		this( log, numWorkers, imageCache, ExecutionMode.FIXED_POOL );
+	}
+
+	/**
+	 * Ctor
+	 * @param log
+	 * @param numWorkers - number of threads executing the {@link TileRequest}s
+	 * @param imageCache - cache for the decoded images (null disables caching)
+	 * @param executionMode - kind of threads executing the {@link TileRequest}s
+	 */
+	public TileLoader( Logger log, int numWorkers, TileImageCache imageCache, ExecutionMode executionMode )
 	{
 		this.state = State.IDLE;
+		this.imageCache = imageCache;
+		this.tileStore = null;
+		this.tilePackage = null;
+		this.offline = false;
+		this.tileFetcher = new URLConnectionTileFetcher( );
 		this.log = log;
 		this.numWorkers = numWorkers;
-		this.executorService = null;
-		this.eventQueue = new ArrayBlockingQueue<>( 256 );
+		this.hostLimiter = null;
+		this.executionMode = ExecutionMode.FIXED_POOL;
+		ThreadFactory virtualThreadFactory = ( executionMode == ExecutionMode.VIRTUAL_THREADS ) ? createVirtualThreadFactory( ) : null;
+		if ( virtualThreadFactory != null )
+		{
+			this.executionMode = ExecutionMode.VIRTUAL_THREADS;
+			this.executorService = new PriorityTileExecutor( this.numWorkers, virtualThreadFactory );
+		}
+		else
+		{
+			if ( executionMode == ExecutionMode.VIRTUAL_THREADS )
+				this.log.warning( "Virtual threads are not supported by this JVM (" + System.getProperty( "java.version" ) + "), using platform threads." );
+			this.executorService = new PriorityTileExecutor( this.numWorkers );
+		}
+		this.eventQueue = new LinkedBlockingQueue<>( );
+		this.completedTileRequests = new LinkedBlockingQueue<>( );
+		this.requestListener = new RequestCompletionListener( );
 		this.shudownRequested = false;
 		this.listeners = new ArrayList<>( );
 		this.pendingTileRequests = new ArrayList<>( );
-		this.runningTileRequests = new ArrayList<>( );
+		this.pendingBlockVersion = 0;
+		this.processedBlockVersion = 0;
+		this.runningTileRequests = new LinkedHashMap<>( );
+		this.interestedTileIds = new LinkedHashMap<>( );
+		this.firstVisibleTileRequested = -1;
+		this.timeToFirstVisibleTile = -1;
+		this.prefetchBudget = DEFAULT_PREFETCH_BUDGET;
+		this.prefetchTokens = DEFAULT_PREFETCH_BUDGET;
+		this.prefetchTokensUpdated = System.nanoTime( );
+		this.prefetchedKeys = new LinkedHashMap<TileKey, Boolean>( )
+		{
+			private static final long	serialVersionUID	= 1L;
 
-		this.log.info( "TileLoader with " + numWorkers + " workers started." );
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<TileKey, Boolean> eldest )
+			{
+				return this.size( ) > MAX_PREFETCHED_KEYS;
+			}
+		};
+		this.prefetchStatistics = new PrefetchStatistics( );
+
+		this.decodeStage = new DecodeStage( this.log, Runtime.getRuntime( ).availableProcessors( ), DECODE_QUEUE_CAPACITY );
+		this.fetchStatistics = new StageStatistics( "fetch" );
+
+		this.log.info( "TileLoader with " + numWorkers + " workers (" + this.executionMode + ") and " + this.decodeStage.getNumDecoders( ) + " decoders started." );
 	}
 
 	public void shutdown( )
@@ -102,37 +311,50 @@ public class TileLoader extends Thread
 			}
 		}
 
+		// stop the workers and decoders
+		this.executorService.shutdownNow( );
+		this.decodeStage.shutdown( );
+
 		log.info( "TileLoader stopped its excecution." );
 	}
 
 	private void checkRunningRequests( )
 	{
-		State oldState = this.state;
-		this.state = ( this.runningTileRequests.isEmpty( ) ? State.IDLE : State.LOADING );
-		if ( oldState != this.state )
-			this.log.fine( "StateChange: " + oldState + " --> " + this.state );
-
-		// find completed TileRequests
+		// obtain the TileRequests that have terminated in the meantime
 		List<TileRequest> completedRequests = new ArrayList<>( );
-		for ( TileRequest runningTileRequest : this.runningTileRequests )
-		{
-			if ( runningTileRequest.isTerminated( ) )
-			{
-				completedRequests.add( runningTileRequest );
-			}
-		}
+		this.completedTileRequests.drainTo( completedRequests );
 
 		// notify the listeners
 		for ( TileRequest completedRequest : completedRequests )
 		{
-			this.runningTileRequests.remove( completedRequest );
+			// ignore requests that are not running anymore (e.g. cancelled ones)
+			TileKey key = completedRequest.getKey( );
+			if ( this.runningTileRequests.get( key ) != completedRequest )
+				continue;
+			this.runningTileRequests.remove( key );
+			Map<Long, TileNumber> tiles = this.interestedTileIds.remove( key );
+
+			// notify the listeners for each tile waiting for this image
 			if ( completedRequest.isFailed( ) )
 			{
-				this.fireTileLoadRequestFailed( completedRequest.getTileId( ), FailReason.ERROR, completedRequest.getError( ) );
+				for ( Map.Entry<Long, TileNumber> tile : tiles.entrySet( ) )
+					this.fireTileLoadRequestFailed( tile.getKey( ), tile.getValue( ), FailReason.ERROR, completedRequest.getError( ) );
 			}
 			else
 			{
-				this.fireTileLoadRequestComplete( completedRequest.getTileId( ), completedRequest.getImage( ) );
+				if ( this.imageCache != null )
+					this.imageCache.put( key, completedRequest.getImage( ) );
+
+				// no tile is waiting for a prefetched image, remember it to detect the hit as soon as a tile needs it
+				if ( tiles.isEmpty( ) )
+				{
+					this.prefetchedKeys.put( key, Boolean.TRUE );
+					this.prefetchStatistics.recordLoaded( );
+				}
+				if ( completedRequest.isVisible( ) )
+					this.firstVisibleTileDelivered( );
+				for ( Map.Entry<Long, TileNumber> tile : tiles.entrySet( ) )
+					this.fireTileLoadRequestComplete( tile.getKey( ), tile.getValue( ), completedRequest.getImage( ) );
 			}
 		}
 
@@ -140,21 +362,18 @@ public class TileLoader extends Thread
 		{
 			this.log.fine( completedRequests.size( ) + " requests completed, " + this.runningTileRequests.size( ) + " requests pending." );
 		}
+
+		State oldState = this.state;
+		this.state = ( this.runningTileRequests.isEmpty( ) ? State.IDLE : State.LOADING );
+		if ( oldState != this.state )
+			this.log.fine( "StateChange: " + oldState + " --> " + this.state );
 	}
 
 	private void processEvents( ) throws TileLoaderException, InterruptedException
 	{
-		// blocks until an event was pushed into the queue
-		Event event = null;
-		// in IDLE-state: wait until a new event is pushed into the queue (using take())
-		if ( state == State.IDLE )
-			event = this.eventQueue.take( );
-		// in NON-IDLE-state: poll for a new event, but don't block (using poll())
-		else event = this.eventQueue.poll( );
-
-		// no pending event
-		if ( event == null )
-			return;
+		// blocks until an event was pushed into the queue, in LOADING-state the terminated TileRequests push
+		// a REQUEST_COMPLETED event so there is no need to poll
+		Event event = this.eventQueue.take( );
 
 		switch ( event )
 		{
@@ -170,100 +389,380 @@ public class TileLoader extends Thread
 			log.fine( "Event: NEW_REQUEST_BLOCK_AVAILABLE received." );
 			this.processNewRequestBlockAvailable( );
 			break;
+		case REQUEST_COMPLETED:
+			// the completed requests are processed in checkRunningRequests()
+			break;
 		default:
 			log.severe( "Unexpected evnet:" + event + " will be ignored." );
 		}
 	}
 
-	private void processNewRequestBlockAvailable( ) throws TileLoaderException
+	/**
+	 * Reconciles the latest request-block with the started {@link TileRequest}s. Started requests that are still needed keep running,
+	 * those that are not part of the request-block anymore (e.g. the {@link thobe.mapview.kernel.tilesystem.Tile} has left the
+	 * view-port) are cancelled. Requests of the block that were not started yet will be started (or served from the cache). Requests for
+	 * the same image are coalesced, the image is loaded once and delivered to all interested tiles.
+	 */
+	private void processNewRequestBlockAvailable( )
 	{
+		// obtain the latest request-block, grouped by image <image, TileRequests>
+		Map<TileKey, List<TileRequest>> requestBlock = new LinkedHashMap<>( );
+		List<TileRequest> invalidRequests = new ArrayList<>( );
+		synchronized ( pendingTileRequests )
+		{
+			// already processed
+			if ( this.processedBlockVersion == this.pendingBlockVersion )
+				return;
+			this.processedBlockVersion = this.pendingBlockVersion;
+
+			// suppress the events of the blocks replaced by this one (while holding the lock, the event of a block added afterwards is kept)
+			this.discardRequestEvents( );
+
+			for ( TileRequest tileRequest : this.pendingTileRequests )
+			{
+				TileKey key = tileRequest.getKey( );
+				if ( key == null )
+				{
+					invalidRequests.add( tileRequest );
+					continue;
+				}
+
+				List<TileRequest> requestsForImage = requestBlock.get( key );
+				if ( requestsForImage == null )
+				{
+					requestsForImage = new ArrayList<>( );
+					requestBlock.put( key, requestsForImage );
+				}
+				requestsForImage.add( tileRequest );
+			}
+		}
+
+		// requests without tile-number or url-builder can't be processed
+		for ( TileRequest tileRequest : invalidRequests )
+		{
+			if ( !tileRequest.isPrefetch( ) )
+				this.fireTileLoadRequestFailed( tileRequest.getTileId( ), tileRequest.getTileNumber( ), FailReason.ERROR, "TileNumber or UrlBuilder is null." );
+		}
+
+		// the measurement of the time to the first visible tile starts as soon as visible tiles are needed
+		for ( List<TileRequest> requestsForImage : requestBlock.values( ) )
+		{
+			if ( getHighestPriority( requestsForImage ).isVisible( ) )
+			{
+				this.firstVisibleTileRequested( );
+				break;
+			}
+		}
+
+		// keep the running requests that are still needed (with the priority of the new block), cancel the others
+		int numKept = 0;
+		int numCancelled = 0;
+		Iterator<Map.Entry<TileKey, TileRequest>> it = this.runningTileRequests.entrySet( ).iterator( );
+		while ( it.hasNext( ) )
+		{
+			Map.Entry<TileKey, TileRequest> entry = it.next( );
+			TileKey key = entry.getKey( );
+			List<TileRequest> neededRequests = requestBlock.remove( key );
+			if ( neededRequests != null )
+			{
+				TileRequest highestPriority = getHighestPriority( neededRequests );
+
+				// a tile needs the image that is currently prefetched
+				if ( this.interestedTileIds.get( key ).isEmpty( ) && !highestPriority.isPrefetch( ) )
+					this.prefetchStatistics.recordTileImage( true );
+
+				this.executorService.updatePriority( entry.getValue( ), highestPriority.getPriorityBand( ), highestPriority.getPriorityDistance( ) );
+				this.updateInterestedTileIds( key, neededRequests );
+				numKept++;
+			}
+			else
+			{
+				this.cancel( key );
+				it.remove( );
+				numCancelled++;
+			}
+		}
+
+		// start the new requests (highest priority first), but only if the image is not cached yet
+		List<Map.Entry<TileKey, List<TileRequest>>> newRequests = new ArrayList<>( requestBlock.entrySet( ) );
+		Collections.sort( newRequests, new Comparator<Map.Entry<TileKey, List<TileRequest>>>( )
+		{
+			@Override
+			public int compare( Map.Entry<TileKey, List<TileRequest>> o1, Map.Entry<TileKey, List<TileRequest>> o2 )
+			{
+				return comparePriority( getHighestPriority( o1.getValue( ) ), getHighestPriority( o2.getValue( ) ) );
+			}
+		} );
 
-		if ( this.executorService != null || ( !this.runningTileRequests.isEmpty( ) ) )
+		int numCached = 0;
+		int numStarted = 0;
+		for ( Map.Entry<TileKey, List<TileRequest>> entry : newRequests )
 		{
-			throw new TileLoaderException( "There are running TileRequests --> cancel them first using TileLoader.cancelAllRequests()!!!" );
+			TileKey key = entry.getKey( );
+			TileRequest highestPriority = getHighestPriority( entry.getValue( ) );
+			Image cachedImage = this.getCachedImage( key );
+
+			// only needed for prefetching
+			if ( highestPriority.isPrefetch( ) )
+			{
+				if ( cachedImage != null )
+				{
+					numCached++;
+				}
+				else if ( this.acquirePrefetchToken( ) )
+				{
+					this.start( key, entry.getValue( ) );
+					this.prefetchStatistics.recordStarted( );
+					numStarted++;
+				}
+				else this.prefetchStatistics.recordSkipped( );
+				continue;
+			}
+
+			this.prefetchStatistics.recordTileImage( ( cachedImage != null ) && ( this.prefetchedKeys.remove( key ) != null ) );
+			if ( cachedImage != null )
+			{
+				if ( highestPriority.isVisible( ) )
+					this.firstVisibleTileDelivered( );
+				for ( TileRequest tileRequest : entry.getValue( ) )
+				{
+					if ( !tileRequest.isPrefetch( ) )
+						this.fireTileLoadRequestComplete( tileRequest.getTileId( ), tileRequest.getTileNumber( ), cachedImage );
+				}
+				numCached++;
+			}
+			else
+			{
+				this.start( key, entry.getValue( ) );
+				numStarted++;
+			}
 		}
 
+		this.log.fine( "Request-block processed: " + numKept + " requests kept, " + numCancelled + " cancelled, " + numStarted + " started, " + numCached + " served from cache " + this.imageCache );
+
+		// no visible tile is waiting anymore (e.g. the visible ones were cancelled)
+		if ( !this.isVisibleTileRunning( ) )
+			this.firstVisibleTileRequested = -1;
+
 		State oldState = this.state;
-		this.state = State.LOADING;
+		this.state = ( this.runningTileRequests.isEmpty( ) ? State.IDLE : State.LOADING );
 		if ( oldState != this.state )
 			this.log.fine( "StateChange: " + oldState + " --> " + this.state );
+	}
 
-		// create a new ExecutorService
-		this.executorService = Executors.newFixedThreadPool( this.numWorkers );
+	/**
+	 * Starts loading the image with the given {@link TileKey}. The {@link TileRequest} having the highest priority is submitted to the
+	 * workers, all of them will be notified.
+	 * @param key
+	 * @param tileRequests - the {@link TileRequest}s needing the image
+	 */
+	private void start( TileKey key, List<TileRequest> tileRequests )
+	{
+		TileRequest tileRequest = getHighestPriority( tileRequests );
+		tileRequest.setTileStore( this.tileStore );
+		tileRequest.setTilePackage( this.tilePackage );
+		tileRequest.setOffline( this.offline );
+		tileRequest.setExecutor( this.executorService );
+		tileRequest.setFetcher( this.tileFetcher );
+		tileRequest.setHostLimiter( this.hostLimiter );
+		tileRequest.setDecodeStage( this.decodeStage );
+		tileRequest.setFetchStatistics( this.fetchStatistics );
+		tileRequest.setListener( this.requestListener );
+		this.runningTileRequests.put( key, tileRequest );
+		this.interestedTileIds.put( key, new LinkedHashMap<Long, TileNumber>( ) );
+		tileRequest.submit( );
 
-		synchronized ( pendingTileRequests )
+		this.updateInterestedTileIds( key, tileRequests );
+	}
+
+	/**
+	 * Returns the {@link TileRequest} having the highest priority (lowest band and distance) of the given (non-empty) list.
+	 * @param tileRequests
+	 * @return
+	 */
+	private static TileRequest getHighestPriority( List<TileRequest> tileRequests )
+	{
+		TileRequest result = tileRequests.get( 0 );
+		for ( TileRequest tileRequest : tileRequests )
 		{
-			// copy the pending to the running tile-requests
-			for ( TileRequest tileRequest : this.pendingTileRequests )
-			{
-				this.runningTileRequests.add( tileRequest );
-			}
+			if ( comparePriority( tileRequest, result ) < 0 )
+				result = tileRequest;
 		}
+		return result;
+	}
 
-		// start the requests
-		for ( TileRequest tileRequest : this.runningTileRequests )
+	/**
+	 * Compares the priority of the given {@link TileRequest}s, a negative value is returned if the first one has to be executed first.
+	 * @param r1
+	 * @param r2
+	 * @return
+	 */
+	static int comparePriority( TileRequest r1, TileRequest r2 )
+	{
+		int result = Integer.compare( r1.getPriorityBand( ), r2.getPriorityBand( ) );
+		if ( result == 0 )
+			result = Double.compare( r1.getPriorityDistance( ), r2.getPriorityDistance( ) );
+		return result;
+	}
+
+	private boolean isVisibleTileRunning( )
+	{
+		for ( TileRequest tileRequest : this.runningTileRequests.values( ) )
 		{
-			this.executorService.submit( tileRequest );
-			// notify the listeners
-			this.fireTileLoadRequestStarted( tileRequest.getTileId( ) );
+			if ( tileRequest.isVisible( ) )
+				return true;
 		}
+		return false;
+	}
 
-		// clear the event-queue to suppress multiple requests for new tiles 
-		this.eventQueue.clear( );
+	private void firstVisibleTileRequested( )
+	{
+		if ( this.firstVisibleTileRequested < 0 )
+			this.firstVisibleTileRequested = System.nanoTime( );
 	}
 
-	private void processCancelAllRequests( ) throws TileLoaderException, InterruptedException
+	private void firstVisibleTileDelivered( )
 	{
-		if ( this.executorService == null )
+		if ( this.firstVisibleTileRequested < 0 )
 			return;
 
-		State oldState = this.state;
-		this.state = State.CANCELLING;
-		if ( oldState != this.state )
-			this.log.fine( "StateChange: " + oldState + " --> " + this.state );
+		this.timeToFirstVisibleTile = System.nanoTime( ) - this.firstVisibleTileRequested;
+		this.firstVisibleTileRequested = -1;
+		this.log.fine( "Time to first visible tile: " + ( this.timeToFirstVisibleTile / 1000000d ) + " ms" );
+	}
 
-		int numRunningRequests = this.runningTileRequests.size( );
-		this.log.fine( "Cancelling " + numRunningRequests + " running requests..." );
-		// cancel all running tasks, block adding pending ones
-		this.executorService.shutdownNow( );
+	/**
+	 * Returns the time (in ms) from requesting visible tiles (tiles of the view-port) until the first of them was delivered. Measured
+	 * again each time visible tiles are requested while no visible tile is waiting.
+	 * @return - the last measured time or -1 if no measurement was completed yet
+	 */
+	public double getTimeToFirstVisibleTile( )
+	{
+		long time = this.timeToFirstVisibleTile;
+		return ( time < 0 ) ? -1 : time / 1000000d;
+	}
+
+	/**
+	 * Takes a token of the prefetch-budget (see {@link TileLoader#setPrefetchBudget(int)}).
+	 * @return - false if the budget is exhausted (the prefetch-request must not be started)
+	 */
+	private boolean acquirePrefetchToken( )
+	{
+		int budget = this.prefetchBudget;
+		long now = System.nanoTime( );
+		this.prefetchTokens = Math.min( budget, this.prefetchTokens + ( ( now - this.prefetchTokensUpdated ) / 1e9 ) * budget );
+		this.prefetchTokensUpdated = now;
+		if ( this.prefetchTokens < 1 )
+			return false;
+		this.prefetchTokens--;
+		return true;
+	}
+
+	/**
+	 * Replaces the tiles waiting for the image with the given {@link TileKey} by the tiles of the given {@link TileRequest}s. The
+	 * listeners are notified for each added (started) and removed (cancelled) tile.
+	 * @param key
+	 * @param tileRequests
+	 */
+	private void updateInterestedTileIds( TileKey key, List<TileRequest> tileRequests )
+	{
+		Map<Long, TileNumber> oldTiles = this.interestedTileIds.get( key );
+		Map<Long, TileNumber> newTiles = new LinkedHashMap<>( );
+		for ( TileRequest tileRequest : tileRequests )
+		{
+			// no tile is waiting for a prefetched image
+			if ( !tileRequest.isPrefetch( ) )
+				newTiles.put( tileRequest.getTileId( ), tileRequest.getTileNumber( ) );
+		}
+
+		for ( Map.Entry<Long, TileNumber> tile : oldTiles.entrySet( ) )
+		{
+			if ( !newTiles.containsKey( tile.getKey( ) ) )
+				this.fireTileLoadRequestFailed( tile.getKey( ), tile.getValue( ), FailReason.CANCELLED, "Cancelled" );
+		}
+		for ( Map.Entry<Long, TileNumber> tile : newTiles.entrySet( ) )
+		{
+			if ( !oldTiles.containsKey( tile.getKey( ) ) )
+				this.fireTileLoadRequestStarted( tile.getKey( ), tile.getValue( ) );
+		}
+
+		this.interestedTileIds.put( key, newTiles );
+	}
+
+	/**
+	 * Cancels loading the image with the given {@link TileKey} and notifies the listeners for each tile waiting for this image. The caller
+	 * is responsible to remove the {@link TileRequest} from the running requests (afterwards).
+	 * @param key
+	 */
+	private void cancel( TileKey key )
+	{
+		// cancel the queued/running task and abort the download, it might be in progress without occupying a worker
+		TileRequest tileRequest = this.runningTileRequests.get( key );
+		if ( tileRequest != null )
+			tileRequest.cancel( );
 
-		boolean terminated = false;
-		int numTries = 0;
-		// wait for termination for at max 5*5 s
-		while ( !terminated && ( numTries < 5 ) )
+		Map<Long, TileNumber> tiles = this.interestedTileIds.remove( key );
+		if ( tiles != null )
 		{
-			terminated = this.executorService.awaitTermination( 5, TimeUnit.SECONDS );
-			numTries++;
+			for ( Map.Entry<Long, TileNumber> tile : tiles.entrySet( ) )
+				this.fireTileLoadRequestFailed( tile.getKey( ), tile.getValue( ), FailReason.CANCELLED, "Cancelled" );
 		}
+	}
 
-		// unable to terminate the running tasks within 25s --> throw an exception
-		if ( !terminated )
+	/**
+	 * Removes all pending {@link Event#NEW_REQUEST_BLOCK_AVAILABLE} events from the event-queue since the latest request-block is
+	 * processed. All other events are kept. Has to be called while holding the lock of the pending request-block.
+	 */
+	private void discardRequestEvents( )
+	{
+		Iterator<Event> it = this.eventQueue.iterator( );
+		while ( it.hasNext( ) )
 		{
-			throw new TileLoaderException( "Unable to terminate running TileRequests" );
+			if ( it.next( ) == Event.NEW_REQUEST_BLOCK_AVAILABLE )
+				it.remove( );
 		}
+	}
 
-		this.executorService = null;
+	private void processCancelAllRequests( )
+	{
+		if ( this.runningTileRequests.isEmpty( ) )
+			return;
 
-		// notify all listeners, for the pending requests
-		for ( TileRequest tileRequest : this.runningTileRequests )
+		State oldState = this.state;
+		this.state = State.CANCELLING;
+		if ( oldState != this.state )
+			this.log.fine( "StateChange: " + oldState + " --> " + this.state );
+
+		int numRunningRequests = this.runningTileRequests.size( );
+		this.log.fine( "Cancelling " + numRunningRequests + " running requests..." );
+
+		// cancel all running tasks and notify the listeners, the workers are kept alive
+		for ( TileKey key : this.runningTileRequests.keySet( ) )
 		{
-			fireTileLoadRequestFailed( tileRequest.getTileId( ), FailReason.CANCELLED, "Cancelled" );
+			this.cancel( key );
 		}
 		this.runningTileRequests.clear( );
 
 		this.log.fine( "Cancelling " + numRunningRequests + " running requests...done" );
 	}
 
+	/**
+	 * Replaces the set of needed {@link TileRequest}s by the given request-block. Started requests whose image is still needed by the block
+	 * keep running, started requests that are not part of the block anymore will be cancelled. Requests of different tiles for the same
+	 * image share one download.
+	 * @param requestBlock
+	 */
 	public void addTileRequestBlock( List<TileRequest> requestBlock )
 	{
 		try
 		{
-			// cancel open/running requests
+			// replace the needed requests
 			synchronized ( this.pendingTileRequests )
 			{
 				this.pendingTileRequests.clear( );
 				for ( TileRequest request : requestBlock )
 					this.pendingTileRequests.add( request );
+				this.pendingBlockVersion++;
 			}
 
 			// start to process the new requests
@@ -289,6 +788,201 @@ public class TileLoader extends Thread
 		}
 	}
 
+	/**
+	 * Returns the cache for decoded tile-images (might be null if caching is disabled).
+	 * @return
+	 */
+	public TileImageCache getImageCache( )
+	{
+		return imageCache;
+	}
+
+	/**
+	 * Sets the persistent store for the raw bytes of the images. Images available in the store will not be downloaded.
+	 * @param tileStore - the store (null disables the persistent store)
+	 */
+	public void setTileStore( DiskTileStore tileStore )
+	{
+		this.tileStore = tileStore;
+	}
+
+	public DiskTileStore getTileStore( )
+	{
+		return tileStore;
+	}
+
+	/**
+	 * Sets the offline package of pre-rendered tiles. The images of tile-addressed map-providers (see
+	 * {@link thobe.mapview.kernel.mapprovider.MapURLBuilder#isTileAddressed()}) that are available in the package are neither loaded from
+	 * the persistent store nor downloaded. Applies to requests started afterwards.
+	 * @param tilePackage - the package (null disables the package)
+	 */
+	public void setTilePackage( TilePackage tilePackage )
+	{
+		this.tilePackage = tilePackage;
+	}
+
+	public TilePackage getTilePackage( )
+	{
+		return tilePackage;
+	}
+
+	/**
+	 * Enables/disables the offline-mode: Images that are not available locally (tile-package or persistent store) are not downloaded, the
+	 * requests fail immediately instead of waiting for the timeouts of the (unreachable) servers. Applies to requests started afterwards.
+	 * @param offline
+	 */
+	public void setOffline( boolean offline )
+	{
+		this.offline = offline;
+	}
+
+	public boolean isOffline( )
+	{
+		return offline;
+	}
+
+	/**
+	 * Sets the backend used to download the images, e.g. the blocking {@link URLConnectionTileFetcher} (default) or the non-blocking
+	 * {@link HttpClientTileFetcher}. Applies to requests started afterwards.
+	 * @param tileFetcher
+	 */
+	public void setTileFetcher( TileFetcher tileFetcher )
+	{
+		this.tileFetcher = ( tileFetcher == null ) ? new URLConnectionTileFetcher( ) : tileFetcher;
+	}
+
+	public TileFetcher getTileFetcher( )
+	{
+		return tileFetcher;
+	}
+
+	/**
+	 * Sets the max. number of concurrent downloads per host. Applies to requests started afterwards.
+	 * @param maxRequestsPerHost - the limit (a value <= 0 disables the limit)
+	 */
+	public void setMaxRequestsPerHost( int maxRequestsPerHost )
+	{
+		this.hostLimiter = ( maxRequestsPerHost > 0 ) ? new HostConcurrencyLimiter( maxRequestsPerHost ) : null;
+	}
+
+	/**
+	 * Returns the max. number of concurrent downloads per host or -1 if unlimited.
+	 * @return
+	 */
+	public int getMaxRequestsPerHost( )
+	{
+		HostConcurrencyLimiter limiter = this.hostLimiter;
+		return ( limiter == null ) ? -1 : limiter.getMaxConcurrentRequests( );
+	}
+
+	/**
+	 * Sets the configuration of the screen the tiles are drawn on, the decoded images are converted into images having its pixel-layout.
+	 * @param graphicsConfiguration - the configuration (null uses the default screen)
+	 */
+	public void setGraphicsConfiguration( GraphicsConfiguration graphicsConfiguration )
+	{
+		if ( graphicsConfiguration == null )
+			graphicsConfiguration = CompatibleImageConverter.getDefaultConfiguration( );
+		this.decodeStage.setImageConverter( new CompatibleImageConverter( graphicsConfiguration ) );
+	}
+
+	/**
+	 * Sets the max. number of prefetch-requests (see {@link TileRequest#PRIORITY_PREFETCH}) started per second. Prefetch-requests exceeding
+	 * the budget are not started, images already cached or loading are not charged.
+	 * @param prefetchBudget - the budget (0 disables prefetching)
+	 */
+	public void setPrefetchBudget( int prefetchBudget )
+	{
+		if ( prefetchBudget < 0 )
+			throw new IllegalArgumentException( "The prefetch-budget has to be >= 0 (was " + prefetchBudget + ")." );
+		this.prefetchBudget = prefetchBudget;
+	}
+
+	public int getPrefetchBudget( )
+	{
+		return prefetchBudget;
+	}
+
+	/**
+	 * Returns the statistics of the prefetching, e.g. how many of the images needed by the tiles were already prefetched.
+	 * @return
+	 */
+	public PrefetchStatistics getPrefetchStatistics( )
+	{
+		return prefetchStatistics;
+	}
+
+	/**
+	 * Returns the latency-statistics of the fetch-stage (workers loading the raw bytes from the persistent store or the server).
+	 * @return
+	 */
+	public StageStatistics getFetchStatistics( )
+	{
+		return fetchStatistics;
+	}
+
+	/**
+	 * Returns the statistics of the time the fetched bytes are waiting for a decoder.
+	 * @return
+	 */
+	public StageStatistics getDecodeQueueStatistics( )
+	{
+		return this.decodeStage.getQueueStatistics( );
+	}
+
+	/**
+	 * Returns the latency-statistics of the decode-stage.
+	 * @return
+	 */
+	public StageStatistics getDecodeStatistics( )
+	{
+		return this.decodeStage.getDecodeStatistics( );
+	}
+
+	/**
+	 * Returns the kind of threads actually used to execute the {@link TileRequest}s ({@link ExecutionMode#FIXED_POOL} if virtual threads
+	 * were requested but are not supported).
+	 * @return
+	 */
+	public ExecutionMode getExecutionMode( )
+	{
+		return executionMode;
+	}
+
+	/**
+	 * Returns a {@link ThreadFactory} creating virtual threads or null if virtual threads are not supported by this JVM. Reflection is
+	 * used to stay compatible to JVMs without virtual threads.
+	 * @return
+	 */
+	private static ThreadFactory createVirtualThreadFactory( )
+	{
+		try
+		{
+			Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+			Class<?> builderClass = Class.forName( "java.lang.Thread$Builder" );
+			builder = builderClass.getMethod( "name", String.class, long.class ).invoke( builder, "TileWorker-", 0L );
+			return ( ThreadFactory ) builderClass.getMethod( "factory" ).invoke( builder );
+		}
+		catch ( ReflectiveOperationException | RuntimeException e )
+		{
+			// not available or preview-feature not enabled
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the image with the given {@link TileKey} if it is available in the image-cache, null otherwise.
+	 * @param key
+	 * @return
+	 */
+	private Image getCachedImage( TileKey key )
+	{
+		if ( this.imageCache == null )
+			return null;
+		return this.imageCache.get( key );
+	}
+
 	public void addListener( TileLoaderListener l )
 	{
 		this.listeners.add( l );
@@ -299,21 +993,40 @@ public class TileLoader extends Thread
 		this.listeners.remove( l );
 	}
 
-	private void fireTileLoadRequestComplete( String tileId, Image image )
+	private void fireTileLoadRequestComplete( long tileId, TileNumber tileNumber, Image image )
 	{
 		for ( TileLoaderListener l : this.listeners )
-			l.onTileLoadRequestComplete( tileId, image );
+			l.onTileLoadRequestComplete( tileId, tileNumber, image );
 	}
 
-	private void fireTileLoadRequestStarted( String tileId )
+	private void fireTileLoadRequestStarted( long tileId, TileNumber tileNumber )
 	{
 		for ( TileLoaderListener l : this.listeners )
-			l.onTileLoadRequestStarted( tileId );
+			l.onTileLoadRequestStarted( tileId, tileNumber );
 	}
 
-	private void fireTileLoadRequestFailed( String tileId, FailReason reason, String cause )
+	private void fireTileLoadRequestFailed( long tileId, TileNumber tileNumber, FailReason reason, String cause )
 	{
 		for ( TileLoaderListener l : this.listeners )
-			l.onTileLoadRequestFailed( tileId, reason, cause );
+			l.onTileLoadRequestFailed( tileId, tileNumber, reason, cause );
+	}
+
+	/**
+	 * Listener pushing terminated {@link TileRequest}s into the queue of completed requests and waking up the {@link TileLoader}.
+	 */
+	private class RequestCompletionListener implements TileRequestListener
+	{
+		@Override
+		public void onError( TileRequest tileRequest, String msg )
+		{
+			// errors are reported to the TileLoaderListeners when the request is processed
+		}
+
+		@Override
+		public void onDone( TileRequest tileRequest )
+		{
+			completedTileRequests.add( tileRequest );
+			eventQueue.add( Event.REQUEST_COMPLETED );
+		}
 	}
 }
@@ -11,7 +11,12 @@ package thobe.mapview.kernel.tileloader;
 
 import java.awt.Image;
 
+import thobe.mapview.kernel.tilesystem.TileNumber;
+
 /**
+ * Listener notified about the state of the images requested for the {@link thobe.mapview.kernel.tilesystem.Tile}s. The tiles are identified
+ * by their (column/row-packed) id, see {@link thobe.mapview.kernel.tilesystem.Tile#toTileId(int, int)}. Each notification carries the
+ * {@link TileNumber} the tile has requested, the tile might have got a different one meanwhile (the notification is outdated then).
  * @author Thomas Obenaus
  * @source TileLoaderListener.java
  * @date Nov 30, 2013
@@ -23,10 +28,10 @@ public interface TileLoaderListener
 		CANCELLED, ERROR;
 	};
 
-	public void onTileLoadRequestComplete( String tileId, Image image );
+	public void onTileLoadRequestComplete( long tileId, TileNumber tileNumber, Image image );
 
-	public void onTileLoadRequestStarted( String tileId );
+	public void onTileLoadRequestStarted( long tileId, TileNumber tileNumber );
 
-	public void onTileLoadRequestFailed( String tileId, FailReason reason, String cause );
+	public void onTileLoadRequestFailed( long tileId, TileNumber tileNumber, FailReason reason, String cause );
 
 }
@@ -10,16 +10,27 @@
 package thobe.mapview.kernel.tileloader;
 
 import java.awt.Image;
-import java.io.BufferedInputStream;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URL;
-import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
 
 import thobe.mapview.kernel.mapprovider.MapProvider;
+import thobe.mapview.kernel.mapprovider.MapType;
 import thobe.mapview.kernel.mapprovider.MapURLBuilder;
+import thobe.mapview.kernel.tilecache.DiskTileStore;
+import thobe.mapview.kernel.tilecache.TileKey;
+import thobe.mapview.kernel.tilecache.TilePackage;
 import thobe.mapview.kernel.tilesystem.Tile;
 import thobe.mapview.kernel.tilesystem.TileNumber;
 
@@ -29,20 +40,186 @@ import thobe.mapview.kernel.tilesystem.TileNumber;
  */
 public class TileRequest implements Runnable
 {
-	private static final int	READ_TIMEOUT	= 1500;
-	private final int			MAX_RETRIES		= 2;
+	/**
+	 * Priority-band of tiles that are visible (part of the view-port).
+	 */
+	public static final int		PRIORITY_VIEWPORT			= 0;
+
+	/**
+	 * Priority-band of tiles that are only part of the inner extension of the view-port.
+	 */
+	public static final int		PRIORITY_INNER_EXTENSION	= 1;
+
+	/**
+	 * Priority-band of tiles that are only part of the outer extension of the view-port.
+	 */
+	public static final int		PRIORITY_OUTER_EXTENSION	= 2;
+
+	/**
+	 * Priority-band of images that are not needed by any tile yet but are expected to be needed soon (prefetching, e.g. ahead of the
+	 * panning map or for the next zoom-level). Only started if the prefetch-budget of the {@link TileLoader} allows.
+	 */
+	public static final int		PRIORITY_PREFETCH			= 3;
+
+	private static final int	READ_TIMEOUT				= 1500;
+	private final int			MAX_RETRIES					= 2;
 
 	private Logger				logger;
 	private MapURLBuilder		urlBuilder;
-	private String				tileId;
+	private long				tileId;
 	private Image				image;
 	private String				error;
 	private boolean				terminated;
 	private TileNumber			tileNumber;
+	private MapType				mapType;
+	private TileKey				key;
+
+	/**
+	 * Priority of this request: requests of a lower band are executed first, within a band requests with a lower distance (to the center of
+	 * the view-port) are executed first.
+	 */
+	private volatile int		priorityBand;
+	private volatile double		priorityDistance;
+
+	/**
+	 * Backend used to download the image.
+	 */
+	private TileFetcher			fetcher;
+
+	/**
+	 * Limits the concurrent downloads per host (might be null).
+	 */
+	private HostConcurrencyLimiter	hostLimiter;
+
+	/**
+	 * The {@link URL} whose host has permitted the download of this request (null if no permit is held). Taken atomically when released,
+	 * so the permit is returned exactly once (e.g. by the download and a concurrent {@link TileRequest#cancel()}).
+	 */
+	private AtomicReference<URL>	hostPermit;
+
+	/**
+	 * Stage decoding the fetched bytes (might be null).
+	 */
+	private DecodeStage			decodeStage;
+
+	/**
+	 * Statistics of the fetch-stage (might be null) and the start of the fetch.
+	 */
+	private StageStatistics		fetchStatistics;
+	private long				fetchStart;
+
+	/**
+	 * The download currently in progress (null if none).
+	 */
+	private volatile CompletableFuture<byte[]>	pendingFetch;
+
+	/**
+	 * True if this request was cancelled, no further retries will be done.
+	 */
+	private volatile boolean	cancelled;
+
+	/**
+	 * Workers of the {@link TileLoader} executing this request (null if executed by the caller of {@link TileRequest#run()}). A download
+	 * that has to be retried is submitted again, it is never executed by the thread that has detected the failure (e.g. a decoder).
+	 */
+	private PriorityTileExecutor	executor;
+
+	/**
+	 * The latest submission of this request to the executor (null if not submitted).
+	 */
+	private volatile Future<?>	task;
+
+	/**
+	 * True while {@link TileRequest#run()} is executed.
+	 */
+	private volatile boolean	executing;
+
+	/**
+	 * Number of retries done so far, applies to the next execution of {@link TileRequest#run()}.
+	 */
+	private int					retries;
+
+	/**
+	 * True if the tile-package and the persistent store were checked already (they are not checked again when retrying).
+	 */
+	private boolean				localChecked;
+
+	/**
+	 * Bytes downloaded by a non-blocking {@link TileFetcher}, handed over to the decoders by the next execution of
+	 * {@link TileRequest#run()} (null if none).
+	 */
+	private ByteBuffer			downloadedData;
+
+	/**
+	 * Persistent store for the raw bytes of the images (might be null).
+	 */
+	private DiskTileStore		tileStore;
+
+	/**
+	 * Offline package of pre-rendered tiles, checked first (might be null).
+	 */
+	private TilePackage			tilePackage;
+
+	/**
+	 * True if images not available locally (tile-package or persistent store) must not be downloaded.
+	 */
+	private boolean				offline;
+
+	/**
+	 * Listener that is notified as soon as this {@link TileRequest} has terminated (might be null).
+	 */
+	private TileRequestListener	listener;
+
+	public TileRequest( Logger logger, MapURLBuilder urlBuilder, long tileId, TileNumber tileNumber )
+	{
+		this( logger, urlBuilder, tileId, tileNumber, MapType.ROADMAP );
+	}
 
+	/**
+	 * Ctor (compatibility), prefer {@link TileRequest#TileRequest(Logger, MapURLBuilder, long, TileNumber)}.
+	 * @param logger
+	 * @param urlBuilder
+	 * @param tileId - the id of the tile as "column,row"
+	 * @param tileNumber
+	 */
 	public TileRequest( Logger logger, MapURLBuilder urlBuilder, String tileId, TileNumber tileNumber )
+	{
+		this( logger, urlBuilder, Tile.tileIdToLong( tileId ), tileNumber, MapType.ROADMAP );
+	}
+
+	/**
+	 * Ctor
+	 * @param logger
+	 * @param urlBuilder
+	 * @param tileId - the id of the tile (see {@link Tile#toTileId(int, int)})
+	 * @param tileNumber
+	 * @param mapType
+	 */
+	public TileRequest( Logger logger, MapURLBuilder urlBuilder, long tileId, TileNumber tileNumber, MapType mapType )
 	{
 		this.tileNumber = tileNumber;
+		this.mapType = mapType;
+		this.key = null;
+		this.priorityBand = PRIORITY_VIEWPORT;
+		this.priorityDistance = 0;
+		this.fetcher = new URLConnectionTileFetcher( READ_TIMEOUT );
+		this.hostLimiter = null;
+		this.hostPermit = new AtomicReference<>( );
+		this.decodeStage = null;
+		this.fetchStatistics = null;
+		this.fetchStart = 0;
+		this.pendingFetch = null;
+		this.cancelled = false;
+		this.executor = null;
+		this.task = null;
+		this.executing = false;
+		this.retries = 0;
+		this.localChecked = false;
+		this.downloadedData = null;
+		this.tileStore = null;
+		this.tilePackage = null;
+		this.offline = false;
+		this.listener = null;
 		this.error = null;
 		this.image = null;
 		this.logger = logger;
@@ -54,60 +231,527 @@ public class TileRequest implements Runnable
 	@Override
 	public void run( )
 	{
-		String errorMsg = null;
-		Image tileImage = null;
-		boolean completed = false;
-		int retries = 0;
+		// see cancel(): a permit of the host is released by the execution if it has started
+		this.executing = true;
+		try
+		{
+			this.execute( );
+		}
+		finally
+		{
+			this.executing = false;
+		}
+	}
+
+	private void execute( )
+	{
+		if ( this.cancelled )
+		{
+			this.terminate( null, " Cancelled" );
+			return;
+		}
+
+		// the download has completed while the request was not executed by a worker
+		ByteBuffer downloaded = this.downloadedData;
+		if ( downloaded != null )
+		{
+			this.downloadedData = null;
+			this.fetched( downloaded, false, this.retries );
+			return;
+		}
 
-		while ( !completed )
+		// try to load the image from the tile-package or the persistent store first
+		if ( !this.localChecked )
 		{
-			try
+			this.localChecked = true;
+			this.fetchStart = System.nanoTime( );
+			ByteBuffer data = this.loadFromTilePackage( );
+			if ( data == null )
+				data = this.loadFromTileStore( );
+			if ( data != null )
 			{
-				if ( this.tileNumber == null )
-					throw new IllegalArgumentException( "Center of tile is null." );
-				if ( this.urlBuilder == null )
-					throw new IllegalArgumentException( "UrlBuilder is null." );
+				this.fetched( data, true, 0 );
+				return;
+			}
+		}
+
+		this.download( this.retries );
+	}
+
+	/**
+	 * Submits this request to the executor (again). The submission is guarded by the lock of this request, so
+	 * {@link PriorityTileExecutor#updatePriority(TileRequest, int, double)} never modifies the priority while the request is inserted into
+	 * the queue.
+	 */
+	synchronized void submit( )
+	{
+		this.task = this.executor.submit( this );
+	}
+
+	/**
+	 * Continues this request with downloading the image (the local sources are not checked again). The download is submitted to the
+	 * executor, the calling thread returns immediately. Without executor the download is done within the calling thread.
+	 * @param retries - number of retries done so far
+	 */
+	private void resubmit( int retries )
+	{
+		if ( this.executor == null )
+		{
+			this.download( retries );
+			return;
+		}
+
+		this.retries = retries;
+		this.resume( );
+	}
+
+	/**
+	 * Hands the bytes downloaded by a non-blocking {@link TileFetcher} over to the workers, they pass them to the decoders. The thread
+	 * completing the download (e.g. a thread of the {@link java.net.http.HttpClient}) returns immediately. Without executor the bytes are
+	 * decoded within the calling thread.
+	 * @param data
+	 * @param retries - number of retries done so far
+	 */
+	private void downloaded( byte[] data, int retries )
+	{
+		if ( this.executor == null )
+		{
+			this.fetched( ByteBuffer.wrap( data ), false, retries );
+			return;
+		}
+
+		this.retries = retries;
+		this.downloadedData = ByteBuffer.wrap( data );
+		this.resume( );
+	}
+
+	/**
+	 * Called by the {@link HostConcurrencyLimiter} as soon as the host permits the download this request is waiting for. The download is
+	 * submitted to the workers (or done within the calling thread if there is no executor).
+	 * @param url
+	 */
+	void permitGranted( URL url )
+	{
+		this.hostPermit.set( url );
 
+		// cancelled after the limiter has checked it, the request won't be executed anymore
+		if ( this.cancelled )
+		{
+			this.terminate( null, " Cancelled" );
+			return;
+		}
+
+		if ( this.executor == null )
+			this.download( this.retries );
+		else this.resume( );
+	}
+
+	/**
+	 * Returns the permit of the host (if held) to the {@link HostConcurrencyLimiter}.
+	 */
+	private void releaseHostPermit( )
+	{
+		URL url = this.hostPermit.getAndSet( null );
+		if ( url == null )
+			return;
+		this.hostLimiter.release( url );
+	}
+
+	/**
+	 * Submits this request to the executor to continue it, terminates it if the executor was shut down.
+	 */
+	private void resume( )
+	{
+		try
+		{
+			this.submit( );
+		}
+		catch ( RejectedExecutionException e )
+		{
+			// the TileLoader was shut down
+			this.terminate( null, " Cancelled" );
+		}
+	}
+
+	/**
+	 * Starts downloading the image using the {@link TileFetcher}. A download completed by a blocking {@link TileFetcher} is handed over
+	 * to the decoders by the calling thread. The thread completing the download of a non-blocking {@link TileFetcher} must not block, it
+	 * submits the request to the workers (see {@link TileRequest#downloaded(byte[], int)}). Retries are always submitted to the workers.
+	 * @param retries - number of retries done so far
+	 */
+	private void download( final int retries )
+	{
+		// fail immediately instead of waiting for the timeouts
+		if ( this.offline )
+		{
+			this.terminate( null, " Not available offline" );
+			return;
+		}
+
+		URL url = null;
+		try
+		{
+			if ( this.tileNumber == null )
+				throw new IllegalArgumentException( "Center of tile is null." );
+			if ( this.urlBuilder == null )
+				throw new IllegalArgumentException( "UrlBuilder is null." );
+
+			// projecting the center is expensive, only do it if it is logged
+			if ( this.logger.isLoggable( Level.FINE ) )
 				this.logger.fine( "Loading " + logPrefix( this.tileId ) + "(tileNumber=" + this.tileNumber + ", center=" + this.tileNumber.getCenter( ).getFormatted( ) + ", size=" + Tile.TILE_SIZE_PX + "x" + Tile.TILE_SIZE_PX + ", zoom=" + this.tileNumber.getZoom( ) + ")" );
 
-				URL url = this.urlBuilder.buildURL( this.tileNumber.getCenter( ), this.tileNumber.getZoom( ), Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX );
+			// tile-servers deliver the image of the whole tile, static-map services render the image around the center
+			if ( this.urlBuilder.isTileAddressed( ) )
+				url = this.urlBuilder.buildTileURL( this.tileNumber.getZoom( ), this.tileNumber.getXIndex( ), this.tileNumber.getYIndex( ), this.mapType );
+			else url = this.urlBuilder.buildURL( this.tileNumber.getCenter( ), this.tileNumber.getZoom( ), Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX, this.mapType );
+		}
+		catch ( IllegalArgumentException | IOException e )
+		{
+			// the url won't change, so don't retry (e.g. tile-number outside of the world, expected at low zoom-levels)
+			this.logger.fine( " " + e.getClass( ).getSimpleName( ) + ": " + e.getLocalizedMessage( ) );
+			this.terminate( null, " " + e.getClass( ).getSimpleName( ) + ": " + e.getLocalizedMessage( ) );
+			return;
+		}
+
+		// without a permit of the host the request is queued by the limiter, it is resumed as soon as it gets the permit
+		final HostConcurrencyLimiter limiter = this.hostLimiter;
+		if ( ( limiter != null ) && ( this.hostPermit.get( ) == null ) )
+		{
+			this.retries = retries;
+			if ( !limiter.acquire( url, this ) )
+				return;
+			this.hostPermit.set( url );
+		}
 
-				this.logger.fine( logPrefix( this.tileId ) + " Connecting to: " + url + "..." );
-				URLConnection con = url.openConnection( );
-				con.setReadTimeout( READ_TIMEOUT );
-				con.setConnectTimeout( READ_TIMEOUT );
+		this.logger.fine( logPrefix( this.tileId ) + " Connecting to: " + url + "..." );
+		CompletableFuture<byte[]> fetch = this.fetcher.fetch( url );
+		this.pendingFetch = fetch;
 
-				// check content length
-				if ( con.getContentLengthLong( ) == 0 )
-					throw new IllegalArgumentException( "Loaded image is empty." );
+		// the request was cancelled while the fetch was started
+		if ( this.cancelled )
+			fetch.cancel( true );
 
-				// read the image
-				BufferedInputStream in = new BufferedInputStream( con.getInputStream( ) );
-				tileImage = ImageIO.read( in );
-				in.close( );
-				completed = true;
-			}
-			catch ( IllegalArgumentException | IOException e )
+		// completed by a blocking fetcher: hand the bytes over to the decoders within this thread (blocks while the decoders are busy)
+		final boolean completedByCaller = fetch.isDone( );
+		fetch.whenComplete( new BiConsumer<byte[], Throwable>( )
+		{
+			@Override
+			public void accept( byte[] data, Throwable t )
 			{
-				if ( retries >= MAX_RETRIES )
-				{
-					errorMsg = " " + e.getClass( ).getSimpleName( ) + ": " + e.getLocalizedMessage( );
-					completed = true;
-					this.logger.warning( " " + e.getClass( ).getSimpleName( ) + ": " + e.getLocalizedMessage( ) );
-				}
-				this.logger.fine( " " + e.getClass( ).getSimpleName( ) + ": " + e.getLocalizedMessage( ) );
-				retries++;
+				releaseHostPermit( );
+
+				if ( t != null )
+					downloadFailed( ( t instanceof CompletionException && t.getCause( ) != null ) ? t.getCause( ) : t, retries );
+				else if ( completedByCaller )
+					fetched( ByteBuffer.wrap( data ), false, retries );
+				else downloaded( data, retries );
 			}
+		} );
+	}
+
+	/**
+	 * Called as soon as the raw bytes of the image are available. The bytes are handed over to the {@link DecodeStage} (or decoded
+	 * immediately if this request is not executed by a {@link TileLoader}).
+	 * @param data
+	 * @param fromStore - true if the bytes were loaded locally (persistent store or tile-package)
+	 * @param retries - number of download-retries done so far
+	 */
+	private void fetched( ByteBuffer data, boolean fromStore, int retries )
+	{
+		if ( this.fetchStatistics != null )
+			this.fetchStatistics.record( System.nanoTime( ) - this.fetchStart );
 
+		if ( this.decodeStage == null )
+		{
+			this.decode( data, fromStore, retries );
+			return;
 		}
 
+		try
+		{
+			this.decodeStage.submit( this, data, fromStore, retries );
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread( ).interrupt( );
+			this.terminate( null, " " + e.getClass( ).getSimpleName( ) + ": " + e.getLocalizedMessage( ) );
+		}
+	}
+
+	/**
+	 * Decodes the raw bytes of the image and keeps downloaded bytes in the persistent store. Called by the {@link DecodeStage}.
+	 * @param data - the raw bytes (from position to limit), read without copying them
+	 * @param fromStore - true if the bytes were loaded locally (persistent store or tile-package)
+	 * @param retries - number of download-retries done so far
+	 */
+	void decode( ByteBuffer data, boolean fromStore, int retries )
+	{
+		// don't waste time decoding images of cancelled requests
+		if ( this.cancelled )
+		{
+			this.terminate( null, " Cancelled" );
+			return;
+		}
+
+		Image tileImage = null;
+		try
+		{
+			BufferedImage decodedImage = ImageIO.read( new ByteBufferInputStream( data ) );
+
+			// convert once into the pixel-layout of the screen, drawing the tile is a plain blit afterwards
+			if ( ( decodedImage != null ) && ( this.decodeStage != null ) )
+				decodedImage = this.decodeStage.getImageConverter( ).convert( decodedImage );
+			tileImage = decodedImage;
+		}
+		catch ( IOException e )
+		{
+			this.logger.fine( logPrefix( this.tileId ) + " Unable to decode image: " + e.getLocalizedMessage( ) );
+		}
+
+		if ( tileImage == null )
+		{
+			// a broken local entry is replaced by downloading the image again
+			if ( fromStore )
+				this.resubmit( 0 );
+			else this.downloadFailed( new IllegalArgumentException( "Loaded data is no image." ), retries );
+			return;
+		}
+
+		if ( fromStore )
+		{
+			this.logger.fine( "Loading " + logPrefix( this.tileId ) + " from " + ( ( this.tilePackage != null ) ? this.tilePackage : this.tileStore ) );
+		}
+		else if ( this.tileStore != null )
+		{
+			// keep the raw bytes for the next start (downloaded bytes are always backed by an array), written by the thread of the store
+			this.tileStore.putAsync( this.getKey( ), data.array( ) );
+		}
+		this.terminate( tileImage, null );
+	}
+
+	/**
+	 * Retries the download (executed by the workers, see {@link TileRequest#resubmit(int)}) or terminates the request if the max. number
+	 * of retries is reached.
+	 * @param e
+	 * @param retries
+	 */
+	private void downloadFailed( Throwable e, int retries )
+	{
+		this.logger.fine( " " + e.getClass( ).getSimpleName( ) + ": " + e.getLocalizedMessage( ) );
+
+		// don't retry cancelled requests
+		if ( ( retries >= MAX_RETRIES ) || this.cancelled || Thread.currentThread( ).isInterrupted( ) )
+		{
+			this.logger.warning( " " + e.getClass( ).getSimpleName( ) + ": " + e.getLocalizedMessage( ) );
+			this.terminate( null, " " + e.getClass( ).getSimpleName( ) + ": " + e.getLocalizedMessage( ) );
+			return;
+		}
+
+		this.resubmit( retries + 1 );
+	}
+
+	/**
+	 * Stores the result and notifies the listener.
+	 * @param tileImage
+	 * @param errorMsg
+	 */
+	private void terminate( Image tileImage, String errorMsg )
+	{
+		// e.g. cancelled after the permit was granted
+		this.releaseHostPermit( );
+
 		synchronized ( this )
 		{
 			this.error = errorMsg;
 			this.terminated = true;
 			this.image = tileImage;
+			this.pendingFetch = null;
 			this.logger.fine( "Loading " + logPrefix( this.tileId ) + " done" );
 		}
+
+		// notify the listener about the termination
+		if ( this.listener != null )
+		{
+			if ( errorMsg != null )
+				this.listener.onError( this, errorMsg );
+			this.listener.onDone( this );
+		}
+	}
+
+	/**
+	 * Cancels this request, a running download will be aborted (if supported by the {@link TileFetcher}). A permit of the host granted
+	 * to the request while it was not executed is released, the cancelled submission would never do this.
+	 */
+	void cancel( )
+	{
+		this.cancelled = true;
+		Future<?> task = this.task;
+		if ( task != null )
+			task.cancel( true );
+		CompletableFuture<byte[]> fetch = this.pendingFetch;
+		if ( fetch != null )
+			fetch.cancel( true );
+
+		// an execution started afterwards sees the cancellation and terminates (releasing the permit as well)
+		if ( !this.executing )
+			this.releaseHostPermit( );
+	}
+
+	/**
+	 * Returns the raw bytes of the image loaded from the persistent store or null if the image is not available there.
+	 * @return
+	 */
+	private ByteBuffer loadFromTileStore( )
+	{
+		TileKey key = this.getKey( );
+		if ( ( this.tileStore == null ) || ( key == null ) )
+			return null;
+		byte[] data = this.tileStore.get( key );
+		return ( data == null ) ? null : ByteBuffer.wrap( data );
+	}
+
+	/**
+	 * Returns the raw bytes of the image (a slice of the memory-mapped package, not copied) loaded from the tile-package or null if the
+	 * image is not available there. Only images addressed by tiles (see {@link MapURLBuilder#isTileAddressed()}) are available in a
+	 * tile-package. The x-index is wrapped around the map (as for the tile-url), since the package only contains the tiles of one world.
+	 * @return
+	 */
+	private ByteBuffer loadFromTilePackage( )
+	{
+		if ( ( this.tilePackage == null ) || ( this.tileNumber == null ) || ( this.urlBuilder == null ) || !this.urlBuilder.isTileAddressed( ) )
+			return null;
+		int zoom = this.tileNumber.getZoom( );
+		long numTiles = 1L << zoom;
+		long wrappedX = ( ( this.tileNumber.getXIndex( ) % numTiles ) + numTiles ) % numTiles;
+		return this.tilePackage.get( zoom, wrappedX, this.tileNumber.getYIndex( ) );
+	}
+
+	/**
+	 * Sets the backend used to download the image.
+	 * @param fetcher
+	 */
+	void setFetcher( TileFetcher fetcher )
+	{
+		this.fetcher = fetcher;
+	}
+
+	/**
+	 * Sets the executor the request is submitted to (see {@link TileRequest#submit()}), retries are submitted to it as well.
+	 * @param executor
+	 */
+	void setExecutor( PriorityTileExecutor executor )
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the stage decoding the fetched bytes (null decodes within the thread that has fetched the bytes).
+	 * @param decodeStage
+	 */
+	void setDecodeStage( DecodeStage decodeStage )
+	{
+		this.decodeStage = decodeStage;
+	}
+
+	/**
+	 * Sets the statistics receiving the time needed to fetch the raw bytes (from the store or the server), might be null.
+	 * @param fetchStatistics
+	 */
+	void setFetchStatistics( StageStatistics fetchStatistics )
+	{
+		this.fetchStatistics = fetchStatistics;
+	}
+
+	/**
+	 * Sets the limiter for the concurrent downloads per host (null disables the limit).
+	 * @param hostLimiter
+	 */
+	void setHostLimiter( HostConcurrencyLimiter hostLimiter )
+	{
+		this.hostLimiter = hostLimiter;
+	}
+
+	/**
+	 * Sets the persistent store that is checked before the image is downloaded and that receives the downloaded bytes.
+	 * @param tileStore
+	 */
+	void setTileStore( DiskTileStore tileStore )
+	{
+		this.tileStore = tileStore;
+	}
+
+	/**
+	 * Sets the offline package of pre-rendered tiles that is checked first.
+	 * @param tilePackage
+	 */
+	void setTilePackage( TilePackage tilePackage )
+	{
+		this.tilePackage = tilePackage;
+	}
+
+	/**
+	 * If set, images not available locally (tile-package or persistent store) are not downloaded, the request fails immediately.
+	 * @param offline
+	 */
+	void setOffline( boolean offline )
+	{
+		this.offline = offline;
+	}
+
+	/**
+	 * Sets the listener that is notified as soon as this {@link TileRequest} has terminated.
+	 * @param listener
+	 */
+	void setListener( TileRequestListener listener )
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets the priority of this request. Has to be set before the request is passed to the {@link TileLoader}, afterwards the priority is
+	 * maintained by the {@link TileLoader}.
+	 * @param band - the priority-band ({@link TileRequest#PRIORITY_VIEWPORT}, {@link TileRequest#PRIORITY_INNER_EXTENSION},
+	 *            {@link TileRequest#PRIORITY_OUTER_EXTENSION} or {@link TileRequest#PRIORITY_PREFETCH})
+	 * @param distance - distance (in pixels) of the tile to the center of the view-port
+	 */
+	public void setPriority( int band, double distance )
+	{
+		this.priorityBand = band;
+		this.priorityDistance = distance;
+	}
+
+	public int getPriorityBand( )
+	{
+		return priorityBand;
+	}
+
+	public double getPriorityDistance( )
+	{
+		return priorityDistance;
+	}
+
+	/**
+	 * Returns true if this request loads a visible tile (see {@link TileRequest#PRIORITY_VIEWPORT}).
+	 * @return
+	 */
+	public boolean isVisible( )
+	{
+		return this.priorityBand == PRIORITY_VIEWPORT;
+	}
+
+	/**
+	 * Returns true if this request prefetches an image (see {@link TileRequest#PRIORITY_PREFETCH}), the {@link TileLoader} does not
+	 * notify its listeners about such requests.
+	 * @return
+	 */
+	public boolean isPrefetch( )
+	{
+		return this.priorityBand == PRIORITY_PREFETCH;
+	}
+
+	boolean isCancelled( )
+	{
+		return cancelled;
 	}
 
 	public synchronized boolean isTerminated( )
@@ -115,11 +759,28 @@ public class TileRequest implements Runnable
 		return terminated;
 	}
 
-	public String getTileId( )
+	public long getTileId( )
 	{
 		return tileId;
 	}
 
+	public TileNumber getTileNumber( )
+	{
+		return tileNumber;
+	}
+
+	/**
+	 * Returns the {@link TileKey} identifying the image that is loaded by this {@link TileRequest} (null if the {@link TileNumber} or the
+	 * {@link MapURLBuilder} is missing).
+	 * @return
+	 */
+	public TileKey getKey( )
+	{
+		if ( ( this.key == null ) && ( this.tileNumber != null ) && ( this.urlBuilder != null ) )
+			this.key = TileKey.create( this.urlBuilder, this.mapType, this.tileNumber );
+		return this.key;
+	}
+
 	public synchronized boolean isFailed( )
 	{
 		return this.error != null;
@@ -135,8 +796,8 @@ public class TileRequest implements Runnable
 		return image;
 	}
 
-	private static String logPrefix( String tileId )
+	private static String logPrefix( long tileId )
 	{
-		return "Tile [" + tileId + "]";
+		return "Tile [" + Tile.tileIdToString( tileId ) + "]";
 	}
 }
@@ -0,0 +1,100 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tileloader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Blocking {@link TileFetcher} using a {@link URLConnection} per tile. The download takes place within the calling thread, the returned
+ * {@link CompletableFuture} is already completed.
+ * @author Thomas Obenaus
+ * @source URLConnectionTileFetcher.java
+ * @date Jan 3, 2014
+ */
+public class URLConnectionTileFetcher implements TileFetcher
+{
+	/**
+	 * Default timeout (in ms) for connecting and reading.
+	 */
+	public static final int	DEFAULT_TIMEOUT	= 1500;
+
+	private int				timeout;
+
+	public URLConnectionTileFetcher( )
+	{
+		this( DEFAULT_TIMEOUT );
+	}
+
+	/**
+	 * Ctor
+	 * @param timeout - timeout (in ms) for connecting and reading
+	 */
+	public URLConnectionTileFetcher( int timeout )
+	{
+		this.timeout = timeout;
+	}
+
+	@Override
+	public CompletableFuture<byte[]> fetch( URL url )
+	{
+		CompletableFuture<byte[]> result = new CompletableFuture<>( );
+		try
+		{
+			URLConnection con = url.openConnection( );
+			con.setReadTimeout( this.timeout );
+			con.setConnectTimeout( this.timeout );
+
+			// check content length
+			if ( con.getContentLengthLong( ) == 0 )
+				throw new IllegalArgumentException( "Loaded image is empty." );
+
+			result.complete( readFully( con.getInputStream( ) ) );
+		}
+		catch ( IllegalArgumentException | IOException e )
+		{
+			result.completeExceptionally( e );
+		}
+		return result;
+	}
+
+	/**
+	 * Reads all bytes from the given {@link InputStream} and closes it afterwards.
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static byte[] readFully( InputStream in ) throws IOException
+	{
+		try
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream( 16 * 1024 );
+			byte[] buffer = new byte[8 * 1024];
+			int read;
+			while ( ( read = in.read( buffer ) ) != -1 )
+				out.write( buffer, 0, read );
+			return out.toByteArray( );
+		}
+		finally
+		{
+			in.close( );
+		}
+	}
+
+	@Override
+	public String toString( )
+	{
+		return "URLConnectionTileFetcher [timeout=" + this.timeout + "]";
+	}
+}
@@ -25,6 +25,8 @@ import static java.lang.Math.toDegrees;
 import static java.lang.Math.toRadians;
 
 import java.awt.geom.Point2D;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Class providing some usefull methods for coordinate transformations.
@@ -35,12 +37,41 @@ public class MercatorProjection
 	/**
 	 * The earth-radius (equator) in meters
 	 */
-	private static final int	EARTH_RADIUS	= 6378137;
+	private static final int		EARTH_RADIUS		= 6378137;
 
 	/**
 	 * Meters per inch
 	 */
-	private static final double	METER_PER_INCH	= 0.0254;
+	private static final double		METER_PER_INCH		= 0.0254;
+
+	/**
+	 * Min. number of coordinates per task of the parallel batch-projections (smaller arrays are projected by the calling thread).
+	 */
+	private static final int		PARALLEL_BATCH_SIZE	= 16384;
+
+	/**
+	 * Number of zoom-levels the per-zoom constants are precomputed for.
+	 */
+	private static final int		NUM_ZOOM_LEVELS		= 32;
+
+	/**
+	 * Precomputed results of {@link MercatorProjection#getNumberOfTiles(int)}, {@link MercatorProjection#getMapSize(int)} and 2^zoom for
+	 * the zoom-levels [0,{@link MercatorProjection#NUM_ZOOM_LEVELS}).
+	 */
+	private static final int[]		NUMBER_OF_TILES		= new int[NUM_ZOOM_LEVELS];
+	private static final int[]		MAP_SIZES			= new int[NUM_ZOOM_LEVELS];
+	private static final double[]	POWERS_OF_TWO		= new double[NUM_ZOOM_LEVELS];
+
+	static
+	{
+		// saturated like the cast of Math.pow() to int 
+		for ( int zoom = 0; zoom < NUM_ZOOM_LEVELS; zoom++ )
+		{
+			NUMBER_OF_TILES[zoom] = ( int ) Math.min( Integer.MAX_VALUE, 1L << zoom );
+			MAP_SIZES[zoom] = ( int ) Math.min( Integer.MAX_VALUE, ( long ) Tile.TILE_SIZE_PX << zoom );
+			POWERS_OF_TWO[zoom] = 1L << zoom;
+		}
+	}
 
 	/**
 	 * Computes the sec of a given value. sec = 1/cos(value).
@@ -82,6 +113,9 @@ public class MercatorProjection
 	 */
 	public static int getNumberOfTiles( int zoom )
 	{
+		if ( ( zoom >= 0 ) && ( zoom < NUM_ZOOM_LEVELS ) )
+			return NUMBER_OF_TILES[zoom];
+
 		int numberOfTiles = ( int ) Math.pow( 2, zoom );
 		return numberOfTiles;
 	}
@@ -423,6 +457,9 @@ public class MercatorProjection
 		// Compute number of pixels of one edge of the map, depending on current zoom-level.
 		// The map is 512x512 pixel at level 1, 1024x1024 at level 2, ...
 		// mapheight = mapwitdh = 256 * 2^zoom
+		if ( ( zoom >= 0 ) && ( zoom < NUM_ZOOM_LEVELS ) )
+			return MAP_SIZES[zoom];
+
 		int size = ( int ) ( 256 * Math.pow( 2, zoom ) );
 		return size;
 	}
@@ -459,7 +496,7 @@ public class MercatorProjection
 	 */
 	public static GeoCoord tileNumberToGeoCoord( TileNumber tileNumber, int zoom )
 	{
-		double n = pow( 2, zoom );
+		double n = ( ( zoom >= 0 ) && ( zoom < NUM_ZOOM_LEVELS ) ) ? POWERS_OF_TWO[zoom] : pow( 2, zoom );
 		double longitude = ( ( tileNumber.getX( ) / n ) * 360d ) - 180d;
 		double latitudeRadian = tileNumber.getY( ) / n;
 		latitudeRadian = latitudeRadian * 2d * PI;
@@ -468,4 +505,193 @@ public class MercatorProjection
 		double latitude = toDegrees( latitudeRadian );
 		return new GeoCoord( latitude, longitude );
 	}
+
+	/**
+	 * Batch-variant of {@link MercatorProjection#geoCoordToPixelOnWorldMap(GeoCoord, int)}: Computes the pixel-coordinates on the world-map
+	 * for the given latitudes/longitudes without creating any object. The results are identical to the ones of the single projection.
+	 * @param latitudes - in degree
+	 * @param longitudes - in degree
+	 * @param zoom - the zoom-level
+	 * @param outX - receives the x-coordinates (may be the same array as longitudes)
+	 * @param outY - receives the y-coordinates (may be the same array as latitudes)
+	 */
+	public static void projectToWorldPixels( double[] latitudes, double[] longitudes, int zoom, double[] outX, double[] outY )
+	{
+		projectToWorldPixels( latitudes, longitudes, zoom, outX, outY, 0, latitudes.length );
+	}
+
+	/**
+	 * Computes the pixel-coordinates on the world-map for the latitudes/longitudes at index [from,to) (see
+	 * {@link MercatorProjection#projectToWorldPixels(double[], double[], int, double[], double[])}).
+	 * @param latitudes
+	 * @param longitudes
+	 * @param zoom
+	 * @param outX
+	 * @param outY
+	 * @param from - first index (inclusive)
+	 * @param to - last index (exclusive)
+	 */
+	public static void projectToWorldPixels( double[] latitudes, double[] longitudes, int zoom, double[] outX, double[] outY, int from, int to )
+	{
+		checkBatchRange( latitudes, longitudes, outX, outY, from, to );
+		double mapSize = batchMapSize( zoom );
+
+		// plain counted loops without calls into other methods or objects (except the math-functions)
+		for ( int i = from; i < to; i++ )
+		{
+			double longitude = min( max( longitudes[i], -180d ), 180d );
+			outX[i] = ( ( longitude + 180d ) / 360d ) * mapSize;
+		}
+		for ( int i = from; i < to; i++ )
+		{
+			double latitude = min( max( latitudes[i], -85.05112878d ), 85.05112878d );
+			double sinLatitude = sin( toRadians( latitude ) );
+			outY[i] = ( 0.5d - log( ( 1d + sinLatitude ) / ( 1d - sinLatitude ) ) / ( 4d * PI ) ) * mapSize;
+		}
+	}
+
+	/**
+	 * Batch-variant of {@link MercatorProjection#pixelCoordOnWorldMapToGeoCoord(Point2D, int)}: Computes the latitudes/longitudes of the
+	 * given pixel-coordinates on the world-map without creating any object. The results are identical to the ones of the single
+	 * projection.
+	 * @param xs - x-coordinates on the world-map
+	 * @param ys - y-coordinates on the world-map
+	 * @param zoom - the zoom-level
+	 * @param outLatitudes - receives the latitudes (may be the same array as ys)
+	 * @param outLongitudes - receives the longitudes (may be the same array as xs)
+	 */
+	public static void unprojectFromWorldPixels( double[] xs, double[] ys, int zoom, double[] outLatitudes, double[] outLongitudes )
+	{
+		unprojectFromWorldPixels( xs, ys, zoom, outLatitudes, outLongitudes, 0, xs.length );
+	}
+
+	/**
+	 * Computes the latitudes/longitudes of the pixel-coordinates at index [from,to) (see
+	 * {@link MercatorProjection#unprojectFromWorldPixels(double[], double[], int, double[], double[])}).
+	 * @param xs
+	 * @param ys
+	 * @param zoom
+	 * @param outLatitudes
+	 * @param outLongitudes
+	 * @param from - first index (inclusive)
+	 * @param to - last index (exclusive)
+	 */
+	public static void unprojectFromWorldPixels( double[] xs, double[] ys, int zoom, double[] outLatitudes, double[] outLongitudes, int from, int to )
+	{
+		checkBatchRange( xs, ys, outLatitudes, outLongitudes, from, to );
+		double mapSize = batchMapSize( zoom );
+
+		for ( int i = from; i < to; i++ )
+		{
+			double pixelX = max( min( xs[i], mapSize - 1 ), 0 );
+			outLongitudes[i] = 360d * ( ( pixelX / mapSize ) - 0.5d );
+		}
+		for ( int i = from; i < to; i++ )
+		{
+			double pixelY = 0.5d - ( max( min( ys[i], mapSize - 1 ), 0 ) / mapSize );
+			outLatitudes[i] = 90d - 360d * atan( exp( -pixelY * 2d * PI ) ) / PI;
+		}
+	}
+
+	/**
+	 * Parallel variant of {@link MercatorProjection#projectToWorldPixels(double[], double[], int, double[], double[])}: Large arrays are
+	 * split into parts projected concurrently by all cores. Returns when all coordinates are projected.
+	 * @param latitudes
+	 * @param longitudes
+	 * @param zoom
+	 * @param outX
+	 * @param outY
+	 */
+	public static void projectToWorldPixelsParallel( double[] latitudes, double[] longitudes, int zoom, double[] outX, double[] outY )
+	{
+		checkBatchRange( latitudes, longitudes, outX, outY, 0, latitudes.length );
+		BatchPool.POOL.invoke( new BatchProjection( true, latitudes, longitudes, zoom, outX, outY, 0, latitudes.length ) );
+	}
+
+	/**
+	 * Parallel variant of {@link MercatorProjection#unprojectFromWorldPixels(double[], double[], int, double[], double[])}: Large arrays are
+	 * split into parts computed concurrently by all cores. Returns when all coordinates are computed.
+	 * @param xs
+	 * @param ys
+	 * @param zoom
+	 * @param outLatitudes
+	 * @param outLongitudes
+	 */
+	public static void unprojectFromWorldPixelsParallel( double[] xs, double[] ys, int zoom, double[] outLatitudes, double[] outLongitudes )
+	{
+		checkBatchRange( xs, ys, outLatitudes, outLongitudes, 0, xs.length );
+		BatchPool.POOL.invoke( new BatchProjection( false, xs, ys, zoom, outLatitudes, outLongitudes, 0, xs.length ) );
+	}
+
+	/**
+	 * Returns the size (in pixel) of the whole map at given zoom-level as used by the batch-projections (no overflow for zoom-levels > 22).
+	 * @param zoom
+	 * @return
+	 */
+	private static double batchMapSize( int zoom )
+	{
+		if ( ( zoom < 0 ) || ( zoom > 54 ) )
+			throw new IllegalArgumentException( "Invalid zoom-level " + zoom + "." );
+		return ( double ) ( ( long ) Tile.TILE_SIZE_PX << zoom );
+	}
+
+	private static void checkBatchRange( double[] in0, double[] in1, double[] out0, double[] out1, int from, int to )
+	{
+		int length = Math.min( Math.min( in0.length, in1.length ), Math.min( out0.length, out1.length ) );
+		if ( ( from < 0 ) || ( from > to ) || ( to > length ) )
+			throw new ArrayIndexOutOfBoundsException( "Invalid range [" + from + "," + to + ") for arrays of length " + length + "." );
+	}
+
+	/**
+	 * Holder of the pool executing the parallel batch-projections (created on first use).
+	 */
+	private static class BatchPool
+	{
+		private static final ForkJoinPool	POOL	= new ForkJoinPool( );
+	}
+
+	/**
+	 * Task (un)projecting the coordinates at index [from,to), split recursively into parts of at least
+	 * {@link MercatorProjection#PARALLEL_BATCH_SIZE} coordinates.
+	 */
+	private static class BatchProjection extends RecursiveAction
+	{
+		private static final long	serialVersionUID	= 1L;
+
+		private boolean				project;
+		private double[]			in0;
+		private double[]			in1;
+		private int					zoom;
+		private double[]			out0;
+		private double[]			out1;
+		private int					from;
+		private int					to;
+
+		public BatchProjection( boolean project, double[] in0, double[] in1, int zoom, double[] out0, double[] out1, int from, int to )
+		{
+			this.project = project;
+			this.in0 = in0;
+			this.in1 = in1;
+			this.zoom = zoom;
+			this.out0 = out0;
+			this.out1 = out1;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute( )
+		{
+			if ( this.to - this.from < 2 * PARALLEL_BATCH_SIZE )
+			{
+				if ( this.project )
+					projectToWorldPixels( this.in0, this.in1, this.zoom, this.out0, this.out1, this.from, this.to );
+				else unprojectFromWorldPixels( this.in0, this.in1, this.zoom, this.out0, this.out1, this.from, this.to );
+				return;
+			}
+
+			int mid = ( this.from + this.to ) >>> 1;
+			invokeAll( new BatchProjection( this.project, this.in0, this.in1, this.zoom, this.out0, this.out1, this.from, mid ), new BatchProjection( this.project, this.in0, this.in1, this.zoom, this.out0, this.out1, mid, this.to ) );
+		}
+	}
 }
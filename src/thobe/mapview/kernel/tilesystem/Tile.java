@@ -72,7 +72,10 @@ public class Tile implements Cloneable
 	 */
 	private int					x;
 
-	private String				tileId;
+	/**
+	 * Column and row packed into one long (see {@link Tile#toTileId(int, int)}).
+	 */
+	private long				id;
 
 	private int					column;
 	private int					row;
@@ -84,16 +87,27 @@ public class Tile implements Cloneable
 
 	private TileNumber			tileNumber;
 
+	/**
+	 * Ctor (compatibility), prefer {@link Tile#Tile(int, int, int, int)}.
+	 * @param id - the id as "column,row"
+	 * @param x
+	 * @param y
+	 */
 	public Tile( String id, int x, int y )
+	{
+		this( tileIdToColumn( id ), tileIdToRow( id ), x, y );
+	}
+
+	public Tile( int column, int row, int x, int y )
 	{
 		this.emptyTile = false;
 		this.valid = false;
-		this.column = tileIdToColumn( id );
-		this.row = tileIdToRow( id );
+		this.column = column;
+		this.row = row;
 		this.x = x;
 		this.y = y;
 		this.bounds = new Rectangle2D.Double( this.x, this.y, Tile.TILE_SIZE_PX, Tile.TILE_SIZE_PX );
-		this.tileId = id;
+		this.id = toTileId( column, row );
 
 		this.image = null;
 		this.tileNumber = defaultTileNumber;
@@ -122,11 +136,58 @@ public class Tile implements Cloneable
 		return emptyTile;
 	}
 
+	/**
+	 * Returns the id of the {@link Tile} at the given column/row: The column is stored in the upper, the row in the lower 32 bits.
+	 * @param column
+	 * @param row
+	 * @return
+	 */
+	public static long toTileId( int column, int row )
+	{
+		return ( ( long ) column << 32 ) | ( row & 0xFFFFFFFFL );
+	}
+
+	public static int tileIdToColumn( long tileId )
+	{
+		return ( int ) ( tileId >> 32 );
+	}
+
+	public static int tileIdToRow( long tileId )
+	{
+		return ( int ) tileId;
+	}
+
+	/**
+	 * Returns the given id as string "column,row" (e.g. for logging).
+	 * @param tileId
+	 * @return
+	 */
+	public static String tileIdToString( long tileId )
+	{
+		return colRowToTileId( tileIdToColumn( tileId ), tileIdToRow( tileId ) );
+	}
+
+	/**
+	 * Compatibility, returns the id as string "column,row" (see {@link Tile#toTileId(int, int)}).
+	 * @param column
+	 * @param row
+	 * @return
+	 */
 	public static String colRowToTileId( int column, int row )
 	{
 		return column + TILE_ID_DELIMITER + row;
 	}
 
+	/**
+	 * Compatibility, converts the string "column,row" into the id of the {@link Tile}.
+	 * @param tileId
+	 * @return
+	 */
+	public static long tileIdToLong( String tileId )
+	{
+		return toTileId( tileIdToColumn( tileId ), tileIdToRow( tileId ) );
+	}
+
 	public static int tileIdToRow( String tileId )
 	{
 		String[] colAndRow = tileId.split( TILE_ID_DELIMITER );
@@ -149,9 +210,18 @@ public class Tile implements Cloneable
 		return valid;
 	}
 
+	public long getId( )
+	{
+		return id;
+	}
+
+	/**
+	 * Compatibility, returns the id as string "column,row" (see {@link Tile#getId()}).
+	 * @return
+	 */
 	public String getTileId( )
 	{
-		return tileId;
+		return colRowToTileId( this.column, this.row );
 	}
 
 	public int getColumn( )
@@ -184,6 +254,15 @@ public class Tile implements Cloneable
 		this.image = image;
 	}
 
+	/**
+	 * Returns true if the image of this {@link Tile} is available (false if the default image is drawn instead).
+	 * @return
+	 */
+	public synchronized boolean hasImage( )
+	{
+		return ( this.image != null ) && !this.emptyTile;
+	}
+
 	public int getHeightPx( )
 	{
 		return TILE_SIZE_PX;
@@ -221,7 +300,7 @@ public class Tile implements Cloneable
 	@Override
 	public String toString( )
 	{
-		return "[" + this.tileId + "|" + x + "," + y + "|" + this.getCenter( ).getFormatted( ) + "]";
+		return "[" + this.getTileId( ) + "|" + x + "," + y + "|" + this.getCenter( ).getFormatted( ) + "]";
 	}
 
 	public Object clone( )
@@ -0,0 +1,434 @@
+/*
+ *  Copyright (C) 2013, Thomas Obenaus. All rights reserved.
+ *  Licensed under the New BSD License (3-clause lic)
+ *  See attached license-file.
+ *
+ *	Author: 	Thomas Obenaus
+ *	EMail:		obenaus.thomas@gmail.com
+ *  Project:    MapViewWidget
+ */
+package thobe.mapview.kernel.tilesystem;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Map of {@link Tile}s, keyed by their (column/row-packed) id (see {@link Tile#toTileId(int, int)}). Implemented as open-addressing hash
+ * table with linear probing over primitive arrays, so neither a lookup nor an insert creates any objects (no boxing, no entries).
+ * Additionally the extent of the grid (min/max column and row, pixel-bounds) is maintained while adding/removing {@link Tile}s, so it is
+ * available in O(1). Not thread-safe.
+ * @author Thomas Obenaus
+ * @source TileMap.java
+ * @date Jan 7, 2014
+ */
+public class TileMap implements Iterable<Tile>
+{
+	private static final int	DEFAULT_CAPACITY	= 64;
+
+	/**
+	 * The table is grown as soon as more than half of the slots are occupied.
+	 */
+	private static final int	MAX_LOAD_SHIFT		= 1;
+
+	private long[]				ids;
+
+	/**
+	 * The {@link Tile}s, a null-entry marks an empty slot.
+	 */
+	private Tile[]				tiles;
+
+	private int					size;
+
+	/**
+	 * Extent of the grid (columns/rows of all {@link Tile}s).
+	 */
+	private AxisExtent			columns;
+	private AxisExtent			rows;
+
+	/**
+	 * Pixel-position of column/row 0, the {@link Tile}s of the grid are placed at x=originX+column*{@link Tile#TILE_SIZE_PX} and
+	 * y=originY+row*{@link Tile#TILE_SIZE_PX}.
+	 */
+	private int					originX;
+	private int					originY;
+
+	public TileMap( )
+	{
+		this( DEFAULT_CAPACITY );
+	}
+
+	/**
+	 * Ctor
+	 * @param expectedSize - number of {@link Tile}s expected to be stored without growing the table
+	 */
+	public TileMap( int expectedSize )
+	{
+		int capacity = Integer.highestOneBit( Math.max( expectedSize, 4 ) - 1 ) << ( 1 + MAX_LOAD_SHIFT );
+		this.ids = new long[capacity];
+		this.tiles = new Tile[capacity];
+		this.size = 0;
+		this.columns = new AxisExtent( );
+		this.rows = new AxisExtent( );
+		this.originX = 0;
+		this.originY = 0;
+	}
+
+	/**
+	 * Returns the {@link Tile} having the given id (null if none).
+	 * @param tileId
+	 * @return
+	 */
+	public Tile get( long tileId )
+	{
+		int mask = this.tiles.length - 1;
+		for ( int slot = slot( tileId, mask );; slot = ( slot + 1 ) & mask )
+		{
+			Tile tile = this.tiles[slot];
+			if ( tile == null )
+				return null;
+			if ( this.ids[slot] == tileId )
+				return tile;
+		}
+	}
+
+	public Tile get( int column, int row )
+	{
+		return this.get( Tile.toTileId( column, row ) );
+	}
+
+	/**
+	 * Adds the given {@link Tile} (using its id as key).
+	 * @param tile
+	 * @return - the {@link Tile} that was replaced (null if none)
+	 */
+	public Tile put( Tile tile )
+	{
+		long tileId = tile.getId( );
+		int mask = this.tiles.length - 1;
+		int slot = slot( tileId, mask );
+		while ( this.tiles[slot] != null )
+		{
+			if ( this.ids[slot] == tileId )
+			{
+				Tile old = this.tiles[slot];
+				this.tiles[slot] = tile;
+				this.updateOrigin( tile );
+				return old;
+			}
+			slot = ( slot + 1 ) & mask;
+		}
+
+		this.ids[slot] = tileId;
+		this.tiles[slot] = tile;
+		this.size++;
+		this.columns.add( tile.getColumn( ) );
+		this.rows.add( tile.getRow( ) );
+		this.updateOrigin( tile );
+		if ( ( this.size << MAX_LOAD_SHIFT ) > this.tiles.length )
+			this.resize( this.tiles.length << 1 );
+		return null;
+	}
+
+	/**
+	 * Removes the {@link Tile} having the given id.
+	 * @param tileId
+	 * @return - the removed {@link Tile} (null if none)
+	 */
+	public Tile remove( long tileId )
+	{
+		int mask = this.tiles.length - 1;
+		int slot = slot( tileId, mask );
+		while ( this.tiles[slot] != null )
+		{
+			if ( this.ids[slot] == tileId )
+			{
+				Tile removed = this.tiles[slot];
+				this.shiftBack( slot, mask );
+				this.size--;
+				this.columns.remove( removed.getColumn( ) );
+				this.rows.remove( removed.getRow( ) );
+				return removed;
+			}
+			slot = ( slot + 1 ) & mask;
+		}
+		return null;
+	}
+
+	public int size( )
+	{
+		return size;
+	}
+
+	public boolean isEmpty( )
+	{
+		return this.size == 0;
+	}
+
+	public void clear( )
+	{
+		for ( int i = 0; i < this.tiles.length; i++ )
+			this.tiles[i] = null;
+		this.size = 0;
+		this.columns.clear( );
+		this.rows.clear( );
+	}
+
+	/**
+	 * Returns the smallest column of all {@link Tile}s (undefined if the map is empty).
+	 * @return
+	 */
+	public int getMinColumn( )
+	{
+		return this.columns.min;
+	}
+
+	public int getMaxColumn( )
+	{
+		return this.columns.max;
+	}
+
+	public int getMinRow( )
+	{
+		return this.rows.min;
+	}
+
+	public int getMaxRow( )
+	{
+		return this.rows.max;
+	}
+
+	/**
+	 * Returns the x-coordinate of the left border of the grid (undefined if the map is empty).
+	 * @return
+	 */
+	public int getMinX( )
+	{
+		return this.originX + this.columns.min * Tile.TILE_SIZE_PX;
+	}
+
+	/**
+	 * Returns the x-coordinate of the right border of the grid (undefined if the map is empty).
+	 * @return
+	 */
+	public int getMaxX( )
+	{
+		return this.originX + ( this.columns.max + 1 ) * Tile.TILE_SIZE_PX;
+	}
+
+	public int getMinY( )
+	{
+		return this.originY + this.rows.min * Tile.TILE_SIZE_PX;
+	}
+
+	public int getMaxY( )
+	{
+		return this.originY + ( this.rows.max + 1 ) * Tile.TILE_SIZE_PX;
+	}
+
+	/**
+	 * Returns the top-left {@link Tile} (the one at the min. column and row) or null if there is no such {@link Tile}.
+	 * @return
+	 */
+	public Tile getTopLeft( )
+	{
+		if ( this.size == 0 )
+			return null;
+		return this.get( this.columns.min, this.rows.min );
+	}
+
+	/**
+	 * Iterates over all {@link Tile}s (in no particular order). The map must not be modified while iterating.
+	 */
+	@Override
+	public Iterator<Tile> iterator( )
+	{
+		return new Iterator<Tile>( )
+		{
+			private int	slot	= nextSlot( 0 );
+
+			@Override
+			public boolean hasNext( )
+			{
+				return this.slot < tiles.length;
+			}
+
+			@Override
+			public Tile next( )
+			{
+				if ( !this.hasNext( ) )
+					throw new NoSuchElementException( );
+				Tile tile = tiles[this.slot];
+				this.slot = nextSlot( this.slot + 1 );
+				return tile;
+			}
+
+			@Override
+			public void remove( )
+			{
+				throw new UnsupportedOperationException( );
+			}
+		};
+	}
+
+	private void updateOrigin( Tile tile )
+	{
+		this.originX = tile.getX( ) - tile.getColumn( ) * Tile.TILE_SIZE_PX;
+		this.originY = tile.getY( ) - tile.getRow( ) * Tile.TILE_SIZE_PX;
+	}
+
+	/**
+	 * Returns the index of the first occupied slot starting at the given one (the capacity if there is none).
+	 * @param start
+	 * @return
+	 */
+	private int nextSlot( int start )
+	{
+		int slot = start;
+		while ( ( slot < this.tiles.length ) && ( this.tiles[slot] == null ) )
+			slot++;
+		return slot;
+	}
+
+	/**
+	 * Closes the gap at the given (just emptied) slot by moving back the following entries of the probe-sequence (no tombstones needed).
+	 * @param gap
+	 * @param mask
+	 */
+	private void shiftBack( int gap, int mask )
+	{
+		int slot = gap;
+		while ( true )
+		{
+			slot = ( slot + 1 ) & mask;
+			Tile tile = this.tiles[slot];
+			if ( tile == null )
+				break;
+
+			// move the entry only if its home-slot is not within (gap,slot]
+			int home = slot( this.ids[slot], mask );
+			if ( ( ( slot - home ) & mask ) >= ( ( slot - gap ) & mask ) )
+			{
+				this.ids[gap] = this.ids[slot];
+				this.tiles[gap] = tile;
+				gap = slot;
+			}
+		}
+		this.tiles[gap] = null;
+	}
+
+	private void resize( int capacity )
+	{
+		long[] oldIds = this.ids;
+		Tile[] oldTiles = this.tiles;
+		this.ids = new long[capacity];
+		this.tiles = new Tile[capacity];
+		int mask = capacity - 1;
+		for ( int i = 0; i < oldTiles.length; i++ )
+		{
+			if ( oldTiles[i] == null )
+				continue;
+			int slot = slot( oldIds[i], mask );
+			while ( this.tiles[slot] != null )
+				slot = ( slot + 1 ) & mask;
+			this.ids[slot] = oldIds[i];
+			this.tiles[slot] = oldTiles[i];
+		}
+	}
+
+	/**
+	 * Returns the home-slot of the given id (spreads the bits of column and row, neighbouring tiles don't end up in neighbouring slots).
+	 * @param tileId
+	 * @param mask
+	 * @return
+	 */
+	private static int slot( long tileId, int mask )
+	{
+		long h = tileId * 0x9E3779B97F4A7C15L;
+		return ( int ) ( h ^ ( h >>> 32 ) ) & mask;
+	}
+
+	/**
+	 * Min/max of the columns (or rows) of the grid, tracked by counting the {@link Tile}s per column. Adding is O(1), removing is amortized
+	 * O(1) (the min/max is moved over the emptied columns).
+	 */
+	private static class AxisExtent
+	{
+		/**
+		 * Number of {@link Tile}s per column, counts[i] belongs to column base+i.
+		 */
+		private int[]	counts;
+		private int		base;
+		private int		min;
+		private int		max;
+		private int		total;
+
+		public AxisExtent( )
+		{
+			this.counts = new int[16];
+			this.clear( );
+		}
+
+		public void add( int value )
+		{
+			if ( this.total == 0 )
+			{
+				this.base = value - ( this.counts.length / 2 );
+				this.min = value;
+				this.max = value;
+			}
+			else
+			{
+				this.min = Math.min( this.min, value );
+				this.max = Math.max( this.max, value );
+			}
+			if ( ( value < this.base ) || ( value >= this.base + this.counts.length ) )
+				this.rebase( );
+			this.counts[value - this.base]++;
+			this.total++;
+		}
+
+		public void remove( int value )
+		{
+			this.counts[value - this.base]--;
+			this.total--;
+			if ( this.total == 0 )
+				return;
+			while ( this.counts[this.min - this.base] == 0 )
+				this.min++;
+			while ( this.counts[this.max - this.base] == 0 )
+				this.max--;
+		}
+
+		public void clear( )
+		{
+			for ( int i = 0; i < this.counts.length; i++ )
+				this.counts[i] = 0;
+			this.base = 0;
+			this.min = 0;
+			this.max = 0;
+			this.total = 0;
+		}
+
+		/**
+		 * Moves the window of counters to cover [min,max] (centered, grown if needed). Columns outside [min,max] have no {@link Tile}s, so
+		 * the window follows the grid while it is moved and does not grow with the distance travelled.
+		 */
+		private void rebase( )
+		{
+			int span = this.max - this.min + 1;
+			int length = this.counts.length;
+			while ( length < span * 2 )
+				length <<= 1;
+
+			int newBase = this.min - ( length - span ) / 2;
+			int[] newCounts = new int[length];
+			for ( int i = 0; i < this.counts.length; i++ )
+			{
+				if ( this.counts[i] != 0 )
+					newCounts[this.base + i - newBase] += this.counts[i];
+			}
+			this.counts = newCounts;
+			this.base = newBase;
+		}
+	}
+}
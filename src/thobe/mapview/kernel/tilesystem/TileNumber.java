@@ -20,30 +20,31 @@ public class TileNumber
 	 * x-coordinate of the tile. This coordinate consists of the index of the tile (integer part) and the position of a geocoordinate within
 	 * this tile (fractional part).
 	 */
-	private double		xTile;
+	private double				xTile;
 
 	/**
 	 * y-coordinate of the tile. This coordinate consists of the index of the tile (integer part) and the position of a geocoordinate within
 	 * this tile (fractional part).
 	 */
-	private double		yTile;
+	private double				yTile;
 
 	/**
 	 * The zoom-level this {@link TileNumber} is valid for.
 	 */
-	private int			zoom;
+	private int					zoom;
 
 	/**
-	 * Returns the center of the {@link Tile} represented by this {@link TileNumber} at a given zoom-level.
+	 * Returns the center of the {@link Tile} represented by this {@link TileNumber} at a given zoom-level. Computed on first access since
+	 * most {@link TileNumber}s (e.g. those created on each update of the tile-grid) are never asked for it.
 	 */
-	private GeoCoord	center;
+	private volatile GeoCoord	center;
 
 	public TileNumber( double xTile, double yTile, int zoom )
 	{
 		this.xTile = xTile;
 		this.yTile = yTile;
 		this.zoom = zoom;
-		this.center = MercatorProjection.tileNumberToGeoCoord( this, this.zoom );
+		this.center = null;
 	}
 
 	/**
@@ -52,7 +53,14 @@ public class TileNumber
 	 */
 	public GeoCoord getCenter( )
 	{
-		return this.center;
+		// computing it twice (concurrently) does no harm
+		GeoCoord center = this.center;
+		if ( center == null )
+		{
+			center = MercatorProjection.tileNumberToGeoCoord( this, this.zoom );
+			this.center = center;
+		}
+		return center;
 	}
 
 	public int getZoom( )
@@ -88,6 +96,25 @@ public class TileNumber
 		return ( long ) yTile;
 	}
 
+	/**
+	 * Returns the index of the tile containing this {@link TileNumber} on the x-axis. Unlike {@link TileNumber#getXInt()} (truncated
+	 * towards zero) it is rounded down, so x=-0.5 lies within the tile -1.
+	 * @return
+	 */
+	public long getXIndex( )
+	{
+		return ( long ) Math.floor( xTile );
+	}
+
+	/**
+	 * Returns the index of the tile containing this {@link TileNumber} on the y-axis (rounded down, see {@link TileNumber#getXIndex()}).
+	 * @return
+	 */
+	public long getYIndex( )
+	{
+		return ( long ) Math.floor( yTile );
+	}
+
 	/**
 	 * Returns the position of the {@link GeoCoord} (represented by this {@link TileNumber}) within the tile addressed by this
 	 * {@link TileNumber}.
@@ -120,6 +147,27 @@ public class TileNumber
 		return ( value - integerPart );
 	}
 
+	@Override
+	public int hashCode( )
+	{
+		long x = Double.doubleToLongBits( this.xTile );
+		long y = Double.doubleToLongBits( this.yTile );
+		int result = 31 + ( int ) ( x ^ ( x >>> 32 ) );
+		result = 31 * result + ( int ) ( y ^ ( y >>> 32 ) );
+		return 31 * result + this.zoom;
+	}
+
+	@Override
+	public boolean equals( Object obj )
+	{
+		if ( this == obj )
+			return true;
+		if ( !( obj instanceof TileNumber ) )
+			return false;
+		TileNumber other = ( TileNumber ) obj;
+		return ( this.xTile == other.xTile ) && ( this.yTile == other.yTile ) && ( this.zoom == other.zoom );
+	}
+
 	@Override
 	public String toString( )
 	{